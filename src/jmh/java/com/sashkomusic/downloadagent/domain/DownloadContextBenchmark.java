@@ -0,0 +1,66 @@
+package com.sashkomusic.downloadagent.domain;
+
+import com.sashkomusic.downloadagent.config.SlskdPathConfig;
+import com.sashkomusic.downloadagent.domain.journal.DownloadJournal;
+import com.sashkomusic.downloadagent.domain.model.DownloadBatch;
+import com.sashkomusic.downloadagent.domain.model.DownloadEngine;
+import com.sashkomusic.downloadagent.domain.model.DownloadOption;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Webhook lookup cost with 10k files in flight, spread over few big or many small batches.
+ * Run with {@code ./gradlew jmh}; the score should stay flat across both parameters.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class DownloadContextBenchmark {
+
+    @Param({"1000", "10000"})
+    int totalFiles;
+
+    @Param({"10", "100", "1000"})
+    int batchCount;
+
+    private DownloadContext downloadContext;
+    private String[] remoteFilenames;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        // never opened, so it writes nothing
+        DownloadJournal journal = new DownloadJournal(Path.of("journal"), DataSize.ofMegabytes(4));
+        downloadContext = new DownloadContext(new SlskdPathConfig(), journal);
+        remoteFilenames = new String[totalFiles];
+
+        int filesPerBatch = totalFiles / batchCount;
+        for (int b = 0; b < batchCount; b++) {
+            List<DownloadOption.FileItem> files = new ArrayList<>(filesPerBatch);
+            for (int f = 0; f < filesPerBatch; f++) {
+                String filename = "@@user" + b + "\\Music\\Album " + b + "\\" + String.format("%03d", f) + " - Track.flac";
+                files.add(new DownloadOption.FileItem(filename, 30_000_000, null, 16, 44_100, 240));
+                remoteFilenames[b * filesPerBatch + f] = filename;
+            }
+            downloadContext.registerBatch(b, "release-" + b, files, DownloadEngine.SOULSEEK, null);
+        }
+    }
+
+    @Benchmark
+    public DownloadBatch findBatchByRemoteFilename() {
+        next = (next + 1) % remoteFilenames.length;
+        return downloadContext.findBatchByRemoteFilename(remoteFilenames[next]);
+    }
+}
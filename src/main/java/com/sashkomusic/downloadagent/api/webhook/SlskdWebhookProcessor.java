@@ -0,0 +1,176 @@
+package com.sashkomusic.downloadagent.api.webhook;
+
+import com.sashkomusic.downloadagent.api.webhook.dto.SlskdDownloadCompleteWebhook;
+import com.sashkomusic.downloadagent.domain.DownloadContext;
+import com.sashkomusic.downloadagent.domain.DownloadProgressAggregator;
+import com.sashkomusic.downloadagent.domain.DownloadVerifier;
+import com.sashkomusic.downloadagent.domain.model.DownloadBatch;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decouples slskd webhook calls from their handling. The controller only enqueues the event into a
+ * bounded ring buffer; a few consumer threads drain it in batches and do the batch lookup, path
+ * transformation and Kafka sends. The events of one drain are grouped by release, so a release gets one
+ * progress update and one completion check per drain. When the buffer is full the event is handled on the
+ * caller's thread, which slows slskd down instead of dropping completions.
+ */
+@Slf4j
+@Component
+public class SlskdWebhookProcessor {
+
+    private static final int MAX_DRAIN_BATCH = 32;
+    private static final long POLL_INTERVAL_MS = 200;
+    private static final long STOP_TIMEOUT_MS = 5_000;
+
+    private final DownloadProgressAggregator progressAggregator;
+    private final DownloadContext downloadContext;
+    private final DownloadVerifier downloadVerifier;
+
+    private final BlockingQueue<IngestedWebhook> queue;
+    private final int consumerCount;
+    private final Timer ingestionLag;
+    private final List<Thread> consumers = new ArrayList<>();
+    private volatile boolean running = true;
+
+    public SlskdWebhookProcessor(DownloadProgressAggregator progressAggregator,
+                                 DownloadContext downloadContext,
+                                 DownloadVerifier downloadVerifier,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${slskd.webhook.queue-capacity:1024}") int queueCapacity,
+                                 @Value("${slskd.webhook.consumers:2}") int consumerCount) {
+        this.progressAggregator = progressAggregator;
+        this.downloadContext = downloadContext;
+        this.downloadVerifier = downloadVerifier;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.consumerCount = consumerCount;
+        this.ingestionLag = Timer.builder("slskd.webhook.lag")
+                .description("Time from webhook ingestion to handling")
+                .register(meterRegistry);
+        Gauge.builder("slskd.webhook.queue.depth", queue, BlockingQueue::size).register(meterRegistry);
+    }
+
+    @PostConstruct
+    void startConsumers() {
+        for (int i = 0; i < consumerCount; i++) {
+            consumers.add(Thread.ofPlatform()
+                    .name("slskd-webhook-" + i)
+                    .daemon()
+                    .start(this::consume));
+        }
+        log.info("Started {} slskd webhook consumers", consumerCount);
+    }
+
+    /**
+     * Lets the consumers finish what they drained, then handles what is left in the queue.
+     */
+    @PreDestroy
+    void stopConsumers() throws InterruptedException {
+        running = false;
+        for (Thread consumer : consumers) {
+            if (!consumer.join(Duration.ofMillis(STOP_TIMEOUT_MS))) {
+                log.warn("slskd webhook consumer {} did not stop in time", consumer.getName());
+            }
+        }
+
+        List<IngestedWebhook> leftovers = new ArrayList<>();
+        queue.drainTo(leftovers);
+        if (!leftovers.isEmpty()) {
+            process(leftovers);
+        }
+    }
+
+    public void submit(SlskdDownloadCompleteWebhook webhook) {
+        IngestedWebhook event = new IngestedWebhook(webhook, System.nanoTime());
+        if (!queue.offer(event)) {
+            log.warn("Webhook queue is full, handling file={} on the request thread", webhook.remoteFilename());
+            process(List.of(event));
+        }
+    }
+
+    private void consume() {
+        List<IngestedWebhook> drained = new ArrayList<>(MAX_DRAIN_BATCH);
+        while (running) {
+            try {
+                // polled rather than taken, so a stopping consumer finishes its drain instead of being interrupted
+                IngestedWebhook first = queue.poll(POLL_INTERVAL_MS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                drained.add(first);
+                queue.drainTo(drained, MAX_DRAIN_BATCH - 1);
+                process(drained);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                drained.clear();
+            }
+        }
+    }
+
+    private void process(List<IngestedWebhook> events) {
+        Map<DownloadBatch, List<SlskdDownloadCompleteWebhook>> completedByBatch = new LinkedHashMap<>();
+        for (IngestedWebhook event : events) {
+            ingestionLag.record(System.nanoTime() - event.receivedAtNanos(), TimeUnit.NANOSECONDS);
+            SlskdDownloadCompleteWebhook webhook = event.webhook();
+            try {
+                DownloadBatch batch = downloadContext.markFileCompleted(webhook.remoteFilename(),
+                        webhook.localFilename());
+                if (batch == null) {
+                    log.debug("No batch found for file: {} (possibly external download)", webhook.remoteFilename());
+                    continue;
+                }
+                completedByBatch.computeIfAbsent(batch, key -> new ArrayList<>()).add(webhook);
+            } catch (Exception e) {
+                log.error("Failed to process download complete webhook for file={}: {}",
+                        webhook.remoteFilename(), e.getMessage(), e);
+            }
+        }
+        completedByBatch.forEach(this::filesCompleted);
+    }
+
+    private void filesCompleted(DownloadBatch batch, List<SlskdDownloadCompleteWebhook> webhooks) {
+        try {
+            Map<String, Long> sizes = new LinkedHashMap<>();
+            webhooks.forEach(webhook -> sizes.put(webhook.remoteFilename(), webhook.transfer().size()));
+            progressAggregator.filesCompleted(batch, sizes);
+
+            for (SlskdDownloadCompleteWebhook webhook : webhooks) {
+                String localFilename = batch.getLocalFilename(webhook.remoteFilename());
+                if (localFilename != null) {
+                    downloadVerifier.announceReadyTrack(batch.getChatId(), batch.getReleaseId(),
+                            Path.of(localFilename), batch.getExpectedSize(webhook.remoteFilename()));
+                }
+            }
+
+            if (batch.tryClaimCompletion()) {
+                log.info("All files downloaded for release: {}", batch.getReleaseId());
+                downloadVerifier.verifyAndComplete(batch);
+            }
+
+        } catch (Exception e) {
+            log.error("Failed to process {} download complete webhooks for releaseId={}: {}",
+                    webhooks.size(), batch.getReleaseId(), e.getMessage(), e);
+        }
+    }
+
+    private record IngestedWebhook(SlskdDownloadCompleteWebhook webhook, long receivedAtNanos) {
+    }
+}
@@ -0,0 +1,31 @@
+package com.sashkomusic.downloadagent.config;
+
+import com.sashkomusic.downloadagent.domain.model.DownloadEngine;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+
+@Setter
+@Configuration
+@ConfigurationProperties(prefix = "download.scheduler")
+@Getter
+public class DownloadSchedulerConfig {
+    private int defaultSlots = 2;
+    private Map<DownloadEngine, Integer> slots = new EnumMap<>(DownloadEngine.class);
+    private Map<Long, Integer> chatWeights = new HashMap<>();
+    private Duration initialDurationEstimate = Duration.ofMinutes(5);
+
+    public int slotsFor(DownloadEngine engine) {
+        return Math.max(1, slots.getOrDefault(engine, defaultSlots));
+    }
+
+    public int weightFor(long chatId) {
+        return Math.max(1, chatWeights.getOrDefault(chatId, 1));
+    }
+}
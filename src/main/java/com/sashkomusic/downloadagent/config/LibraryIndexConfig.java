@@ -0,0 +1,18 @@
+package com.sashkomusic.downloadagent.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Setter
+@Configuration
+@ConfigurationProperties(prefix = "library.index")
+@Getter
+public class LibraryIndexConfig {
+    private List<String> roots = new ArrayList<>();
+    private String file = "library.index";
+}
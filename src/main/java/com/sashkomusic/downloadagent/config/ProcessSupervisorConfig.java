@@ -0,0 +1,23 @@
+package com.sashkomusic.downloadagent.config;
+
+import com.sashkomusic.downloadagent.domain.model.DownloadEngine;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+@Setter
+@Configuration
+@ConfigurationProperties(prefix = "cli.processes")
+@Getter
+public class ProcessSupervisorConfig {
+    private int defaultMaxConcurrent = 2;
+    private Map<DownloadEngine, Integer> maxConcurrent = new EnumMap<>(DownloadEngine.class);
+
+    public int maxConcurrentFor(DownloadEngine engine) {
+        return Math.max(1, maxConcurrent.getOrDefault(engine, defaultMaxConcurrent));
+    }
+}
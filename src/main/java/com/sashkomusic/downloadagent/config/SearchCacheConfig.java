@@ -0,0 +1,27 @@
+package com.sashkomusic.downloadagent.config;
+
+import com.sashkomusic.downloadagent.domain.model.DownloadEngine;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+
+@Setter
+@Configuration
+@ConfigurationProperties(prefix = "search.cache")
+@Getter
+public class SearchCacheConfig {
+    private int maxEntries = 500;
+    private Duration defaultTtl = Duration.ofMinutes(30);
+    private Map<DownloadEngine, Duration> ttl = new EnumMap<>(DownloadEngine.class);
+    private Duration negativeTtl = Duration.ofMinutes(2);
+    private Duration staleWindow = Duration.ofMinutes(10);
+
+    public Duration ttlFor(DownloadEngine engine) {
+        return ttl.getOrDefault(engine, defaultTtl);
+    }
+}
@@ -13,6 +13,14 @@ public class SlskdPathConfig {
     private String containerPath;
     private String localPath;
 
+    /**
+     * Directory slskd downloads a peer's remote folder into, as seen from its container.
+     */
+    public String containerDirectory(String username, String remoteFolder) {
+        String directory = containerPath + "/" + username + "/" + remoteFolder;
+        return directory.replace("\\\\", "/").replace("\\", "/");
+    }
+
     public String transformToLocalPath(String containerFilePath) {
         if (containerFilePath == null || containerPath == null || localPath == null) {
             return containerFilePath;
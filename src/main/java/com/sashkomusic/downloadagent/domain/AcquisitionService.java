@@ -1,16 +1,34 @@
 package com.sashkomusic.downloadagent.domain;
 
+import com.sashkomusic.downloadagent.domain.exception.MusicDownloadException;
 import com.sashkomusic.downloadagent.domain.model.DownloadEngine;
 import com.sashkomusic.downloadagent.domain.model.DownloadOption;
+import com.sashkomusic.downloadagent.domain.model.SearchKey;
 import com.sashkomusic.downloadagent.domain.util.SearchMatchingUtil;
 import com.sashkomusic.downloadagent.messaging.consumer.dto.SearchFilesTaskDto;
 import com.sashkomusic.downloadagent.messaging.producer.SearchResultProducer;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
 
 @Service
 @RequiredArgsConstructor
@@ -19,20 +37,239 @@ public class AcquisitionService {
 
     private final Map<DownloadEngine, MusicSourcePort> musicSources;
     private final SearchResultProducer searchResultProducer;
+    private final SearchResultCache searchCache;
+    private final LibraryIndex libraryIndex;
+    private final InFlightSearches inFlightSearches;
+    private final DownloadMonitorService downloadMonitorService;
+
+    private final ExecutorService searchExecutor = Executors.newVirtualThreadPerTaskExecutor();
+    // streaming tasks waiting for each in-flight search, which all get its partial results
+    private final ConcurrentHashMap<SearchKey, Set<StreamSubscriber>> streamSubscribers = new ConcurrentHashMap<>();
+
+    @Value("${search.federated.deadline:25s}")
+    private Duration federatedDeadline;
+
+    @Value("${search.timeout:3m}")
+    private Duration searchTimeout;
 
     public void search(SearchFilesTaskDto task) {
+        var inLibrary = libraryIndex.find(task.artist(), task.title(), task.trackCount(),
+                downloadMonitorService.activeDirectories());
+        if (inLibrary.isPresent()) {
+            log.info("Release already in library, skipping search: artist='{}', title='{}', directory={}",
+                    task.artist(), task.title(), inLibrary.get().directory());
+            searchResultProducer.sendInLibrary(task.chatId(), task.releaseId(), task.source(),
+                    inLibrary.get().directory().toString());
+            return;
+        }
+
+        if (task.source() == null) {
+            searchAllSources(task);
+            return;
+        }
+        if (task.streaming()) {
+            searchStreaming(task);
+            return;
+        }
+
         String artist = task.artist();
         String title = task.title();
 
         log.info("Starting music search: artist='{}', title='{}', source={}, releaseId={}", artist, title, task.source(), task.releaseId());
         MusicSourcePort source = musicSources.get(task.source());
 
-        List<DownloadOption> results = source.search(artist, title);
+        List<DownloadOption> results;
+        try {
+            results = searchCached(task.source(), artist, title, searchTimeout);
+        } catch (RuntimeException e) {
+            log.warn("Search failed for source={}, releaseId={}: {}", task.source(), task.releaseId(), e.getMessage());
+            results = List.of();
+        }
 
         boolean autoDownload = source.autoDownloadEnabled() && hasAutoDownloadOption(artist, title, results);
         searchResultProducer.sendResults(task.chatId(), task.releaseId(), task.source(), results, autoDownload);
     }
 
+    /**
+     * Streaming search: publishes versioned result deltas while the engine is still searching and
+     * finishes with a "complete" update carrying the remaining options and the auto-download decision.
+     * Tasks joining an in-flight search get its deltas from then on, each in its own chat and version sequence.
+     */
+    private void searchStreaming(SearchFilesTaskDto task) {
+        String artist = task.artist();
+        String title = task.title();
+
+        log.info("Starting streaming search: artist='{}', title='{}', source={}, releaseId={}", artist, title, task.source(), task.releaseId());
+        MusicSourcePort source = musicSources.get(task.source());
+
+        SearchKey key = SearchKey.of(task.source(), artist, title);
+        StreamSubscriber subscriber = new StreamSubscriber(task);
+        streamSubscribers.compute(key, (k, subscribers) -> {
+            Set<StreamSubscriber> current = subscribers != null ? subscribers : ConcurrentHashMap.newKeySet();
+            current.add(subscriber);
+            return current;
+        });
+
+        List<DownloadOption> results;
+        try {
+            results = searchCache.get(key).orElseGet(() -> searchShared(key, () -> {
+                List<DownloadOption> found = source.searchIncrementally(artist, title, partial ->
+                        streamSubscribers.getOrDefault(key, Set.of()).forEach(s -> s.publish(partial)));
+                searchCache.put(key, artist, title, found);
+                return found;
+            }, searchTimeout));
+        } catch (RuntimeException e) {
+            log.warn("Streaming search failed for source={}, releaseId={}: {}", task.source(), task.releaseId(), e.getMessage());
+            results = List.of();
+        } finally {
+            streamSubscribers.computeIfPresent(key, (k, subscribers) -> {
+                subscribers.remove(subscriber);
+                return subscribers.isEmpty() ? null : subscribers;
+            });
+        }
+
+        boolean autoDownload = source.autoDownloadEnabled() && hasAutoDownloadOption(artist, title, results);
+        subscriber.complete(results, autoDownload);
+    }
+
+    private List<DownloadOption> searchCached(DownloadEngine engine, String artist, String title, Duration timeout) {
+        SearchKey key = SearchKey.of(engine, artist, title);
+        return searchCache.get(key).orElseGet(() -> searchShared(key, () -> {
+            List<DownloadOption> results = musicSources.get(engine).search(artist, title);
+            searchCache.put(key, artist, title, results);
+            return results;
+        }, timeout));
+    }
+
+    /**
+     * Waits for the shared search of the key (see {@link InFlightSearches}) and then publishes its results to
+     * the caller's own chat. A caller that times out or is interrupted stops waiting without cancelling the search
+     * for the others.
+     */
+    private List<DownloadOption> searchShared(SearchKey key, Supplier<List<DownloadOption>> search, Duration timeout) {
+        return awaitShared(key, inFlightSearches.join(key, search), timeout);
+    }
+
+    private static List<DownloadOption> awaitShared(SearchKey key, CompletableFuture<List<DownloadOption>> inFlight,
+                                                    Duration timeout) {
+        try {
+            return inFlight.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Search interrupted", e);
+        } catch (TimeoutException e) {
+            throw new MusicDownloadException("Search " + key + " did not finish within " + timeout);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    /**
+     * A streaming task waiting for a search, which may be shared with others. Once its "complete" update
+     * is out it publishes nothing more, even if the shared search still reports partial results.
+     */
+    private final class StreamSubscriber {
+        private final SearchFilesTaskDto task;
+        private final Set<String> publishedIds = new HashSet<>();
+        private int version;
+        private boolean completed;
+
+        private StreamSubscriber(SearchFilesTaskDto task) {
+            this.task = task;
+        }
+
+        synchronized void publish(List<DownloadOption> partial) {
+            if (completed) {
+                return;
+            }
+            List<DownloadOption> delta = unpublished(partial, publishedIds);
+            if (!delta.isEmpty()) {
+                searchResultProducer.sendUpdate(task.chatId(), task.releaseId(), task.source(),
+                        ++version, delta, false, false);
+            }
+        }
+
+        synchronized void complete(List<DownloadOption> results, boolean autoDownload) {
+            completed = true;
+            searchResultProducer.sendUpdate(task.chatId(), task.releaseId(), task.source(),
+                    ++version, unpublished(results, publishedIds), true, autoDownload);
+        }
+    }
+
+    private static List<DownloadOption> unpublished(List<DownloadOption> options, Set<String> publishedIds) {
+        return options.stream()
+                .filter(option -> publishedIds.add(option.id()))
+                .toList();
+    }
+
+    /**
+     * Federated search: queries every engine at once on virtual threads and publishes each engine's
+     * results as soon as they arrive. Engines that miss the deadline are cancelled and skipped,
+     * so one slow source (usually Soulseek) no longer delays the fast ones.
+     * Auto-download is granted to the first qualifying engine only.
+     */
+    private void searchAllSources(SearchFilesTaskDto task) {
+        String artist = task.artist();
+        String title = task.title();
+
+        log.info("Starting federated search: artist='{}', title='{}', engines={}, deadline={}, releaseId={}",
+                artist, title, musicSources.keySet(), federatedDeadline, task.releaseId());
+
+        CompletionService<List<DownloadOption>> completion = new ExecutorCompletionService<>(searchExecutor);
+        Map<DownloadEngine, Future<List<DownloadOption>>> pending = new EnumMap<>(DownloadEngine.class);
+        musicSources.forEach((engine, source) ->
+                pending.put(engine, completion.submit(() -> searchCached(engine, artist, title, federatedDeadline))));
+
+        long deadline = System.nanoTime() + federatedDeadline.toNanos();
+        boolean autoDownloadClaimed = false;
+
+        try {
+            while (!pending.isEmpty()) {
+                Future<List<DownloadOption>> done = completion.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                if (done == null) {
+                    break;
+                }
+
+                DownloadEngine engine = engineOf(pending, done);
+                pending.remove(engine);
+
+                List<DownloadOption> results;
+                try {
+                    results = done.get();
+                } catch (ExecutionException e) {
+                    log.warn("Federated search failed for engine={}: {}", engine, e.getCause().getMessage());
+                    continue;
+                }
+
+                boolean autoDownload = !autoDownloadClaimed
+                        && musicSources.get(engine).autoDownloadEnabled()
+                        && hasAutoDownloadOption(artist, title, results);
+                autoDownloadClaimed |= autoDownload;
+
+                searchResultProducer.sendResults(task.chatId(), task.releaseId(), engine, results, autoDownload);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            pending.forEach((engine, future) -> {
+                log.warn("Engine {} missed federated search deadline of {}, cancelling", engine, federatedDeadline);
+                future.cancel(true);
+            });
+        }
+    }
+
+    private static DownloadEngine engineOf(Map<DownloadEngine, Future<List<DownloadOption>>> pending,
+                                           Future<List<DownloadOption>> future) {
+        return pending.entrySet().stream()
+                .filter(entry -> entry.getValue() == future)
+                .map(Map.Entry::getKey)
+                .findFirst()
+                .orElseThrow();
+    }
+
     private boolean hasAutoDownloadOption(String artist, String title, List<DownloadOption> results) {
         List<DownloadOption> matchingResults = results.stream()
                 .filter(option -> matchesSearchQuery(option, artist, title))
@@ -1,12 +1,20 @@
 package com.sashkomusic.downloadagent.domain;
 
 import com.sashkomusic.downloadagent.config.SlskdPathConfig;
+import com.sashkomusic.downloadagent.domain.journal.DownloadJournal;
+import com.sashkomusic.downloadagent.domain.journal.JournaledRelease;
 import com.sashkomusic.downloadagent.domain.model.DownloadBatch;
 import com.sashkomusic.downloadagent.domain.model.DownloadEngine;
+import com.sashkomusic.downloadagent.domain.model.DownloadOption;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -16,44 +24,118 @@ import java.util.concurrent.ConcurrentHashMap;
 public class DownloadContext {
 
     private final SlskdPathConfig pathConfig;
+    private final DownloadJournal journal;
 
     private final ConcurrentHashMap<String, DownloadBatch> batches = new ConcurrentHashMap<>();
+    // remote filename -> batches waiting for it, oldest first, so webhook lookups don't scan every active batch;
+    // releases from different peers can share a filename. The lists are immutable and replaced on every change
+    private final ConcurrentHashMap<String, List<DownloadBatch>> batchesByRemoteFilename = new ConcurrentHashMap<>();
+
+    /**
+     * Restores the batches that were in flight before a restart, with their completed files and aliases.
+     */
+    @PostConstruct
+    void recover() {
+        for (JournaledRelease release : journal.recovered()) {
+            DownloadBatch batch = index(release.chatId(), release.releaseId(), release.files(), release.sizes(),
+                    release.source(), release.directory());
+            release.aliases().forEach((alias, remote) -> {
+                batch.addAlias(remote, alias);
+                indexFile(alias, batch);
+            });
+            release.completedFiles().forEach((remote, local) -> {
+                batch.markFileCompleted(remote, local);
+                unindexFile(remote, batch);
+            });
+            log.info("Recovered download batch: releaseId={}, source={}, {}/{} files remaining",
+                    release.releaseId(), release.source(), batch.getRemainingCount(), batch.getTotalFiles());
+        }
+    }
 
-    public void registerBatch(long chatId, String releaseId, List<String> filenames, DownloadEngine source) {
-        String remoteDirectoryPath = filenames.isEmpty() ? "" : extractDirectory(filenames.getFirst());
+    /**
+     * @param directory the local directory the release's files are collected in, null when unknown
+     */
+    public void registerBatch(long chatId, String releaseId, List<DownloadOption.FileItem> files, DownloadEngine source,
+                              String directory) {
+        List<String> filenames = files.stream().map(DownloadOption.FileItem::filename).toList();
+        List<Long> sizes = files.stream().map(DownloadOption.FileItem::size).toList();
 
-        DownloadBatch batch = new DownloadBatch(chatId, releaseId, remoteDirectoryPath, filenames, source);
-        batches.put(releaseId, batch);
+        DownloadBatch batch = index(chatId, releaseId, filenames, sizes, source, directory);
+        journal.batchRegistered(chatId, releaseId, source, filenames, sizes, directory);
 
         log.info("Registered download batch: releaseId={}, directory={}, source={}, files={}",
-                releaseId, remoteDirectoryPath, source, filenames.size());
+                releaseId, batch.getRemoteDirectoryPath(), source, filenames.size());
+    }
+
+    /**
+     * @return the oldest batch still waiting for a file by this remote name, null if none is
+     */
+    public DownloadBatch findBatchByRemoteFilename(String remoteFilename) {
+        List<DownloadBatch> waiting = batchesByRemoteFilename.get(remoteFilename);
+        return waiting != null ? waiting.getFirst() : null;
     }
 
+    /**
+     * Completes the file for the oldest batch still waiting for it, so two releases sharing a remote filename
+     * each get one completion.
+     */
     public DownloadBatch markFileCompleted(String remoteFilename, String localFilename) {
-        DownloadBatch batch = batches.values().stream()
-                .filter(b -> b.getAllFiles().contains(remoteFilename))
-                .findFirst()
-                .orElse(null);
+        DownloadBatch batch = claim(remoteFilename);
 
         if (batch == null) {
             log.warn("No batch found for file: {}", remoteFilename);
             return null;
         }
 
-        batch.markFileCompleted(remoteFilename);
-
         String transformedLocalPath = pathConfig.transformToLocalPath(localFilename);
         log.debug("Path transformation: {} -> {}", localFilename, transformedLocalPath);
-        batch.addLocalFilename(transformedLocalPath);
+        if (batch.getLocalFilename(remoteFilename) == null) {
+            transformedLocalPath = collect(batch, transformedLocalPath);
+        }
+        if (batch.markFileCompleted(remoteFilename, transformedLocalPath)) {
+            journal.fileCompleted(batch.getReleaseId(), remoteFilename, transformedLocalPath);
+        }
 
         if (batch.isComplete()) {
-            batches.remove(batch.getReleaseId());
+            batches.remove(batch.getReleaseId(), batch);
+            unindex(batch);
+            journal.released(batch.getReleaseId());
             log.info("Download batch completed: releaseId={}", batch.getReleaseId());
         }
 
         return batch;
     }
 
+    /**
+     * Registers {@code aliasFilename} as another remote name for a file of the release's batch,
+     * so its webhook completes the original file.
+     */
+    public boolean addRemoteAlias(String releaseId, String remoteFilename, String aliasFilename) {
+        DownloadBatch batch = batches.get(releaseId);
+        if (batch == null || !batch.addAlias(remoteFilename, aliasFilename)) {
+            return false;
+        }
+        indexFile(aliasFilename, batch);
+        journal.aliasAdded(releaseId, remoteFilename, aliasFilename);
+        log.debug("Registered alias for releaseId={}: {} -> {}", releaseId, aliasFilename, remoteFilename);
+        return true;
+    }
+
+    public List<DownloadBatch> activeBatches() {
+        return List.copyOf(batches.values());
+    }
+
+    /**
+     * Release directories Soulseek downloads are still writing into. CLI batches are left out: they write into
+     * hidden staging directories and their directory is the library root.
+     */
+    public List<Path> activeDirectories() {
+        return batches.values().stream()
+                .filter(batch -> batch.getSource() == DownloadEngine.SOULSEEK && batch.getLocalDirectory() != null)
+                .map(batch -> Path.of(batch.getLocalDirectory()).toAbsolutePath().normalize())
+                .toList();
+    }
+
     public DownloadBatch findBatchByReleaseId(String releaseId) {
         return batches.get(releaseId);
     }
@@ -61,6 +143,8 @@ public class DownloadContext {
     public boolean removeBatchByReleaseId(String releaseId) {
         DownloadBatch batch = batches.remove(releaseId);
         if (batch != null) {
+            unindex(batch);
+            journal.released(releaseId);
             log.info("Removed download batch for releaseId={}", releaseId);
             return true;
         }
@@ -68,6 +152,95 @@ public class DownloadContext {
         return false;
     }
 
+    /**
+     * Moves a file that slskd saved under another peer's folder (a mirror or a failover) into the release's
+     * directory, so the release ends up in one place.
+     *
+     * @return where the file is now
+     */
+    private static String collect(DownloadBatch batch, String localFilename) {
+        if (batch.getLocalDirectory() == null || localFilename == null) {
+            return localFilename;
+        }
+        Path file = Path.of(localFilename);
+        Path directory = Path.of(batch.getLocalDirectory());
+        if (directory.equals(file.getParent())) {
+            return localFilename;
+        }
+
+        Path target = directory.resolve(file.getFileName());
+        try {
+            Files.createDirectories(directory);
+            // without REPLACE_EXISTING, so a file already in the release directory is kept
+            Files.move(file, target);
+            log.debug("Collected {} into {}", file, directory);
+            return target.toString();
+        } catch (IOException e) {
+            log.warn("Failed to collect {} into {} for releaseId={}: {}",
+                    file, directory, batch.getReleaseId(), e.toString());
+            return localFilename;
+        }
+    }
+
+    private DownloadBatch index(long chatId, String releaseId, List<String> filenames, List<Long> sizes,
+                                DownloadEngine source, String directory) {
+        String remoteDirectoryPath = filenames.isEmpty() ? "" : extractDirectory(filenames.getFirst());
+
+        DownloadBatch batch = new DownloadBatch(chatId, releaseId, remoteDirectoryPath, filenames, sizes, source,
+                directory);
+        DownloadBatch previous = batches.put(releaseId, batch);
+        if (previous != null) {
+            unindex(previous);
+        }
+        filenames.forEach(filename -> indexFile(filename, batch));
+        return batch;
+    }
+
+    private void unindex(DownloadBatch batch) {
+        batch.getAllFiles().forEach(filename -> unindexFile(filename, batch));
+        batch.getAliasFilenames().forEach(filename -> unindexFile(filename, batch));
+    }
+
+    private void indexFile(String remoteFilename, DownloadBatch batch) {
+        batchesByRemoteFilename.compute(remoteFilename, (filename, waiting) -> {
+            if (waiting == null) {
+                return List.of(batch);
+            }
+            if (waiting.contains(batch)) {
+                return waiting;
+            }
+            List<DownloadBatch> updated = new ArrayList<>(waiting);
+            updated.add(batch);
+            return List.copyOf(updated);
+        });
+    }
+
+    private void unindexFile(String remoteFilename, DownloadBatch batch) {
+        batchesByRemoteFilename.computeIfPresent(remoteFilename, (filename, waiting) -> {
+            List<DownloadBatch> rest = waiting.stream().filter(indexed -> indexed != batch).toList();
+            return rest.isEmpty() ? null : rest;
+        });
+    }
+
+    /**
+     * Removes the oldest batch waiting for the file from the index and returns it; null if none is waiting.
+     */
+    private DownloadBatch claim(String remoteFilename) {
+        while (true) {
+            List<DownloadBatch> waiting = batchesByRemoteFilename.get(remoteFilename);
+            if (waiting == null) {
+                return null;
+            }
+            List<DownloadBatch> rest = waiting.subList(1, waiting.size());
+            boolean claimed = rest.isEmpty()
+                    ? batchesByRemoteFilename.remove(remoteFilename, waiting)
+                    : batchesByRemoteFilename.replace(remoteFilename, waiting, List.copyOf(rest));
+            if (claimed) {
+                return waiting.getFirst();
+            }
+        }
+    }
+
     private String extractDirectory(String path) {
         if (path == null) {
             return "";
@@ -0,0 +1,230 @@
+package com.sashkomusic.downloadagent.domain;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Incremental view of CLI download directories built from file system events.
+ * <p>
+ * Each watched root is registered once together with its existing subdirectories; directories created
+ * later are registered as they appear. Directories that received events are kept in memory with their
+ * audio files and the time of the last event, so lookups never touch the disk.
+ */
+@Slf4j
+@Component
+public class DownloadDirectoryWatcher {
+
+    private static final Set<String> AUDIO_EXTENSIONS = Set.of(
+            "flac", "mp3", "wav", "m4a", "aac", "alac", "aiff", "ogg", "wma", "ape"
+    );
+    private static final long IDLE_RETENTION_MS = TimeUnit.HOURS.toMillis(1);
+    private static final long PRUNE_INTERVAL_MS = TimeUnit.MINUTES.toMillis(1);
+
+    private final Set<Path> roots = ConcurrentHashMap.newKeySet();
+    private final Map<WatchKey, Path> watchedDirectories = new ConcurrentHashMap<>();
+    private final Map<Path, DirectoryState> activeDirectories = new ConcurrentHashMap<>();
+
+    private WatchService watchService;
+    private Thread eventLoop;
+
+    @PostConstruct
+    void start() throws IOException {
+        watchService = FileSystems.getDefault().newWatchService();
+        eventLoop = Thread.ofPlatform()
+                .name("download-directory-watcher")
+                .daemon()
+                .start(this::processEvents);
+    }
+
+    @PreDestroy
+    void stop() throws IOException {
+        watchService.close();
+        eventLoop.interrupt();
+    }
+
+    /**
+     * Starts watching a download root. Calling it again for a root that is already watched does nothing.
+     */
+    public void watch(Path root) throws IOException {
+        Path normalized = root.toAbsolutePath().normalize();
+        if (!roots.add(normalized)) {
+            return;
+        }
+
+        Files.createDirectories(normalized);
+        registerTree(normalized);
+        log.debug("Watching download directory: {}", normalized);
+    }
+
+    /**
+     * Stops watching a root and forgets everything under it. Must be called before the root is moved,
+     * since watches follow the moved directories and their events would be reported under the old paths.
+     */
+    public void unwatch(Path root) {
+        Path normalized = root.toAbsolutePath().normalize();
+        roots.remove(normalized);
+        watchedDirectories.entrySet().removeIf(entry -> {
+            if (entry.getValue().startsWith(normalized)) {
+                entry.getKey().cancel();
+                return true;
+            }
+            return false;
+        });
+        activeDirectories.keySet().removeIf(path -> path.startsWith(normalized));
+    }
+
+    /**
+     * Audio files known in {@code directory} and its subdirectories.
+     */
+    public List<String> audioFiles(Path directory) {
+        Path normalized = directory.toAbsolutePath().normalize();
+        return activeDirectories.entrySet().stream()
+                .filter(entry -> entry.getKey().startsWith(normalized))
+                .flatMap(entry -> entry.getValue().audioFiles.stream())
+                .map(Path::toString)
+                .sorted()
+                .toList();
+    }
+
+    /**
+     * Time of the last event anywhere in {@code directory}'s subtree, or 0 if there was none.
+     */
+    public long lastEventAt(Path directory) {
+        Path normalized = directory.toAbsolutePath().normalize();
+        return activeDirectories.entrySet().stream()
+                .filter(entry -> entry.getKey().startsWith(normalized))
+                .mapToLong(entry -> entry.getValue().lastEventAt)
+                .max()
+                .orElse(0);
+    }
+
+    public static boolean isAudioFile(String filename) {
+        String lower = filename.toLowerCase();
+        int dot = lower.lastIndexOf('.');
+        return dot >= 0 && AUDIO_EXTENSIONS.contains(lower.substring(dot + 1));
+    }
+
+    private void processEvents() {
+        long lastPruneAt = System.currentTimeMillis();
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                WatchKey key = watchService.poll(1, TimeUnit.MINUTES);
+                if (System.currentTimeMillis() - lastPruneAt >= PRUNE_INTERVAL_MS) {
+                    pruneIdleDirectories();
+                    lastPruneAt = System.currentTimeMillis();
+                }
+                if (key == null) {
+                    continue;
+                }
+
+                Path directory = watchedDirectories.get(key);
+                if (directory != null) {
+                    key.pollEvents().forEach(event -> handleEvent(directory, event));
+                }
+                if (!key.reset()) {
+                    watchedDirectories.remove(key);
+                }
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                Thread.currentThread().interrupt();
+            } catch (Exception e) {
+                log.error("Error processing download directory events: {}", e.getMessage(), e);
+            }
+        }
+    }
+
+    private void handleEvent(Path directory, WatchEvent<?> event) {
+        if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+            log.warn("Watch events overflowed for {}, rescanning", directory);
+            activeDirectories.put(directory, scan(directory));
+            return;
+        }
+
+        Path child = directory.resolve((Path) event.context());
+        DirectoryState state = touch(directory);
+
+        if (event.kind() == StandardWatchEventKinds.ENTRY_DELETE) {
+            state.audioFiles.remove(child);
+            activeDirectories.keySet().removeIf(path -> path.startsWith(child));
+        } else if (Files.isDirectory(child, LinkOption.NOFOLLOW_LINKS)) {
+            if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE) {
+                registerTree(child);
+            }
+        } else if (isAudioFile(child.getFileName().toString())) {
+            state.audioFiles.add(child);
+        }
+    }
+
+    /**
+     * Registers a directory and its subtree. Files may already be inside by the time it is registered,
+     * so each directory is scanned once.
+     */
+    private void registerTree(Path directory) {
+        try (Stream<Path> directories = Files.walk(directory)) {
+            directories.filter(Files::isDirectory).forEach(dir -> {
+                register(dir);
+                activeDirectories.put(dir, scan(dir));
+            });
+        } catch (IOException e) {
+            log.warn("Failed to register new directory {}: {}", directory, e.getMessage());
+        }
+    }
+
+    private void register(Path directory) {
+        try {
+            WatchKey key = directory.register(watchService,
+                    StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY,
+                    StandardWatchEventKinds.ENTRY_DELETE);
+            watchedDirectories.put(key, directory);
+        } catch (IOException e) {
+            log.warn("Failed to watch directory {}: {}", directory, e.getMessage());
+        }
+    }
+
+    private DirectoryState touch(Path directory) {
+        DirectoryState state = activeDirectories.computeIfAbsent(directory, this::scan);
+        state.lastEventAt = System.currentTimeMillis();
+        return state;
+    }
+
+    private DirectoryState scan(Path directory) {
+        DirectoryState state = new DirectoryState();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.filter(Files::isRegularFile)
+                    .filter(file -> isAudioFile(file.getFileName().toString()))
+                    .forEach(state.audioFiles::add);
+        } catch (IOException e) {
+            log.debug("Failed to list directory {}: {}", directory, e.getMessage());
+        }
+        return state;
+    }
+
+    private void pruneIdleDirectories() {
+        long cutoff = System.currentTimeMillis() - IDLE_RETENTION_MS;
+        activeDirectories.values().removeIf(state -> state.lastEventAt < cutoff);
+    }
+
+    private static final class DirectoryState {
+        private final Set<Path> audioFiles = ConcurrentHashMap.newKeySet();
+        private volatile long lastEventAt = System.currentTimeMillis();
+    }
+}
@@ -1,50 +1,193 @@
 package com.sashkomusic.downloadagent.domain;
 
+import com.sashkomusic.downloadagent.domain.journal.DownloadJournal;
+import com.sashkomusic.downloadagent.domain.journal.JournaledRelease;
+import com.sashkomusic.downloadagent.domain.model.DownloadEngine;
+import com.sashkomusic.downloadagent.domain.model.DownloadProgress;
+import com.sashkomusic.downloadagent.domain.util.StagingDirectories;
 import com.sashkomusic.downloadagent.messaging.producer.DownloadBatchCompleteProducer;
+import com.sashkomusic.downloadagent.messaging.producer.DownloadErrorProducer;
+import com.sashkomusic.downloadagent.messaging.producer.DownloadProgressProducer;
 import com.sashkomusic.downloadagent.messaging.producer.dto.DownloadBatchCompleteDto;
+import com.sashkomusic.downloadagent.messaging.producer.dto.DownloadErrorDto;
+import com.sashkomusic.downloadagent.messaging.producer.dto.DownloadProgressDto;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
 import java.io.IOException;
+import java.nio.file.FileAlreadyExistsException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
+/**
+ * Detects finished CLI downloads (Qobuz, Apple Music, Bandcamp) in their staging directories: by the exit of
+ * the CLI process when it is known, otherwise once the files stop changing or their tags show every track.
+ * A process that exits while the tags show tracks missing fails the download.
+ * Finished tracks are moved into the library while the rest of the release is still downloading.
+ */
 @Service
 @Slf4j
 @RequiredArgsConstructor
 public class DownloadMonitorService {
 
-    private static final Set<String> AUDIO_EXTENSIONS = Set.of(
-            "flac", "mp3", "wav", "m4a", "aac", "alac", "aiff", "ogg", "wma", "ape"
-    );
-
     private final DownloadBatchCompleteProducer batchCompleteProducer;
+    private final DownloadErrorProducer errorProducer;
+    private final DownloadProgressProducer progressProducer;
+    private final DownloadDirectoryWatcher directoryWatcher;
+    private final DownloadContext downloadContext;
+    private final DownloadJournal journal;
+    private final LibraryIndex libraryIndex;
+    private final DownloadVerifier downloadVerifier;
     private final Map<String, DownloadMonitorTask> activeTasks = new ConcurrentHashMap<>();
 
+    @Value("${download.monitor.quiet-period:6s}")
+    private Duration quietPeriod;
+
+    /**
+     * Monitors a download without a known process, completing it once the staging directory is stable.
+     *
+     * @param downloadPath the library root; the download itself is expected in its staging directory
+     */
     public void startMonitoring(long chatId, String releaseId, String downloadPath,
                                  int expectedFileCount, String artist, String title) {
+        startMonitoring(chatId, releaseId, downloadPath, expectedFileCount, artist, title, null);
+    }
+
+    /**
+     * @param processExit exit code of the CLI process writing the download, or null if there is none
+     */
+    public void startMonitoring(long chatId, String releaseId, String downloadPath,
+                                 int expectedFileCount, String artist, String title,
+                                 CompletableFuture<Integer> processExit) {
         String taskId = releaseId + ":" + chatId;
 
         DownloadMonitorTask task = new DownloadMonitorTask(
-                chatId, releaseId, downloadPath, expectedFileCount, artist, title
+                chatId, releaseId, downloadPath, expectedFileCount, artist, title, processExit != null
         );
 
+        try {
+            directoryWatcher.watch(task.stagingPath());
+        } catch (IOException e) {
+            log.error("Failed to watch staging directory {}: {}", task.stagingPath(), e.getMessage(), e);
+        }
+
         activeTasks.put(taskId, task);
-        log.info("Started monitoring download: taskId={}, path={}, expectedFiles={}, artist={}, title={}",
-                 taskId, downloadPath, expectedFileCount, artist, title);
+        journal.monitorStarted(releaseId, new JournaledRelease.Monitor(
+                downloadPath, expectedFileCount, artist, title, task.processDriven()));
+        log.info("Started monitoring download: taskId={}, staging={}, expectedFiles={}, artist={}, title={}",
+                 taskId, task.stagingPath(), expectedFileCount, artist, title);
+
+        if (processExit != null) {
+            processExit.whenComplete((exitCode, error) -> onProcessExit(taskId, exitCode, error));
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void recover() {
+        for (JournaledRelease release : journal.recovered()) {
+            if (release.source() == DownloadEngine.SOULSEEK) {
+                continue; // driven by slskd webhooks
+            }
+
+            JournaledRelease.Monitor monitor = release.monitor();
+            if (monitor != null && !monitor.processDriven()) {
+                log.info("Resuming monitoring after restart: releaseId={}", release.releaseId());
+                startMonitoring(release.chatId(), release.releaseId(), monitor.downloadPath(),
+                        monitor.expectedFileCount(), monitor.artist(), monitor.title());
+                DownloadMonitorTask task = activeTasks.get(release.releaseId() + ":" + release.chatId());
+                release.promotedFiles().forEach(file -> task.promoted(Path.of(file)));
+                continue;
+            }
+
+            log.warn("Download was interrupted by a restart: releaseId={}, source={}",
+                    release.releaseId(), release.source());
+            if (monitor != null) {
+                DownloadMonitorTask task = new DownloadMonitorTask(release.chatId(), release.releaseId(),
+                        monitor.downloadPath(), monitor.expectedFileCount(), monitor.artist(), monitor.title(), true);
+                // the tracks moved into the library early go with the rest of the release
+                release.promotedFiles().forEach(file -> task.promoted(Path.of(file)));
+                failDownload(task, "завантаження перервалось через перезапуск, спробуй ще раз 🙏");
+            } else {
+                downloadContext.removeBatchByReleaseId(release.releaseId());
+                errorProducer.sendError(DownloadErrorDto.of(release.chatId(),
+                        "завантаження перервалось через перезапуск, спробуй ще раз 🙏"));
+            }
+        }
+    }
+
+    /**
+     * Records the progress a CLI printed and publishes it whenever another track is done.
+     */
+    public void reportProgress(String releaseId, DownloadProgress progress) {
+        activeTasks.values().stream()
+                .filter(task -> task.releaseId().equals(releaseId))
+                .forEach(task -> {
+                    DownloadProgress previous = task.progress();
+                    task.updateProgress(progress);
+                    if (previous == null || previous.track() != progress.track()) {
+                        log.info("Download progress: releaseId={}, track {}/{}",
+                                releaseId, progress.track(), progress.totalTracks());
+                    }
+                    int done = progress.completedTracks();
+                    if (done > 0 && (previous == null || previous.completedTracks() != done)) {
+                        sendProgress(task, progress);
+                    }
+                });
+    }
+
+    private void sendProgress(DownloadMonitorTask task, DownloadProgress progress) {
+        int done = progress.completedTracks();
+        int total = Math.max(Math.max(progress.totalTracks(), task.expectedFileCount()), done);
+        long etaSeconds = total > done
+                ? (long) (total - done) * (System.currentTimeMillis() - task.startedAt()) / done / 1000
+                : progress.totalTracks() > 0 ? 0 : -1;
+        try {
+            // the CLIs print neither file names nor sizes
+            progressProducer.sendProgress(DownloadProgressDto.of(task.chatId(), task.releaseId(), List.of(),
+                    done, total, 0, 0, etaSeconds));
+        } catch (Exception e) {
+            log.error("Failed to send download progress for releaseId={}: {}", task.releaseId(), e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Directories downloads are still writing into or promoting tracks to, which the library must not offer yet.
+     */
+    public List<Path> activeDirectories() {
+        Stream<Path> promoted = activeTasks.values().stream()
+                .flatMap(task -> task.promotedFiles().stream())
+                .map(file -> file.toAbsolutePath().normalize().getParent());
+        return Stream.concat(downloadContext.activeDirectories().stream(), promoted)
+                .distinct()
+                .toList();
     }
 
     public void stopMonitoring(String releaseId) {
         activeTasks.entrySet().removeIf(entry -> {
-            if (entry.getValue().releaseId().equals(releaseId)) {
+            DownloadMonitorTask task = entry.getValue();
+            if (task.releaseId().equals(releaseId)) {
+                directoryWatcher.unwatch(task.stagingPath());
+                try {
+                    StagingDirectories.delete(task.stagingPath());
+                } catch (IOException e) {
+                    log.warn("Failed to delete staging directory {}: {}", task.stagingPath(), e.getMessage());
+                }
+                deletePromotedTracks(task);
                 log.info("Stopped monitoring for releaseId={}", releaseId);
                 return true;
             }
@@ -52,58 +195,60 @@ public class DownloadMonitorService {
         });
     }
 
-    @Scheduled(fixedDelay = 3000) // Every 3 seconds
+    @Scheduled(fixedDelay = 1000)
     public void checkDownloads() {
         if (activeTasks.isEmpty()) {
             return;
         }
 
-        log.info("Checking {} active downloads", activeTasks.size());
+        log.debug("Checking {} active downloads", activeTasks.size());
+        long now = System.currentTimeMillis();
 
         activeTasks.entrySet().removeIf(entry -> {
             String taskId = entry.getKey();
             DownloadMonitorTask task = entry.getValue();
-
+            // the watcher can lag behind the disk (macOS polls), so a file only counts as finished once the
+            // disk itself shows the same size and modification time for the quiet period
+            List<String> stagedFiles = directoryWatcher.audioFiles(task.stagingPath());
+            Map<Path, DiskState> onDisk = readDiskStates(stagedFiles);
+            Map<Path, Long> unchangedFor = task.observe(onDisk, now);
             try {
-                Path basePath = Path.of(task.downloadPath());
-
-                if (!Files.exists(basePath)) {
-                    log.info("Base directory not yet created: {}", basePath);
-                    return false; // Keep monitoring
-                }
+                promoteReadyTracks(task, onDisk, unchangedFor);
+            } catch (Exception e) {
+                log.error("Error promoting finished tracks of taskId={}: {}", taskId, e.getMessage(), e);
+            }
+            if (task.processDriven()) {
+                return false; // completed from the process exit
+            }
+            if (task.promoting()) {
+                return false; // the staged files are listed once no track is moving out of staging
+            }
 
-                String artist = task.artist();
-                String title = task.title();
+            try {
+                List<String> audioFiles = withPromoted(task, stagedFiles);
+                long quietFor = now - directoryWatcher.lastEventAt(task.stagingPath());
+                boolean settledOnDisk = unchangedFor.size() == stagedFiles.size()
+                        && unchangedFor.values().stream().allMatch(time -> time >= quietPeriod.toMillis());
 
-                if (artist == null || title == null) {
-                    log.warn("Missing artist or title metadata for download");
-                    return false;
-                }
+                log.debug("taskId={}, {} audio files, quiet for {}ms", taskId, audioFiles.size(), quietFor);
 
-                Path downloadDir = findAlbumFolder(basePath, artist, title).orElse(null);
-                if (downloadDir == null) {
-                    log.info("Album folder not yet created for: {} - {}", artist, title);
-                    return false;
+                if (!audioFiles.isEmpty() && quietFor >= quietPeriod.toMillis() && settledOnDisk) {
+                    log.info("Download complete (stable): taskId={}, files={}", taskId, audioFiles.size());
+                    completeDownload(task, audioFiles);
+                    return true; // Remove from active tasks
                 }
 
-                List<String> audioFiles = findAudioFiles(downloadDir);
-                int currentCount = audioFiles.size();
-
-                log.info("taskId={}, checking: {} audio files", taskId, currentCount);
-
-                // Check if files are stable (not changing for 6 seconds)
-                if (task.isStable(currentCount)) {
-                    log.info("Download complete (stable): taskId={}, files={}", taskId, currentCount);
-                    batchCompleteProducer.sendBatchComplete(
-                            DownloadBatchCompleteDto.of(
-                                    task.chatId(),
-                                    task.releaseId(),
-                                    downloadDir.toString(),
-                                    audioFiles
-                            )
-                    );
-
-                    return true; // Remove from active tasks
+                // a tag block at the head of a file says nothing about its tail, so the tree must have settled
+                boolean unchangedSinceLastCheck = unchangedFor.size() == stagedFiles.size()
+                        && unchangedFor.values().stream().allMatch(time -> time > 0);
+                if (!audioFiles.isEmpty() && unchangedSinceLastCheck) {
+                    task.trackSet().update(audioFiles);
+                    if (task.trackSet().isComplete()) {
+                        log.info("Download complete (all tracks tagged): taskId={}, files={}, duration={}s",
+                                taskId, audioFiles.size(), task.trackSet().durationMillis() / 1000);
+                        completeDownload(task, audioFiles);
+                        return true;
+                    }
                 }
 
             } catch (Exception e) {
@@ -114,86 +259,256 @@ public class DownloadMonitorService {
         });
     }
 
-    private List<String> findAudioFiles(Path directory) throws IOException {
-        try (Stream<Path> paths = Files.walk(directory)) {
-            return paths
-                    .filter(Files::isRegularFile)
-                    .filter(path -> isAudioFile(path.getFileName().toString()))
-                    .map(Path::toString)
-                    .toList();
+    private void onProcessExit(String taskId, Integer exitCode, Throwable error) {
+        DownloadMonitorTask task = activeTasks.remove(taskId);
+        if (task == null) {
+            return; // cancelled
+        }
+
+        try {
+            if (error != null) {
+                log.error("Download process failed: taskId={}, error={}", taskId, error.getMessage());
+                failDownload(task, "не вийшло запустити завантаження: " + error.getMessage());
+                return;
+            }
+            if (exitCode != 0) {
+                log.error("Download process exited with code {}: taskId={}", exitCode, taskId);
+                failDownload(task, "завантаження впало з кодом " + exitCode + " 😢");
+                return;
+            }
+
+            // the watcher may still be catching up with the last events, the disk is authoritative here
+            List<String> audioFiles;
+            synchronized (task) {
+                task.finish();
+                audioFiles = withPromoted(task, listAudioFiles(task.stagingPath()));
+            }
+            if (audioFiles.isEmpty()) {
+                log.error("Download process finished without audio files: taskId={}", taskId);
+                failDownload(task, "завантаження завершилось, але аудіофайлів нема 🤷");
+                return;
+            }
+
+            // a CLI that skips unavailable tracks still exits with 0, the tags tell the album is incomplete
+            task.trackSet().update(audioFiles);
+            List<String> missingTracks = task.trackSet().missingTracks();
+            if (!missingTracks.isEmpty()) {
+                log.error("Download process finished without some tracks: taskId={}, missing (disc-track)={}",
+                        taskId, missingTracks);
+                failDownload(task, "завантаження завершилось без треків " + String.join(", ", missingTracks) + " 😢");
+                return;
+            }
+
+            log.info("Download complete (process exited): taskId={}, files={}", taskId, audioFiles.size());
+            completeDownload(task, audioFiles);
+
+        } catch (Exception e) {
+            log.error("Error completing download taskId={}: {}", taskId, e.getMessage(), e);
         }
     }
 
-    private boolean isAudioFile(String filename) {
-        String lower = filename.toLowerCase();
-        return AUDIO_EXTENSIONS.stream().anyMatch(ext -> lower.endsWith("." + ext));
+    private void failDownload(DownloadMonitorTask task, String message) {
+        directoryWatcher.unwatch(task.stagingPath());
+        try {
+            StagingDirectories.delete(task.stagingPath());
+        } catch (IOException e) {
+            log.warn("Failed to delete staging directory {}: {}", task.stagingPath(), e.getMessage());
+        }
+        deletePromotedTracks(task);
+        downloadContext.removeBatchByReleaseId(task.releaseId());
+        errorProducer.sendError(DownloadErrorDto.of(task.chatId(), message));
     }
 
     /**
-     * Normalizes strings for matching by removing special characters, spaces, and converting to lowercase.
-     * Examples:
-     * - "HYPERREAL EP [SCX021]" -> "hyperrealepscx021"
-     * - "hyperreal-ep-scx021" -> "hyperrealepscx021"
-     * - "Artist - Album (2024)" -> "artistalbum2024"
+     * Moves the staged tracks the CLI is done with into the library and announces them. A track is done when
+     * the disk showed no change to it for the quiet period, a newer track was written after it (the CLIs
+     * download one track at a time) and it passes verification; the last track goes with the rest of the
+     * download. The tracks are verified and moved off the scheduler thread, one round per task at a time.
      */
-    private String normalizeForMatching(String text) {
-        return text.toLowerCase()
-                .replaceAll("[\\s\\-_\\[\\](){}]", ""); // Remove spaces, dashes, underscores, brackets, parentheses
+    private void promoteReadyTracks(DownloadMonitorTask task, Map<Path, DiskState> onDisk,
+                                    Map<Path, Long> unchangedFor) {
+        if (onDisk.size() < 2) {
+            return;
+        }
+        long newest = onDisk.values().stream().mapToLong(DiskState::modifiedAt).max().orElse(0);
+
+        Map<Path, Long> ready = new HashMap<>();
+        synchronized (task) {
+            if (task.finished() || task.promoting()) {
+                return;
+            }
+            for (Map.Entry<Path, DiskState> staged : onDisk.entrySet()) {
+                long modified = staged.getValue().modifiedAt();
+                if (modified < newest && unchangedFor.getOrDefault(staged.getKey(), 0L) >= quietPeriod.toMillis()
+                        && !task.isRejected(staged.getKey(), modified)) {
+                    ready.put(staged.getKey(), modified);
+                }
+            }
+            if (ready.isEmpty()) {
+                return;
+            }
+            task.promoting(true);
+        }
+
+        Map<Path, CompletableFuture<DownloadVerifier.Damage>> checks = new HashMap<>();
+        ready.keySet().forEach(file -> checks.put(file, downloadVerifier.verify(file, 0)));
+        CompletableFuture.allOf(checks.values().toArray(CompletableFuture[]::new))
+                .whenComplete((ignored, error) -> promoteVerified(task, ready, checks, error));
     }
 
-    /**
-     * Finds the album folder by searching for both artist and title in the path.
-     * If not found, falls back to searching only by title (for Compilations/Various Artists folders).
-     *
-     * @param basePath the base download directory to search in
-     * @param artist the artist name
-     * @param title the album title
-     * @return Optional containing the album folder path if found, empty otherwise
-     */
-    private Optional<Path> findAlbumFolder(Path basePath, String artist, String title) throws IOException {
-        String normalizedArtist = normalizeForMatching(artist);
-        String normalizedTitle = normalizeForMatching(title);
+    private void promoteVerified(DownloadMonitorTask task, Map<Path, Long> ready,
+                                 Map<Path, CompletableFuture<DownloadVerifier.Damage>> checks, Throwable error) {
+        Path libraryRoot = Path.of(task.downloadPath());
+        synchronized (task) {
+            task.promoting(false);
+            if (error != null) {
+                log.error("Verification of staged tracks of releaseId={} failed: {}",
+                        task.releaseId(), error.getMessage(), error);
+                return;
+            }
 
-        log.debug("Searching for normalized artist='{}' and title='{}' (original: '{}', '{}')",
-                normalizedArtist, normalizedTitle, artist, title);
+            for (Map.Entry<Path, CompletableFuture<DownloadVerifier.Damage>> check : checks.entrySet()) {
+                if (task.finished()) {
+                    return;
+                }
+                Path staged = check.getKey();
+                DownloadVerifier.Damage damage = check.getValue().join();
+                if (damage != null) {
+                    log.debug("Staged track is not ready: releaseId={}, {}", task.releaseId(), damage);
+                    task.reject(staged, ready.get(staged));
+                    continue;
+                }
 
-        // Step 1: Try matching both artist and title
-        try (Stream<Path> subdirs = Files.walk(basePath, 2)) {
-            Optional<Path> albumFolder = subdirs
-                    .filter(Files::isDirectory)
-                    .filter(p -> !p.equals(basePath))
-                    .filter(p -> {
-                        String fullPath = normalizeForMatching(p.toString());
-                        return fullPath.contains(normalizedArtist) &&
-                               fullPath.contains(normalizedTitle);
-                    })
-                    .findFirst();
+                try {
+                    Path target = StagingDirectories.promoteFile(task.stagingPath(), libraryRoot, staged);
+                    task.promoted(target);
+                    journal.trackPromoted(task.releaseId(), target.toString());
+                    downloadVerifier.announceReadyTrack(task.chatId(), task.releaseId(), target, 0);
+                } catch (FileAlreadyExistsException e) {
+                    // stays staged, so the whole download fails on the same conflict when it is promoted
+                    log.warn("Library already has staged track {} of releaseId={}: {}",
+                            staged, task.releaseId(), e.getFile());
+                    task.reject(staged, ready.get(staged));
+                } catch (IOException e) {
+                    log.error("Failed to promote staged track {} of releaseId={}: {}",
+                            staged, task.releaseId(), e.getMessage(), e);
+                }
+            }
+        }
+    }
 
-            if (albumFolder.isPresent()) {
-                log.info("Found album folder (artist+title match): {}", albumFolder.get());
-                return albumFolder;
+    private static Map<Path, DiskState> readDiskStates(List<String> files) {
+        Map<Path, DiskState> states = new HashMap<>();
+        for (String file : files) {
+            try {
+                BasicFileAttributes attributes = Files.readAttributes(Path.of(file), BasicFileAttributes.class);
+                states.put(Path.of(file), new DiskState(attributes.size(), attributes.lastModifiedTime().toMillis()));
+            } catch (IOException e) {
+                // moved or deleted meanwhile
             }
         }
+        return states;
+    }
 
-        // Step 2: Fallback - try matching only title (for Compilations/Various Artists)
-        log.debug("No folder matching both artist='{}' and title='{}', trying title only",
-                artist, title);
+    private static List<String> withPromoted(DownloadMonitorTask task, List<String> stagedFiles) {
+        if (task.promotedFiles().isEmpty()) {
+            return stagedFiles;
+        }
+        return Stream.concat(stagedFiles.stream(), task.promotedFiles().stream().map(Path::toString))
+                .distinct()
+                .sorted()
+                .toList();
+    }
 
-        try (Stream<Path> subdirs = Files.walk(basePath, 2)) {
-            Optional<Path> albumFolder = subdirs
-                    .filter(Files::isDirectory)
-                    .filter(p -> !p.equals(basePath))
-                    .filter(p -> {
-                        String fullPath = normalizeForMatching(p.toString());
-                        return fullPath.contains(normalizedTitle);
-                    })
-                    .findFirst();
+    private void deletePromotedTracks(DownloadMonitorTask task) {
+        try {
+            StagingDirectories.deletePromoted(Path.of(task.downloadPath()), task.promotedFiles());
+        } catch (IOException e) {
+            log.warn("Failed to delete tracks of releaseId={} from the library: {}", task.releaseId(), e.getMessage());
+        }
+    }
 
-            if (albumFolder.isPresent()) {
-                log.info("Found album folder (title-only match): {}", albumFolder.get());
+    private static List<String> listAudioFiles(Path directory) throws IOException {
+        if (!Files.exists(directory)) {
+            return List.of();
+        }
+        try (Stream<Path> paths = Files.walk(directory)) {
+            return paths
+                    .filter(Files::isRegularFile)
+                    .filter(path -> DownloadDirectoryWatcher.isAudioFile(path.getFileName().toString()))
+                    .map(Path::toString)
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    /**
+     * @param audioFiles the staged files and the tracks already promoted; only the staged ones are verified here
+     */
+    private void completeDownload(DownloadMonitorTask task, List<String> audioFiles) {
+        synchronized (task) {
+            task.finish();
+        }
+        directoryWatcher.unwatch(task.stagingPath());
+
+        Map<Path, Long> files = audioFiles.stream()
+                .map(Path::of)
+                .filter(file -> file.startsWith(task.stagingPath()))
+                .collect(Collectors.toMap(file -> file, file -> 0L, (a, b) -> a));
+        downloadVerifier.verify(files).whenComplete((damages, error) -> {
+            if (error != null) {
+                log.error("Verification of releaseId={} failed, completing without it: {}",
+                        task.releaseId(), error.getMessage(), error);
+            } else if (!damages.isEmpty()) {
+                log.warn("Damaged download: releaseId={}, {}", task.releaseId(), damages);
+                failDownload(task, DownloadVerifier.describe(damages));
+                return;
             }
-            return albumFolder;
+            promote(task, audioFiles);
+        });
+    }
+
+    private void promote(DownloadMonitorTask task, List<String> audioFiles) {
+        Path staging = task.stagingPath();
+        Path libraryRoot = Path.of(task.downloadPath());
+        List<Path> files = audioFiles.stream().map(Path::of).toList();
+
+        try {
+            StagingDirectories.promote(staging, libraryRoot);
+            files = files.stream()
+                    .map(file -> file.startsWith(staging)
+                            ? StagingDirectories.libraryPath(staging, libraryRoot, file)
+                            : file)
+                    .toList();
+            log.info("Moved download into library: releaseId={}, from={}", task.releaseId(), staging);
+
+            files.stream()
+                    .filter(file -> !task.promotedFiles().contains(file))
+                    .forEach(file -> downloadVerifier.announceReadyTrack(task.chatId(), task.releaseId(), file, 0));
+        } catch (FileAlreadyExistsException e) {
+            log.error("Library already has files of releaseId={}, nothing was moved: {}",
+                    task.releaseId(), e.getMessage());
+            failDownload(task, "у бібліотеці вже є " + Path.of(e.getFile()).getFileName() + ", тож нічого не переношу 🤔");
+            return;
+        } catch (IOException e) {
+            log.error("Failed to move staging directory {} into library, reporting staged files: {}",
+                    staging, e.getMessage(), e);
         }
+
+        downloadContext.removeBatchByReleaseId(task.releaseId());
+        Path directory = StagingDirectories.commonDirectory(files);
+        libraryIndex.refresh(directory);
+        batchCompleteProducer.sendBatchComplete(
+                DownloadBatchCompleteDto.of(
+                        task.chatId(),
+                        task.releaseId(),
+                        directory.toString(),
+                        files.stream().map(Path::toString).toList()
+                )
+        );
+    }
+
+    private record DiskState(long size, long modifiedAt) {
     }
 
     public static class DownloadMonitorTask {
@@ -203,17 +518,28 @@ public class DownloadMonitorService {
         private final int expectedFileCount;
         private final String artist;
         private final String title;
-        private int lastFileCount = -1;
-        private int stableChecks = 0;
+        private final boolean processDriven;
+        private final Path stagingPath;
+        private final long startedAt = System.currentTimeMillis();
+        private final TrackSet trackSet = new TrackSet();
+        private final Set<Path> promotedFiles = ConcurrentHashMap.newKeySet();
+        private final Map<Path, Long> rejectedFiles = new HashMap<>();
+        private boolean finished;
+        private volatile boolean promoting;
+        private volatile DownloadProgress progress;
+        private Map<Path, DiskState> seenOnDisk = Map.of();
+        private final Map<Path, Long> unchangedSince = new HashMap<>();
 
         public DownloadMonitorTask(long chatId, String releaseId, String downloadPath,
-                                    int expectedFileCount, String artist, String title) {
+                                    int expectedFileCount, String artist, String title, boolean processDriven) {
             this.chatId = chatId;
             this.releaseId = releaseId;
             this.downloadPath = downloadPath;
             this.expectedFileCount = expectedFileCount;
             this.artist = artist;
             this.title = title;
+            this.processDriven = processDriven;
+            this.stagingPath = StagingDirectories.resolve(downloadPath, releaseId);
         }
 
         public long chatId() { return chatId; }
@@ -222,15 +548,56 @@ public class DownloadMonitorService {
         public int expectedFileCount() { return expectedFileCount; }
         public String artist() { return artist; }
         public String title() { return title; }
+        public Path stagingPath() { return stagingPath; }
+        public boolean processDriven() { return processDriven; }
+        public long startedAt() { return startedAt; }
+        public DownloadProgress progress() { return progress; }
+        TrackSet trackSet() { return trackSet; }
+        Set<Path> promotedFiles() { return promotedFiles; }
+        boolean finished() { return finished; }
+        boolean promoting() { return promoting; }
+        /**
+         * Records the staged files as the disk shows them now; called from the scheduler thread only.
+         *
+         * @return for how long each file has kept its size and modification time, 0 if it just changed
+         */
+        Map<Path, Long> observe(Map<Path, DiskState> onDisk, long now) {
+            unchangedSince.keySet().retainAll(onDisk.keySet());
+            Map<Path, Long> unchangedFor = new HashMap<>();
+            onDisk.forEach((file, state) -> {
+                if (!state.equals(seenOnDisk.get(file))) {
+                    unchangedSince.put(file, now);
+                }
+                unchangedFor.put(file, now - unchangedSince.get(file));
+            });
+            seenOnDisk = onDisk;
+            return unchangedFor;
+        }
 
-        public boolean isStable(int currentCount) {
-            if (currentCount == lastFileCount && currentCount > 0) {
-                stableChecks++;
-            } else {
-                stableChecks = 0;
-            }
-            lastFileCount = currentCount;
-            return stableChecks >= 2; // Stable for 2 checks (6 seconds)
+        // guarded by the task's monitor, so no track is moved out of staging once completion lists the files
+        void finish() {
+            this.finished = true;
+        }
+
+        // set under the task's monitor while staged tracks are verified and moved into the library
+        void promoting(boolean promoting) {
+            this.promoting = promoting;
+        }
+
+        void promoted(Path file) {
+            promotedFiles.add(file);
+        }
+
+        void reject(Path stagedFile, long modifiedAt) {
+            rejectedFiles.put(stagedFile, modifiedAt);
+        }
+
+        boolean isRejected(Path stagedFile, long modifiedAt) {
+            return Long.valueOf(modifiedAt).equals(rejectedFiles.get(stagedFile));
+        }
+
+        void updateProgress(DownloadProgress progress) {
+            this.progress = progress;
         }
     }
 }
@@ -0,0 +1,141 @@
+package com.sashkomusic.downloadagent.domain;
+
+import com.sashkomusic.downloadagent.domain.model.DownloadBatch;
+import com.sashkomusic.downloadagent.messaging.producer.DownloadCompleteProducer;
+import com.sashkomusic.downloadagent.messaging.producer.DownloadProgressProducer;
+import com.sashkomusic.downloadagent.messaging.producer.dto.DownloadCompleteDto;
+import com.sashkomusic.downloadagent.messaging.producer.dto.DownloadProgressDto;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coalesces the per-file completions of a release into one progress message per window. The first completion
+ * of a window schedules its flush; completions until then only join it. The completion of the last file
+ * flushes right away, so the final progress precedes the batch complete event.
+ * <p>
+ * Totals come from the batch, so only the open window is kept per release. The ETA extrapolates the
+ * throughput since the batch was registered: by bytes when the sizes of its files are known, by files
+ * otherwise. Every file is still reported by its own {@link DownloadCompleteDto} until the consumers of
+ * download-complete have moved to the progress messages; a zero window sends only those.
+ */
+@Slf4j
+@Component
+public class DownloadProgressAggregator {
+
+    private final DownloadCompleteProducer downloadCompleteProducer;
+    private final DownloadProgressProducer downloadProgressProducer;
+    private final Duration window;
+    private final Map<String, Window> windows = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService flusher = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("download-progress-flusher").daemon().factory());
+
+    public DownloadProgressAggregator(DownloadCompleteProducer downloadCompleteProducer,
+                                      DownloadProgressProducer downloadProgressProducer,
+                                      @Value("${download.progress.window:3s}") Duration window) {
+        this.downloadCompleteProducer = downloadCompleteProducer;
+        this.downloadProgressProducer = downloadProgressProducer;
+        this.window = window;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        flusher.shutdownNow();
+        List.copyOf(windows.keySet()).forEach(this::flush);
+    }
+
+    public void fileCompleted(DownloadBatch batch, String remoteFilename, long sizeBytes) {
+        filesCompleted(batch, Map.of(remoteFilename, sizeBytes));
+    }
+
+    /**
+     * Several completed files of one batch, joined to its window in one update.
+     *
+     * @param sizesByRemoteFilename size in bytes of each completed file
+     */
+    public void filesCompleted(DownloadBatch batch, Map<String, Long> sizesByRemoteFilename) {
+        sizesByRemoteFilename.forEach((remoteFilename, sizeBytes) -> downloadCompleteProducer.sendComplete(
+                DownloadCompleteDto.of(batch.getChatId(), remoteFilename, sizeBytes)));
+        if (window.isZero()) {
+            return;
+        }
+
+        String releaseId = batch.getReleaseId();
+        boolean[] opened = new boolean[1];
+        windows.compute(releaseId, (id, current) -> {
+            Window open = current;
+            if (open == null) {
+                open = new Window(batch);
+                opened[0] = true;
+            }
+            for (String remoteFilename : sizesByRemoteFilename.keySet()) {
+                open.files.add(baseName(remoteFilename));
+            }
+            return open;
+        });
+
+        if (batch.isComplete()) {
+            flush(releaseId);
+        } else if (opened[0]) {
+            flusher.schedule(() -> flush(releaseId), window.toMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void flush(String releaseId) {
+        Window closed = windows.remove(releaseId);
+        if (closed == null) {
+            return; // already flushed by the last file of the release
+        }
+
+        DownloadBatch batch = closed.batch;
+        int filesDone = batch.getTotalFiles() - batch.getRemainingCount();
+        long doneBytes = batch.getCompletedExpectedSize();
+        long totalBytes = batch.getTotalExpectedSize();
+        try {
+            downloadProgressProducer.sendProgress(DownloadProgressDto.of(batch.getChatId(), releaseId, closed.files,
+                    filesDone, batch.getTotalFiles(), doneBytes, totalBytes,
+                    eta(batch, filesDone, doneBytes, totalBytes)));
+        } catch (Exception e) {
+            log.error("Failed to send download progress for releaseId={}: {}", releaseId, e.getMessage(), e);
+        }
+    }
+
+    private static long eta(DownloadBatch batch, int filesDone, long doneBytes, long totalBytes) {
+        if (batch.isComplete()) {
+            return 0;
+        }
+        long elapsedMs = System.currentTimeMillis() - batch.getCreatedAt();
+        if (totalBytes > 0 && doneBytes > 0) {
+            return (totalBytes - doneBytes) * elapsedMs / doneBytes / 1000;
+        }
+        if (filesDone > 0) {
+            return (long) batch.getRemainingCount() * elapsedMs / filesDone / 1000;
+        }
+        return -1;
+    }
+
+    private static String baseName(String remoteFilename) {
+        int lastSlash = Math.max(remoteFilename.lastIndexOf('\\'), remoteFilename.lastIndexOf('/'));
+        return remoteFilename.substring(lastSlash + 1);
+    }
+
+    private static final class Window {
+        private final DownloadBatch batch;
+        // only touched inside ConcurrentHashMap.compute, and read after the window was removed
+        private final List<String> files = new ArrayList<>();
+
+        private Window(DownloadBatch batch) {
+            this.batch = batch;
+        }
+    }
+}
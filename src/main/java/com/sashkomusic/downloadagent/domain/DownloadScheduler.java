@@ -0,0 +1,282 @@
+package com.sashkomusic.downloadagent.domain;
+
+import com.sashkomusic.downloadagent.config.DownloadSchedulerConfig;
+import com.sashkomusic.downloadagent.domain.model.DownloadBatch;
+import com.sashkomusic.downloadagent.domain.model.DownloadEngine;
+import com.sashkomusic.downloadagent.messaging.consumer.dto.DownloadFilesTaskDto;
+import com.sashkomusic.downloadagent.messaging.producer.DownloadErrorProducer;
+import com.sashkomusic.downloadagent.messaging.producer.DownloadQueuedProducer;
+import com.sashkomusic.downloadagent.messaging.producer.dto.DownloadErrorDto;
+import com.sashkomusic.downloadagent.messaging.producer.dto.DownloadQueuedDto;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Sits between the download task listener and {@link DownloadService}. Each engine has a fixed number of
+ * slots; a download holds its slot from start until its batch leaves {@link DownloadContext} (completed,
+ * failed or cancelled).
+ * <p>
+ * Waiting downloads are ordered by weighted fair queuing across chats: every download gets a virtual finish
+ * tag of {@code max(virtual time, chat's last tag) + 1 / weight}, and the smallest tag starts next. A chat that
+ * queues twenty releases gets its second one only after every other waiting chat got its first.
+ * <p>
+ * A request for a release that is already queued or downloading (a re-request, or one recovered after a
+ * restart) is answered with an error to its chat instead of starting a second download. Batches recovered
+ * after a restart hold their engine's slots like any running download.
+ */
+@Slf4j
+@Service
+public class DownloadScheduler {
+
+    private static final double DURATION_SMOOTHING = 0.2;
+
+    private final DownloadService downloadService;
+    private final DownloadContext downloadContext;
+    private final DownloadQueuedProducer queuedProducer;
+    private final DownloadErrorProducer errorProducer;
+    private final DownloadSchedulerConfig config;
+
+    private final Map<DownloadEngine, EngineQueue> queues = new EnumMap<>(DownloadEngine.class);
+    private final Executor downloadExecutor;
+    private final AtomicLong sequence = new AtomicLong();
+
+    @Autowired
+    public DownloadScheduler(DownloadService downloadService,
+                             DownloadContext downloadContext,
+                             DownloadQueuedProducer queuedProducer,
+                             DownloadErrorProducer errorProducer,
+                             DownloadSchedulerConfig config) {
+        this(downloadService, downloadContext, queuedProducer, errorProducer, config,
+                Executors.newVirtualThreadPerTaskExecutor());
+    }
+
+    DownloadScheduler(DownloadService downloadService,
+                      DownloadContext downloadContext,
+                      DownloadQueuedProducer queuedProducer,
+                      DownloadErrorProducer errorProducer,
+                      DownloadSchedulerConfig config,
+                      Executor downloadExecutor) {
+        this.downloadService = downloadService;
+        this.downloadContext = downloadContext;
+        this.queuedProducer = queuedProducer;
+        this.errorProducer = errorProducer;
+        this.config = config;
+        this.downloadExecutor = downloadExecutor;
+        for (DownloadEngine engine : DownloadEngine.values()) {
+            queues.put(engine, new EngineQueue(engine, config.slotsFor(engine),
+                    config.getInitialDurationEstimate().toMillis()));
+        }
+    }
+
+    /**
+     * Gives the batches recovered from the journal their slots, so new downloads wait for them.
+     */
+    @PostConstruct
+    void seedRecovered() {
+        for (DownloadBatch batch : downloadContext.activeBatches()) {
+            EngineQueue queue = queues.get(batch.getSource());
+            synchronized (queue) {
+                RunningDownload running = new RunningDownload(batch.getReleaseId());
+                running.initiated = true;
+                queue.running.put(batch.getReleaseId(), running);
+            }
+            log.info("Recovered download holds a slot: engine={}, releaseId={}", queue.engine, batch.getReleaseId());
+        }
+    }
+
+    public void submit(DownloadFilesTaskDto task) {
+        EngineQueue queue = queues.get(task.downloadOption().source());
+        List<QueuedDownload> toStart;
+        List<DownloadQueuedDto> positions;
+
+        synchronized (queue) {
+            if (isActive(queue, task.releaseId())) {
+                log.info("Rejecting duplicate download request: releaseId={} is already queued or downloading",
+                        task.releaseId());
+                errorProducer.sendError(DownloadErrorDto.of(task.chatId(), "цей реліз вже качається ⏳"));
+                return;
+            }
+
+            double startTag = Math.max(queue.virtualTime, queue.lastFinishTagByChat.getOrDefault(task.chatId(), 0.0));
+            double finishTag = startTag + 1.0 / config.weightFor(task.chatId());
+            queue.lastFinishTagByChat.put(task.chatId(), finishTag);
+            queue.pending.add(new QueuedDownload(task, finishTag, sequence.getAndIncrement()));
+
+            toStart = dispatch(queue);
+            positions = toStart.stream().anyMatch(started -> started.task() == task) ? List.of() : positions(queue);
+        }
+
+        toStart.forEach(this::start);
+        positions.stream()
+                .filter(dto -> dto.releaseId().equals(task.releaseId()))
+                .forEach(queuedProducer::sendQueued);
+    }
+
+    /**
+     * Removes a download of the chat that has not started yet.
+     *
+     * @return false if the chat has no such download waiting
+     */
+    public boolean cancelQueued(long chatId, String releaseId) {
+        for (EngineQueue queue : queues.values()) {
+            List<DownloadQueuedDto> positions;
+            synchronized (queue) {
+                if (!queue.pending.removeIf(queued -> queued.task().chatId() == chatId
+                        && queued.task().releaseId().equals(releaseId))) {
+                    continue;
+                }
+                positions = positions(queue);
+            }
+
+            log.info("Cancelled queued download: releaseId={}", releaseId);
+            errorProducer.sendError(DownloadErrorDto.of(chatId, "❌ **скасовано завантаження**"));
+            positions.forEach(queuedProducer::sendQueued);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Frees the slots of downloads whose batch is gone and starts the next waiting ones.
+     */
+    @Scheduled(fixedDelay = 1000)
+    public void releaseFinished() {
+        long now = System.currentTimeMillis();
+
+        for (EngineQueue queue : queues.values()) {
+            List<QueuedDownload> toStart;
+            List<DownloadQueuedDto> positions;
+
+            synchronized (queue) {
+                boolean released = false;
+                Iterator<RunningDownload> iterator = queue.running.values().iterator();
+                while (iterator.hasNext()) {
+                    RunningDownload running = iterator.next();
+                    if (running.initiated && downloadContext.findBatchByReleaseId(running.releaseId) == null) {
+                        iterator.remove();
+                        queue.recordDuration(now - running.startedAt);
+                        released = true;
+                        log.info("Download slot released: engine={}, releaseId={}", queue.engine, running.releaseId);
+                    }
+                }
+                if (!released) {
+                    continue;
+                }
+
+                toStart = dispatch(queue);
+                positions = toStart.isEmpty() ? List.of() : positions(queue);
+            }
+
+            toStart.forEach(this::start);
+            positions.forEach(queuedProducer::sendQueued);
+        }
+    }
+
+    private boolean isActive(EngineQueue queue, String releaseId) {
+        return queue.running.containsKey(releaseId)
+                || downloadContext.findBatchByReleaseId(releaseId) != null
+                || queue.pending.stream().anyMatch(queued -> queued.task().releaseId().equals(releaseId));
+    }
+
+    private List<QueuedDownload> dispatch(EngineQueue queue) {
+        List<QueuedDownload> toStart = new ArrayList<>();
+        while (queue.running.size() < queue.slots && !queue.pending.isEmpty()) {
+            QueuedDownload next = queue.pending.poll();
+            queue.virtualTime = Math.max(queue.virtualTime, next.finishTag());
+            queue.running.put(next.task().releaseId(), new RunningDownload(next.task().releaseId()));
+            toStart.add(next);
+        }
+        // chats whose tags are behind virtual time no longer affect ordering
+        queue.lastFinishTagByChat.values().removeIf(tag -> tag <= queue.virtualTime);
+        return toStart;
+    }
+
+    private List<DownloadQueuedDto> positions(EngineQueue queue) {
+        List<QueuedDownload> ordered = new ArrayList<>(queue.pending);
+        ordered.sort(QueuedDownload.ORDER);
+
+        long now = System.currentTimeMillis();
+        List<DownloadQueuedDto> positions = new ArrayList<>(ordered.size());
+        for (int i = 0; i < ordered.size(); i++) {
+            DownloadFilesTaskDto task = ordered.get(i).task();
+            int position = i + 1;
+            long rounds = (position + queue.slots - 1) / queue.slots;
+            Instant estimatedStart = Instant.ofEpochMilli(now + rounds * (long) queue.averageDurationMs);
+            positions.add(DownloadQueuedDto.of(task.chatId(), task.releaseId(), queue.engine.name(),
+                    position, estimatedStart));
+        }
+        return positions;
+    }
+
+    private void start(QueuedDownload queued) {
+        DownloadFilesTaskDto task = queued.task();
+        EngineQueue queue = queues.get(task.downloadOption().source());
+        log.info("Starting download: engine={}, chatId={}, releaseId={}", queue.engine, task.chatId(), task.releaseId());
+
+        downloadExecutor.execute(() -> {
+            try {
+                downloadService.download(task);
+            } finally {
+                synchronized (queue) {
+                    RunningDownload running = queue.running.get(task.releaseId());
+                    if (running != null) {
+                        running.initiated = true;
+                    }
+                }
+            }
+        });
+    }
+
+    private record QueuedDownload(DownloadFilesTaskDto task, double finishTag, long sequence) {
+        static final Comparator<QueuedDownload> ORDER = Comparator
+                .comparingDouble(QueuedDownload::finishTag)
+                .thenComparingLong(QueuedDownload::sequence);
+    }
+
+    private static final class RunningDownload {
+        private final String releaseId;
+        private final long startedAt = System.currentTimeMillis();
+        // the slot is only checked against DownloadContext once the download has registered its batch
+        private boolean initiated;
+
+        private RunningDownload(String releaseId) {
+            this.releaseId = releaseId;
+        }
+    }
+
+    private static final class EngineQueue {
+        private final DownloadEngine engine;
+        private final int slots;
+        private final PriorityQueue<QueuedDownload> pending = new PriorityQueue<>(QueuedDownload.ORDER);
+        private final Map<String, RunningDownload> running = new HashMap<>();
+        private final Map<Long, Double> lastFinishTagByChat = new HashMap<>();
+        private double virtualTime;
+        private double averageDurationMs;
+
+        private EngineQueue(DownloadEngine engine, int slots, long initialDurationMs) {
+            this.engine = engine;
+            this.slots = slots;
+            this.averageDurationMs = initialDurationMs;
+        }
+
+        private void recordDuration(long durationMs) {
+            averageDurationMs += DURATION_SMOOTHING * (durationMs - averageDurationMs);
+        }
+    }
+}
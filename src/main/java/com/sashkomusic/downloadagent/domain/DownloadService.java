@@ -5,6 +5,8 @@ import com.sashkomusic.downloadagent.domain.model.DownloadBatch;
 import com.sashkomusic.downloadagent.domain.model.DownloadEngine;
 import com.sashkomusic.downloadagent.domain.model.DownloadOption;
 import com.sashkomusic.downloadagent.messaging.consumer.dto.DownloadFilesTaskDto;
+import com.sashkomusic.downloadagent.messaging.producer.DownloadBatchCompleteProducer;
+import com.sashkomusic.downloadagent.messaging.producer.dto.DownloadBatchCompleteDto;
 import com.sashkomusic.downloadagent.messaging.producer.dto.DownloadErrorDto;
 import com.sashkomusic.downloadagent.messaging.producer.DownloadErrorProducer;
 import lombok.RequiredArgsConstructor;
@@ -22,31 +24,46 @@ public class DownloadService {
     private final Map<DownloadEngine, MusicSourcePort> musicSources;
     private final DownloadErrorProducer errorProducer;
     private final DownloadContext downloadContext;
+    private final LibraryIndex libraryIndex;
+    private final DownloadMonitorService downloadMonitorService;
+    private final DownloadBatchCompleteProducer batchCompleteProducer;
 
     public void download(DownloadFilesTaskDto task) {
         try {
             DownloadOption option = task.downloadOption();
 
+            var inLibrary = libraryIndex.find(option, downloadMonitorService.activeDirectories());
+            if (inLibrary.isPresent()) {
+                log.info("Release already in library, skipping download: releaseId={}, directory={}",
+                        task.releaseId(), inLibrary.get().directory());
+                batchCompleteProducer.sendBatchComplete(DownloadBatchCompleteDto.of(task.chatId(), task.releaseId(),
+                        inLibrary.get().directory().toString(), inLibrary.get().files()));
+                return;
+            }
+
             List<String> filenames = option.files().stream()
                     .map(DownloadOption.FileItem::filename)
                     .toList();
 
-            downloadContext.registerBatch(task.chatId(), task.releaseId(), filenames, option.source());
             MusicSourcePort client = musicSources.get(option.source());
             log.info("Using {} client for download", option.source());
+            String downloadPath = client.getDownloadPath(option);
 
+            downloadContext.registerBatch(task.chatId(), task.releaseId(), option.files(), option.source(),
+                    downloadPath);
             String downloadId = client.initiateDownload(option, task.releaseId());
             log.info("Download initiated: downloadId={}, source={}, releaseId={}, files={}",
                     downloadId, option.source(), task.releaseId(), filenames.size());
 
-            String downloadPath = client.getDownloadPath(option);
             client.handleDownloadCompletion(task.chatId(), task.releaseId(), option, downloadPath);
 
         } catch (MusicDownloadException e) {
             log.error("Download failed for chatId={}: {}", task.chatId(), e.getMessage());
+            downloadContext.removeBatchByReleaseId(task.releaseId());
             errorProducer.sendError(DownloadErrorDto.of(task.chatId(), e.getMessage()));
         } catch (Exception e) {
             log.error("Unexpected error during download for chatId={}: {}", task.chatId(), e.getMessage(), e);
+            downloadContext.removeBatchByReleaseId(task.releaseId());
             errorProducer.sendError(DownloadErrorDto.of(task.chatId(), "шось не то, пупупу... " + e.getMessage()));
         }
     }
@@ -0,0 +1,189 @@
+package com.sashkomusic.downloadagent.domain;
+
+import com.sashkomusic.downloadagent.domain.model.DownloadBatch;
+import com.sashkomusic.downloadagent.domain.util.AudioIntegrity;
+import com.sashkomusic.downloadagent.messaging.producer.DownloadBatchCompleteProducer;
+import com.sashkomusic.downloadagent.messaging.producer.DownloadErrorProducer;
+import com.sashkomusic.downloadagent.messaging.producer.DownloadTrackReadyProducer;
+import com.sashkomusic.downloadagent.messaging.producer.dto.DownloadBatchCompleteDto;
+import com.sashkomusic.downloadagent.messaging.producer.dto.DownloadErrorDto;
+import com.sashkomusic.downloadagent.messaging.producer.dto.DownloadTrackReadyDto;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Checks finished downloads before they are reported as complete.
+ */
+@Slf4j
+@Component
+public class DownloadVerifier {
+
+    private static final int MAX_REPORTED_FILES = 5;
+
+    private final DownloadBatchCompleteProducer batchCompleteProducer;
+    private final DownloadErrorProducer errorProducer;
+    private final DownloadTrackReadyProducer trackReadyProducer;
+    private final LibraryIndex libraryIndex;
+    private final ExecutorService executor;
+    private final Timer verificationTime;
+    private final Counter damagedFiles;
+
+    public DownloadVerifier(DownloadBatchCompleteProducer batchCompleteProducer,
+                            DownloadErrorProducer errorProducer,
+                            DownloadTrackReadyProducer trackReadyProducer,
+                            LibraryIndex libraryIndex,
+                            MeterRegistry meterRegistry,
+                            @Value("${download.verification.threads:0}") int threads) {
+        this.batchCompleteProducer = batchCompleteProducer;
+        this.errorProducer = errorProducer;
+        this.trackReadyProducer = trackReadyProducer;
+        this.libraryIndex = libraryIndex;
+        // the frame scans are CPU bound
+        this.executor = Executors.newFixedThreadPool(
+                threads > 0 ? threads : Runtime.getRuntime().availableProcessors(),
+                Thread.ofPlatform().name("download-verifier-", 0).daemon().factory());
+        this.verificationTime = Timer.builder("download.verification.time")
+                .description("Time to verify the files of a finished release")
+                .register(meterRegistry);
+        this.damagedFiles = Counter.builder("download.verification.damaged").register(meterRegistry);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * @param files file -> size the source announced for it, 0 when unknown
+     * @return the damaged files, empty when all of them are intact
+     */
+    public CompletableFuture<List<Damage>> verify(Map<Path, Long> files) {
+        long startedAt = System.nanoTime();
+        List<CompletableFuture<Damage>> checks = files.entrySet().stream()
+                .map(entry -> CompletableFuture.supplyAsync(() -> check(entry.getKey(), entry.getValue()), executor))
+                .toList();
+
+        return CompletableFuture.allOf(checks.toArray(CompletableFuture[]::new))
+                .thenApply(ignored -> {
+                    List<Damage> damages = checks.stream().map(CompletableFuture::join).filter(Objects::nonNull).toList();
+                    verificationTime.record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+                    damagedFiles.increment(damages.size());
+                    return damages;
+                });
+    }
+
+    /**
+     * Checks a single file on the verification threads.
+     *
+     * @return what is wrong with the file, or null when it is intact
+     */
+    public CompletableFuture<Damage> verify(Path file, long expectedSize) {
+        return CompletableFuture.supplyAsync(() -> {
+            Damage damage = check(file, expectedSize);
+            if (damage != null) {
+                damagedFiles.increment();
+            }
+            return damage;
+        }, executor);
+    }
+
+    /**
+     * Announces a track that reached its final path. Its size is checked against the expected one (0 when
+     * unknown); a mismatch is left to the release verification to report.
+     *
+     * @return whether the track was announced
+     */
+    public boolean announceReadyTrack(long chatId, String releaseId, Path file, long expectedSize) {
+        long size;
+        try {
+            size = Files.size(file);
+        } catch (IOException e) {
+            log.warn("Finished track is not readable: releaseId={}, file={}: {}", releaseId, file, e.getMessage());
+            return false;
+        }
+        if (size == 0 || (expectedSize > 0 && size != expectedSize)) {
+            log.warn("Finished track has size {} instead of {}: releaseId={}, file={}",
+                    size, expectedSize, releaseId, file);
+            return false;
+        }
+
+        trackReadyProducer.sendTrackReady(DownloadTrackReadyDto.of(chatId, releaseId, file.toString(), size));
+        return true;
+    }
+
+    /**
+     * Verifies a completed slskd batch, then reports it as complete, or as an error when files are damaged.
+     */
+    public void verifyAndComplete(DownloadBatch batch) {
+        Map<String, Long> expectedSizes = batch.getExpectedLocalSizes();
+        Map<Path, Long> files = batch.getLocalFilenames().stream()
+                .collect(Collectors.toMap(Path::of, file -> expectedSizes.getOrDefault(file, 0L), (a, b) -> a));
+
+        verify(files).whenComplete((damages, error) -> {
+            if (error != null) {
+                log.error("Verification of releaseId={} failed, reporting it complete: {}",
+                        batch.getReleaseId(), error.getMessage(), error);
+            } else if (!damages.isEmpty()) {
+                log.warn("Damaged download: releaseId={}, {}", batch.getReleaseId(), damages);
+                errorProducer.sendError(DownloadErrorDto.of(batch.getChatId(), describe(damages)));
+                return;
+            }
+
+            log.info("Verified {} files of release: {}", files.size(), batch.getReleaseId());
+            libraryIndex.refresh(Path.of(batch.getLocalDirectoryPath()));
+            batchCompleteProducer.sendBatchComplete(DownloadBatchCompleteDto.of(
+                    batch.getChatId(),
+                    batch.getReleaseId(),
+                    batch.getLocalDirectoryPath(),
+                    batch.getLocalFilenames()
+            ));
+        });
+    }
+
+    /**
+     * User-facing summary of the damaged files.
+     */
+    public static String describe(List<Damage> damages) {
+        String names = damages.stream()
+                .limit(MAX_REPORTED_FILES)
+                .map(damage -> damage.file().getFileName().toString())
+                .collect(Collectors.joining(", "));
+        if (damages.size() > MAX_REPORTED_FILES) {
+            names += " і ще " + (damages.size() - MAX_REPORTED_FILES);
+        }
+        return "файли скачались пошкодженими 😢: " + names;
+    }
+
+    private static Damage check(Path file, long expectedSize) {
+        try {
+            String problem = AudioIntegrity.check(file, expectedSize);
+            return problem == null ? null : new Damage(file, problem);
+        } catch (Exception e) {
+            return new Damage(file, "unreadable: " + e.getMessage());
+        }
+    }
+
+    public record Damage(Path file, String problem) {
+        @Override
+        public String toString() {
+            return file.getFileName() + " (" + problem + ")";
+        }
+    }
+}
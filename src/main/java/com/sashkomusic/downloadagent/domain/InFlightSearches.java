@@ -0,0 +1,46 @@
+package com.sashkomusic.downloadagent.domain;
+
+import com.sashkomusic.downloadagent.domain.model.DownloadOption;
+import com.sashkomusic.downloadagent.domain.model.SearchKey;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+
+/**
+ * Single-flight for engine searches: the first caller for a key starts the search on a virtual thread, callers
+ * with the same key while it runs (search tasks and cache revalidations alike) get the same future instead of
+ * starting their own.
+ */
+@Slf4j
+@Component
+public class InFlightSearches {
+
+    private final ExecutorService searchExecutor = Executors.newVirtualThreadPerTaskExecutor();
+    private final ConcurrentHashMap<SearchKey, CompletableFuture<List<DownloadOption>>> searches = new ConcurrentHashMap<>();
+
+    public CompletableFuture<List<DownloadOption>> join(SearchKey key, Supplier<List<DownloadOption>> search) {
+        CompletableFuture<List<DownloadOption>> own = new CompletableFuture<>();
+        CompletableFuture<List<DownloadOption>> inFlight = searches.putIfAbsent(key, own);
+        if (inFlight != null) {
+            log.info("Joining in-flight search: {}", key);
+            return inFlight;
+        }
+
+        searchExecutor.execute(() -> {
+            try {
+                own.complete(search.get());
+            } catch (Throwable e) {
+                own.completeExceptionally(e);
+            } finally {
+                searches.remove(key, own);
+            }
+        });
+        return own;
+    }
+}
@@ -0,0 +1,429 @@
+package com.sashkomusic.downloadagent.domain;
+
+import com.sashkomusic.downloadagent.config.LibraryIndexConfig;
+import com.sashkomusic.downloadagent.domain.model.DownloadOption;
+import com.sashkomusic.downloadagent.domain.util.SearchMatchingUtil;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Index of the release folders (directories holding audio files) under the download roots, persisted between runs.
+ */
+@Slf4j
+@Component
+public class LibraryIndex {
+
+    private static final int FILE_MAGIC = 0x534d4c49;
+    private static final int FILE_VERSION = 1;
+    private static final Pattern DECORATIONS = Pattern.compile("\\([^)]*\\)|\\[[^]]*]|\\{[^}]*}");
+    private static final Pattern DISC_FOLDER = Pattern.compile("(?i)(cd|disc|disk)\\s*\\d+");
+
+    private final LibraryIndexConfig config;
+    private final ExecutorService scanExecutor = Executors.newVirtualThreadPerTaskExecutor();
+    private final AtomicBoolean scanning = new AtomicBoolean();
+
+    private volatile Snapshot snapshot = Snapshot.of(Map.of());
+
+    public LibraryIndex(LibraryIndexConfig config) {
+        this.config = config;
+    }
+
+    public record Match(Path directory, List<String> files) {
+    }
+
+    @PostConstruct
+    void load() {
+        Path file = Path.of(config.getFile());
+        if (!Files.exists(file)) {
+            return;
+        }
+
+        long startedAt = System.currentTimeMillis();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != FILE_MAGIC || in.readInt() != FILE_VERSION) {
+                log.warn("Library index {} has an unknown format, rebuilding it", file);
+                return;
+            }
+            int count = in.readInt();
+            Map<Path, Album> albums = new HashMap<>(count * 2);
+            for (int i = 0; i < count; i++) {
+                Album album = Album.readFrom(in);
+                albums.put(album.directory(), album);
+            }
+            snapshot = Snapshot.of(albums);
+            log.info("Loaded library index: {} releases in {}ms", count, System.currentTimeMillis() - startedAt);
+        } catch (IOException e) {
+            log.warn("Failed to load library index {}, rebuilding it: {}", file, e.getMessage());
+        }
+    }
+
+    /**
+     * Finds a release folder by artist and album title holding at least {@code trackCount} audio files.
+     * A name match alone can be a partial or failed download, so nothing matches when the count is unknown.
+     *
+     * @param excluded directories downloads are still writing into, which are skipped with their subfolders
+     */
+    public Optional<Match> find(String artist, String title, Integer trackCount, Collection<Path> excluded) {
+        String key = key(artist, title);
+        if (key == null || trackCount == null || trackCount <= 0) {
+            return Optional.empty();
+        }
+        Snapshot current = snapshot;
+        return current.byKey().getOrDefault(key, List.of()).stream()
+                .map(current.albums()::get)
+                .filter(album -> album.files().size() >= trackCount)
+                .filter(album -> usable(album, excluded))
+                .findFirst()
+                .map(Album::toMatch);
+    }
+
+    /**
+     * Finds a release folder holding every audio file of the option (same name and size), falling back to
+     * the option's artist and title metadata, with its track count, when its files carry no sizes.
+     *
+     * @param excluded directories downloads are still writing into, which are skipped with their subfolders
+     */
+    public Optional<Match> find(DownloadOption option, Collection<Path> excluded) {
+        List<String> fingerprints = option.files().stream()
+                .filter(file -> file.size() > 0 && DownloadDirectoryWatcher.isAudioFile(file.filename()))
+                .map(file -> fingerprint(baseName(file.filename()), file.size()))
+                .toList();
+
+        if (!fingerprints.isEmpty()) {
+            Snapshot current = snapshot;
+            Map<Path, Integer> hits = new HashMap<>();
+            fingerprints.forEach(fingerprint -> current.byFingerprint().getOrDefault(fingerprint, List.of())
+                    .forEach(directory -> hits.merge(directory, 1, Integer::sum)));
+
+            Optional<Match> match = hits.entrySet().stream()
+                    .filter(entry -> entry.getValue() == fingerprints.size())
+                    .map(entry -> current.albums().get(entry.getKey()))
+                    .filter(album -> usable(album, excluded))
+                    .findFirst()
+                    .map(Album::toMatch);
+            if (match.isPresent()) {
+                return match;
+            }
+        }
+
+        Map<String, String> metadata = option.technicalMetadata();
+        String title = metadata.getOrDefault("title", metadata.get("albumName"));
+        return find(metadata.get("artist"), title, trackCount(option), excluded);
+    }
+
+    private static boolean usable(Album album, Collection<Path> excluded) {
+        return excluded.stream().noneMatch(album.directory()::startsWith) && Files.isDirectory(album.directory());
+    }
+
+    private static Integer trackCount(DownloadOption option) {
+        long audioFiles = option.files().stream()
+                .filter(file -> DownloadDirectoryWatcher.isAudioFile(file.filename()))
+                .count();
+        if (audioFiles > 0) {
+            return (int) audioFiles;
+        }
+        if (!option.files().isEmpty()) { // tracks listed by title, without file names
+            return option.files().size();
+        }
+        try {
+            String trackCount = option.technicalMetadata().get("trackCount");
+            return trackCount == null ? null : Integer.valueOf(trackCount);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Re-reads one release folder right away, e.g. after a download into it completed.
+     */
+    public void refresh(Path directory) {
+        scanExecutor.execute(() -> {
+            synchronized (this) {
+                try {
+                    Map<Path, Album> albums = new HashMap<>(snapshot.albums());
+                    Path normalized = directory.toAbsolutePath().normalize();
+                    readAlbum(normalized).ifPresentOrElse(
+                            album -> albums.put(normalized, album),
+                            () -> albums.remove(normalized));
+                    snapshot = Snapshot.of(albums);
+                    save(albums);
+                } catch (IOException e) {
+                    log.warn("Failed to refresh library folder {}: {}", directory, e.getMessage());
+                }
+            }
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${library.index.rescan-interval:15m}")
+    public void rescan() {
+        // scans can take a while on a big library, so they don't run on the shared scheduler thread
+        if (scanning.compareAndSet(false, true)) {
+            scanExecutor.execute(() -> {
+                try {
+                    scan();
+                } finally {
+                    scanning.set(false);
+                }
+            });
+        }
+    }
+
+    private synchronized void scan() {
+        long startedAt = System.currentTimeMillis();
+        Map<Path, Album> previous = snapshot.albums();
+        Map<Path, Album> scanned = new HashMap<>();
+        int[] read = {0};
+
+        for (String root : config.getRoots()) {
+            if (root == null || root.isBlank()) {
+                continue;
+            }
+            Path rootPath = Path.of(root).toAbsolutePath().normalize();
+            if (!Files.isDirectory(rootPath)) {
+                continue;
+            }
+
+            try {
+                scanDirectory(rootPath, Files.readAttributes(rootPath, BasicFileAttributes.class), previous, scanned, read);
+            } catch (IOException e) {
+                log.warn("Failed to scan library root {}: {}", rootPath, e.getMessage());
+            }
+        }
+
+        boolean changed = read[0] > 0 || scanned.size() != previous.size();
+        snapshot = Snapshot.of(scanned);
+        if (changed) {
+            try {
+                save(scanned);
+            } catch (IOException e) {
+                log.warn("Failed to save library index: {}", e.getMessage());
+            }
+        }
+        log.info("Library scan: {} releases ({} re-read) in {}ms",
+                scanned.size(), read[0], System.currentTimeMillis() - startedAt);
+    }
+
+    /**
+     * A folder whose modification time did not change still holds the files of the previous scan, so only its
+     * other entries are looked at, to find its subfolders.
+     */
+    private static void scanDirectory(Path directory, BasicFileAttributes attributes, Map<Path, Album> previous,
+                                      Map<Path, Album> scanned, int[] read) {
+        long modified = attributes.lastModifiedTime().toMillis();
+        Album known = previous.get(directory);
+        boolean unchanged = known != null && known.modifiedAt() == modified;
+        Set<String> knownFiles = unchanged
+                ? known.files().stream().map(AudioFile::name).collect(Collectors.toSet())
+                : Set.of();
+
+        List<AudioFile> files = new ArrayList<>();
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory)) {
+            for (Path entry : entries) {
+                String name = entry.getFileName().toString();
+                if (knownFiles.contains(name)) {
+                    continue;
+                }
+                BasicFileAttributes entryAttributes;
+                try {
+                    entryAttributes = Files.readAttributes(entry, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+                } catch (IOException e) {
+                    continue;
+                }
+
+                if (entryAttributes.isDirectory()) {
+                    if (!name.startsWith(".")) { // staging and hidden folders
+                        scanDirectory(entry, entryAttributes, previous, scanned, read);
+                    }
+                } else if (!unchanged && entryAttributes.isRegularFile() && DownloadDirectoryWatcher.isAudioFile(name)) {
+                    files.add(new AudioFile(name, entryAttributes.size()));
+                }
+            }
+        } catch (IOException e) {
+            log.debug("Failed to list library folder {}: {}", directory, e.getMessage());
+        }
+
+        if (unchanged) {
+            scanned.put(directory, known);
+        } else if (!files.isEmpty()) {
+            scanned.put(directory, new Album(directory, modified, keys(directory), List.copyOf(files)));
+            read[0]++;
+        }
+    }
+
+    private static Optional<Album> readAlbum(Path directory) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return Optional.empty();
+        }
+        long modified = Files.getLastModifiedTime(directory).toMillis();
+        List<AudioFile> files = new ArrayList<>();
+        try (var entries = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) entries::iterator) {
+                String name = file.getFileName().toString();
+                if (Files.isRegularFile(file) && DownloadDirectoryWatcher.isAudioFile(name)) {
+                    files.add(new AudioFile(name, Files.size(file)));
+                }
+            }
+        }
+        return files.isEmpty()
+                ? Optional.empty()
+                : Optional.of(new Album(directory, modified, keys(directory), List.copyOf(files)));
+    }
+
+    private void save(Map<Path, Album> albums) throws IOException {
+        Path file = Path.of(config.getFile()).toAbsolutePath();
+        Files.createDirectories(file.getParent());
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+            out.writeInt(FILE_MAGIC);
+            out.writeInt(FILE_VERSION);
+            out.writeInt(albums.size());
+            for (Album album : albums.values()) {
+                album.writeTo(out);
+            }
+        }
+        Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * "Artist - Album (2020) [FLAC]" gives artist/album from the folder name, Artist/Album from the nesting;
+     * disc folders (CD1, Disc 2) are named by the folders above them.
+     */
+    static List<String> keys(Path directory) {
+        Path album = directory;
+        if (DISC_FOLDER.matcher(album.getFileName().toString().trim()).matches() && album.getParent() != null) {
+            album = album.getParent();
+        }
+
+        Set<String> keys = new LinkedHashSet<>();
+        String folder = album.getFileName().toString();
+        int dash = folder.indexOf(" - ");
+        if (dash > 0) {
+            addKey(keys, folder.substring(0, dash), folder.substring(dash + 3));
+        }
+        Path artist = album.getParent();
+        if (artist != null && artist.getFileName() != null) {
+            addKey(keys, artist.getFileName().toString(), folder);
+        }
+        return List.copyOf(keys);
+    }
+
+    private static void addKey(Set<String> keys, String artist, String title) {
+        String key = key(artist, title);
+        if (key != null) {
+            keys.add(key);
+        }
+    }
+
+    private static String key(String artist, String title) {
+        String normalizedArtist = SearchMatchingUtil.normalize(strip(artist));
+        String normalizedTitle = SearchMatchingUtil.normalize(strip(title));
+        if (normalizedArtist.isEmpty() || normalizedTitle.isEmpty()) {
+            return null;
+        }
+        return normalizedArtist + "|" + normalizedTitle;
+    }
+
+    private static String strip(String text) {
+        return text == null ? "" : DECORATIONS.matcher(text).replaceAll(" ");
+    }
+
+    private static String fingerprint(String name, long size) {
+        return name.toLowerCase(Locale.ROOT) + "|" + size;
+    }
+
+    private static String baseName(String path) {
+        int lastSlash = Math.max(path.lastIndexOf('\\'), path.lastIndexOf('/'));
+        return lastSlash >= 0 ? path.substring(lastSlash + 1) : path;
+    }
+
+    private record AudioFile(String name, long size) {
+    }
+
+    private record Album(Path directory, long modifiedAt, List<String> keys, List<AudioFile> files) {
+
+        Match toMatch() {
+            return new Match(directory, files.stream()
+                    .map(file -> directory.resolve(file.name()).toString())
+                    .sorted()
+                    .toList());
+        }
+
+        void writeTo(DataOutputStream out) throws IOException {
+            out.writeUTF(directory.toString());
+            out.writeLong(modifiedAt);
+            out.writeInt(keys.size());
+            for (String key : keys) {
+                out.writeUTF(key);
+            }
+            out.writeInt(files.size());
+            for (AudioFile file : files) {
+                out.writeUTF(file.name());
+                out.writeLong(file.size());
+            }
+        }
+
+        static Album readFrom(DataInputStream in) throws IOException {
+            Path directory = Path.of(in.readUTF());
+            long modifiedAt = in.readLong();
+            int keyCount = in.readInt();
+            List<String> keys = new ArrayList<>(keyCount);
+            for (int i = 0; i < keyCount; i++) {
+                keys.add(in.readUTF());
+            }
+            int fileCount = in.readInt();
+            List<AudioFile> files = new ArrayList<>(fileCount);
+            for (int i = 0; i < fileCount; i++) {
+                files.add(new AudioFile(in.readUTF(), in.readLong()));
+            }
+            return new Album(directory, modifiedAt, List.copyOf(keys), List.copyOf(files));
+        }
+    }
+
+    /**
+     * Immutable view of the index, replaced as a whole after every scan.
+     */
+    private record Snapshot(Map<Path, Album> albums,
+                            Map<String, List<Path>> byKey,
+                            Map<String, List<Path>> byFingerprint) {
+
+        static Snapshot of(Map<Path, Album> albums) {
+            Map<String, List<Path>> byKey = new HashMap<>();
+            Map<String, List<Path>> byFingerprint = new HashMap<>();
+            albums.values().forEach(album -> {
+                album.keys().forEach(key -> byKey.computeIfAbsent(key, k -> new ArrayList<>()).add(album.directory()));
+                album.files().forEach(file -> byFingerprint
+                        .computeIfAbsent(fingerprint(file.name(), file.size()), k -> new ArrayList<>(1))
+                        .add(album.directory()));
+            });
+            return new Snapshot(Map.copyOf(albums), byKey, byFingerprint);
+        }
+    }
+}
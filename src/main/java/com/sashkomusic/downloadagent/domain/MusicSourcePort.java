@@ -1,15 +1,30 @@
 package com.sashkomusic.downloadagent.domain;
 
+import com.sashkomusic.downloadagent.domain.exception.MusicDownloadException;
 import com.sashkomusic.downloadagent.domain.model.DownloadOption;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface MusicSourcePort {
 
     boolean autoDownloadEnabled();
 
+    /**
+     * @return the options found, empty when the engine has none
+     * @throws MusicDownloadException when the engine could not be searched
+     */
     List<DownloadOption> search(String artist, String release);
 
+    /**
+     * Same as {@link #search}, but may report the results found so far through {@code onPartialResults}
+     * while the search is still running. Engines that answer in one shot only return the final list.
+     */
+    default List<DownloadOption> searchIncrementally(String artist, String release,
+                                                     Consumer<List<DownloadOption>> onPartialResults) {
+        return search(artist, release);
+    }
+
     String initiateDownload(DownloadOption option, String releaseId);
 
     String getDownloadPath(DownloadOption option);
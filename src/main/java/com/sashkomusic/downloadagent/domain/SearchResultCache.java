@@ -0,0 +1,146 @@
+package com.sashkomusic.downloadagent.domain;
+
+import com.sashkomusic.downloadagent.config.SearchCacheConfig;
+import com.sashkomusic.downloadagent.domain.model.DownloadEngine;
+import com.sashkomusic.downloadagent.domain.model.DownloadOption;
+import com.sashkomusic.downloadagent.domain.model.SearchKey;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Bounded LRU cache of search results per normalized (engine, artist, title), served stale while revalidating.
+ */
+@Slf4j
+@Component
+public class SearchResultCache {
+
+    private final Map<DownloadEngine, MusicSourcePort> musicSources;
+    private final SearchCacheConfig config;
+
+    private final Map<SearchKey, Entry> entries;
+    private final InFlightSearches inFlightSearches;
+    private final Set<SearchKey> revalidating = ConcurrentHashMap.newKeySet();
+
+    private final Counter hits;
+    private final Counter staleHits;
+    private final Counter misses;
+    private final Counter evictions;
+
+    public SearchResultCache(Map<DownloadEngine, MusicSourcePort> musicSources,
+                             SearchCacheConfig config,
+                             MeterRegistry meterRegistry,
+                             InFlightSearches inFlightSearches) {
+        this.musicSources = musicSources;
+        this.config = config;
+        this.inFlightSearches = inFlightSearches;
+        this.hits = requestCounter(meterRegistry, "hit");
+        this.staleHits = requestCounter(meterRegistry, "stale");
+        this.misses = requestCounter(meterRegistry, "miss");
+        this.evictions = Counter.builder("search.cache.evictions").register(meterRegistry);
+        this.entries = new LinkedHashMap<>(64, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<SearchKey, Entry> eldest) {
+                boolean evict = size() > config.getMaxEntries();
+                if (evict) {
+                    evictions.increment();
+                }
+                return evict;
+            }
+        };
+        Gauge.builder("search.cache.size", this, SearchResultCache::size).register(meterRegistry);
+    }
+
+    public Optional<List<DownloadOption>> get(SearchKey key) {
+        long now = System.currentTimeMillis();
+        Entry entry;
+        synchronized (entries) {
+            entry = entries.get(key);
+            if (entry != null && now >= entry.staleUntil()) {
+                entries.remove(key);
+                entry = null;
+            }
+        }
+
+        if (entry == null) {
+            misses.increment();
+            return Optional.empty();
+        }
+
+        if (now < entry.freshUntil()) {
+            hits.increment();
+            log.debug("Search cache hit: {}", key);
+        } else {
+            staleHits.increment();
+            log.debug("Search cache stale hit, revalidating: {}", key);
+            revalidate(key, entry);
+        }
+        return Optional.of(entry.results());
+    }
+
+    public void put(SearchKey key, String artist, String title, List<DownloadOption> results) {
+        long now = System.currentTimeMillis();
+        long freshUntil = now + (results.isEmpty() ? config.getNegativeTtl() : config.ttlFor(key.engine())).toMillis();
+        long staleUntil = results.isEmpty() ? freshUntil : freshUntil + config.getStaleWindow().toMillis();
+
+        synchronized (entries) {
+            entries.put(key, new Entry(List.copyOf(results), artist, title, freshUntil, staleUntil));
+        }
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    /**
+     * Revalidates through {@link InFlightSearches}, so a revalidation and search tasks for the same key share
+     * one engine request.
+     */
+    private void revalidate(SearchKey key, Entry stale) {
+        if (!revalidating.add(key)) {
+            return;
+        }
+        inFlightSearches.join(key, () -> musicSources.get(key.engine()).search(stale.artist(), stale.title()))
+                .whenComplete((results, error) -> {
+                    try {
+                        if (error != null) {
+                            log.warn("Failed to revalidate search cache entry {}: {}", key, error.getMessage());
+                        } else if (results.isEmpty() && !stale.results().isEmpty()) {
+                            log.warn("Revalidation of search cache entry {} found nothing, keeping the stale results",
+                                    key);
+                        } else {
+                            put(key, stale.artist(), stale.title(), results);
+                            log.debug("Revalidated search cache entry: {} ({} results)", key, results.size());
+                        }
+                    } finally {
+                        revalidating.remove(key);
+                    }
+                });
+    }
+
+    private static Counter requestCounter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("search.cache.requests")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    private record Entry(
+            List<DownloadOption> results,
+            String artist,
+            String title,
+            long freshUntil,
+            long staleUntil
+    ) {
+    }
+}
@@ -0,0 +1,120 @@
+package com.sashkomusic.downloadagent.domain;
+
+import com.sashkomusic.downloadagent.domain.util.AudioTags;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.IntStream;
+
+/**
+ * The tracks of a CLI download as told by the tags of its files so far. Tags are read once per file version
+ * (size and modification time), so checking a growing download only reads the headers of files that changed.
+ * <p>
+ * The set is complete when every disc has tracks 1..N, where N is the track total of the disc and the disc
+ * count is known from the tags. Without totals the set is never complete and the caller falls back to timing.
+ */
+@Slf4j
+class TrackSet {
+
+    private final Map<Path, TaggedFile> files = new HashMap<>();
+
+    /**
+     * Reads the tags of new or changed files and forgets the ones that are gone.
+     */
+    synchronized void update(List<String> audioFiles) {
+        Set<Path> present = new HashSet<>();
+        for (String audioFile : audioFiles) {
+            Path path = Path.of(audioFile);
+            present.add(path);
+            try {
+                BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+                long modified = attributes.lastModifiedTime().toMillis();
+                TaggedFile known = files.get(path);
+                if (known == null || known.size() != attributes.size() || known.modified() != modified) {
+                    files.put(path, new TaggedFile(attributes.size(), modified, AudioTags.read(path)));
+                }
+            } catch (IOException e) {
+                log.debug("Failed to read tags of {}: {}", path, e.getMessage());
+                files.remove(path);
+            }
+        }
+        files.keySet().retainAll(present);
+    }
+
+    synchronized boolean isComplete() {
+        if (files.isEmpty()) {
+            return false;
+        }
+
+        int totalDiscs = 0;
+        Map<Integer, Set<Integer>> tracksByDisc = new TreeMap<>();
+        Map<Integer, Integer> totalByDisc = new HashMap<>();
+        for (TaggedFile file : files.values()) {
+            AudioTags.Tags tags = file.tags();
+            if (tags.track() <= 0) {
+                return false;
+            }
+            int disc = Math.max(tags.disc(), 1);
+            totalDiscs = Math.max(totalDiscs, tags.totalDiscs());
+            tracksByDisc.computeIfAbsent(disc, d -> new HashSet<>()).add(tags.track());
+            totalByDisc.merge(disc, tags.totalTracks(), Math::max);
+        }
+
+        boolean numberedDiscs = files.values().stream().anyMatch(file -> file.tags().disc() > 0);
+        if (totalDiscs == 0) {
+            if (numberedDiscs) {
+                return false; // more discs may be on the way
+            }
+            totalDiscs = 1;
+        }
+
+        for (int disc = 1; disc <= totalDiscs; disc++) {
+            Set<Integer> tracks = tracksByDisc.get(disc);
+            int total = totalByDisc.getOrDefault(disc, 0);
+            if (tracks == null || total == 0) {
+                return false;
+            }
+            for (int track = 1; track <= total; track++) {
+                if (!tracks.contains(track)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Tracks missing from the discs seen so far, as disc-track; empty when totals are unknown.
+     */
+    synchronized List<String> missingTracks() {
+        Map<Integer, Set<Integer>> tracksByDisc = new TreeMap<>();
+        Map<Integer, Integer> totalByDisc = new HashMap<>();
+        for (TaggedFile file : files.values()) {
+            int disc = Math.max(file.tags().disc(), 1);
+            tracksByDisc.computeIfAbsent(disc, d -> new HashSet<>()).add(file.tags().track());
+            totalByDisc.merge(disc, file.tags().totalTracks(), Math::max);
+        }
+
+        return tracksByDisc.entrySet().stream()
+                .flatMap(entry -> IntStream.rangeClosed(1, totalByDisc.get(entry.getKey()))
+                        .filter(track -> !entry.getValue().contains(track))
+                        .mapToObj(track -> entry.getKey() + "-" + track))
+                .toList();
+    }
+
+    synchronized long durationMillis() {
+        return files.values().stream().mapToLong(file -> file.tags().durationMillis()).sum();
+    }
+
+    private record TaggedFile(long size, long modified, AudioTags.Tags tags) {
+    }
+}
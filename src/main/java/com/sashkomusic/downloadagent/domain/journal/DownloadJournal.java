@@ -0,0 +1,405 @@
+package com.sashkomusic.downloadagent.domain.journal;
+
+import com.sashkomusic.downloadagent.domain.model.DownloadEngine;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only log of the in-flight downloads, compacted into a snapshot, so a restart does not lose them.
+ */
+@Slf4j
+@Component
+public class DownloadJournal {
+
+    private static final String LOG_FILE = "journal.log";
+    private static final String SNAPSHOT_FILE = "journal.snapshot";
+    private static final int LOG_MAGIC = 0x534d4a4c;
+    private static final int SNAPSHOT_MAGIC = 0x534d4a53;
+    private static final int HEADER_BYTES = Integer.BYTES + Long.BYTES;
+    private static final int FRAME_HEADER_BYTES = 2 * Integer.BYTES;
+    private static final int MAX_RECORD_BYTES = 16 * 1024 * 1024;
+
+    private final Path directory;
+    private final long snapshotThreshold;
+    private final Queue<JournalRecord> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+
+    // only touched by the writer thread, and before it starts or after it stopped
+    private final Map<String, ReleaseState> releases = new LinkedHashMap<>();
+    private FileChannel channel;
+    private long generation;
+
+    private volatile ExecutorService writer;
+    private volatile List<JournaledRelease> recovered = List.of();
+
+    public DownloadJournal(@Value("${download.journal.directory:journal}") Path directory,
+                           @Value("${download.journal.snapshot-threshold:4MB}") DataSize snapshotThreshold) {
+        this.directory = directory;
+        this.snapshotThreshold = snapshotThreshold.toBytes();
+    }
+
+    @PostConstruct
+    void open() throws IOException {
+        long startedAt = System.nanoTime();
+        Files.createDirectories(directory);
+
+        long snapshotGeneration = loadSnapshot();
+        channel = FileChannel.open(directory.resolve(LOG_FILE),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+        int replayed = 0;
+        ByteBuffer buffer = readAll(channel);
+        if (buffer.remaining() >= HEADER_BYTES && buffer.getInt() == LOG_MAGIC && buffer.getLong() > snapshotGeneration) {
+            generation = buffer.getLong(Integer.BYTES);
+            replayed = replay(buffer);
+            channel.truncate(buffer.position());
+            channel.position(buffer.position());
+        } else {
+            // no log yet, or one the snapshot already covers
+            generation = snapshotGeneration + 1;
+            resetLog();
+        }
+
+        recovered = releases.values().stream().map(ReleaseState::toRelease).toList();
+        writer = Executors.newSingleThreadExecutor(Thread.ofPlatform().name("download-journal").daemon().factory());
+        log.info("Download journal recovered {} in-flight releases ({} log records) in {}ms",
+                recovered.size(), replayed, (System.nanoTime() - startedAt) / 1_000_000);
+    }
+
+    @PreDestroy
+    void close() throws IOException, InterruptedException {
+        ExecutorService stopping = writer;
+        if (stopping == null) {
+            return;
+        }
+        stopping.shutdown();
+        if (!stopping.awaitTermination(10, TimeUnit.SECONDS)) {
+            log.warn("Download journal writer did not stop in time");
+        }
+        flush();
+        snapshot();
+        writer = null;
+        channel.close();
+        channel = null;
+    }
+
+    /**
+     * The releases that were in flight when the previous run stopped, as read at startup.
+     */
+    public List<JournaledRelease> recovered() {
+        return recovered;
+    }
+
+    public void batchRegistered(long chatId, String releaseId, DownloadEngine source, List<String> files,
+                                List<Long> sizes, String directory) {
+        append(new JournalRecord.BatchRegistered(chatId, releaseId, source, List.copyOf(files), List.copyOf(sizes),
+                directory));
+    }
+
+    public void fileCompleted(String releaseId, String remoteFilename, String localFilename) {
+        append(new JournalRecord.FileCompleted(releaseId, remoteFilename, localFilename));
+    }
+
+    public void aliasAdded(String releaseId, String remoteFilename, String aliasFilename) {
+        append(new JournalRecord.AliasAdded(releaseId, remoteFilename, aliasFilename));
+    }
+
+    public void transferTracked(String releaseId, JournaledRelease.Transfer transfer) {
+        append(new JournalRecord.TransferTracked(releaseId, transfer));
+    }
+
+    public void monitorStarted(String releaseId, JournaledRelease.Monitor monitor) {
+        append(new JournalRecord.MonitorStarted(releaseId, monitor));
+    }
+
+    public void trackPromoted(String releaseId, String libraryFilename) {
+        append(new JournalRecord.TrackPromoted(releaseId, libraryFilename));
+    }
+
+    /**
+     * The release completed, failed or was cancelled: nothing of it needs to be recovered anymore.
+     */
+    public void released(String releaseId) {
+        append(new JournalRecord.Released(releaseId));
+    }
+
+    @Scheduled(fixedDelayString = "${download.journal.snapshot-interval:5m}")
+    public void periodicSnapshot() {
+        submit(() -> {
+            try {
+                if (channel.position() > HEADER_BYTES) {
+                    snapshot();
+                }
+            } catch (IOException e) {
+                log.error("Failed to snapshot download journal: {}", e.getMessage(), e);
+            }
+        });
+    }
+
+    /**
+     * Queues the record for the writer thread; records queued while it writes go out together in its next write
+     * and are forced to disk with it.
+     */
+    private void append(JournalRecord record) {
+        if (writer == null) {
+            return; // not opened, or already closed
+        }
+        pending.add(record);
+        if (flushScheduled.compareAndSet(false, true)) {
+            submit(this::flush);
+        }
+    }
+
+    private void submit(Runnable task) {
+        ExecutorService current = writer;
+        if (current == null) {
+            return;
+        }
+        try {
+            current.execute(task);
+        } catch (RejectedExecutionException e) {
+            // closing: close() flushes what is still pending
+        }
+    }
+
+    private void flush() {
+        flushScheduled.set(false);
+        try {
+            ByteArrayOutputStream frames = new ByteArrayOutputStream();
+            JournalRecord record;
+            while ((record = pending.poll()) != null) {
+                apply(record);
+                ByteBuffer frame = frame(record);
+                frames.write(frame.array(), 0, frame.limit());
+            }
+            if (frames.size() == 0) {
+                return;
+            }
+
+            ByteBuffer buffer = ByteBuffer.wrap(frames.toByteArray());
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            // one fsync per group: the records batched into this write share it
+            channel.force(false);
+            if (channel.position() >= snapshotThreshold) {
+                snapshot();
+            }
+        } catch (IOException e) {
+            log.error("Failed to append to download journal: {}", e.getMessage(), e);
+        }
+    }
+
+    private void apply(JournalRecord record) {
+        ReleaseState state = releases.get(record.releaseId());
+        switch (record) {
+            case JournalRecord.BatchRegistered batch -> releases.put(batch.releaseId(), new ReleaseState(batch));
+            case JournalRecord.Released released -> releases.remove(released.releaseId());
+            case JournalRecord.AliasAdded alias when state != null ->
+                    state.aliases.put(alias.aliasFilename(), alias.remoteFilename());
+            case JournalRecord.FileCompleted file when state != null -> {
+                state.completedFiles.put(file.remoteFilename(), file.localFilename());
+                state.transfers.remove(state.aliases.getOrDefault(file.remoteFilename(), file.remoteFilename()));
+            }
+            case JournalRecord.TransferTracked tracked when state != null ->
+                    state.transfers.put(tracked.transfer().batchFilename(), tracked.transfer());
+            case JournalRecord.MonitorStarted monitor when state != null -> state.monitor = monitor.monitor();
+            case JournalRecord.TrackPromoted track when state != null -> state.promotedFiles.add(track.libraryFilename());
+            default -> {
+                // the release already finished
+            }
+        }
+    }
+
+    /**
+     * Writes the live state as the new snapshot and starts the next log generation.
+     */
+    private void snapshot() throws IOException {
+        long startedAt = System.nanoTime();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(SNAPSHOT_MAGIC);
+        out.writeLong(generation);
+        for (ReleaseState state : releases.values()) {
+            for (JournalRecord record : state.toRecords()) {
+                ByteBuffer frame = frame(record);
+                out.write(frame.array(), 0, frame.limit());
+            }
+        }
+
+        Path snapshot = directory.resolve(SNAPSHOT_FILE);
+        Path temporary = directory.resolve(SNAPSHOT_FILE + ".tmp");
+        try (FileChannel file = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+            while (buffer.hasRemaining()) {
+                file.write(buffer);
+            }
+            file.force(true);
+        }
+        Files.move(temporary, snapshot, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+
+        generation++;
+        resetLog();
+        log.debug("Download journal snapshot: {} releases, {} bytes, took {}ms",
+                releases.size(), bytes.size(), (System.nanoTime() - startedAt) / 1_000_000);
+    }
+
+    /**
+     * @return the log generation the snapshot covers, 0 if there is none
+     */
+    private long loadSnapshot() throws IOException {
+        Path snapshot = directory.resolve(SNAPSHOT_FILE);
+        if (!Files.exists(snapshot)) {
+            return 0;
+        }
+
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(snapshot));
+        if (buffer.remaining() < HEADER_BYTES || buffer.getInt() != SNAPSHOT_MAGIC) {
+            log.error("Download journal snapshot {} is not readable, ignoring it", snapshot);
+            return 0;
+        }
+        long covered = buffer.getLong();
+        replay(buffer);
+        if (buffer.hasRemaining()) {
+            log.warn("Download journal snapshot {} is truncated, recovered what was readable", snapshot);
+        }
+        return covered;
+    }
+
+    /**
+     * Applies frames from the buffer's position until the end or the first damaged frame, leaving the position
+     * right after the last good one.
+     */
+    private int replay(ByteBuffer buffer) {
+        int count = 0;
+        while (buffer.remaining() >= FRAME_HEADER_BYTES) {
+            int start = buffer.position();
+            int length = buffer.getInt();
+            int checksum = buffer.getInt();
+            if (length <= 0 || length > MAX_RECORD_BYTES || length > buffer.remaining()) {
+                buffer.position(start);
+                break;
+            }
+
+            byte[] payload = new byte[length];
+            buffer.get(payload);
+            CRC32 crc = new CRC32();
+            crc.update(payload);
+            if ((int) crc.getValue() != checksum) {
+                log.warn("Download journal frame at {} fails its checksum, dropping the rest", start);
+                buffer.position(start);
+                break;
+            }
+
+            try {
+                apply(JournalRecord.readFrom(new DataInputStream(new ByteArrayInputStream(payload))));
+                count++;
+            } catch (IOException | IllegalArgumentException e) {
+                log.warn("Download journal frame at {} is not readable, dropping the rest: {}", start, e.getMessage());
+                buffer.position(start);
+                break;
+            }
+        }
+        return count;
+    }
+
+    private void resetLog() throws IOException {
+        channel.truncate(0);
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).putInt(LOG_MAGIC).putLong(generation).flip();
+        channel.write(header, 0);
+        channel.position(HEADER_BYTES);
+        channel.force(false);
+    }
+
+    private static ByteBuffer frame(JournalRecord record) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        record.writeTo(new DataOutputStream(bytes));
+        byte[] payload = bytes.toByteArray();
+
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        return ByteBuffer.allocate(FRAME_HEADER_BYTES + payload.length)
+                .putInt(payload.length)
+                .putInt((int) crc.getValue())
+                .put(payload)
+                .flip();
+    }
+
+    private static ByteBuffer readAll(FileChannel channel) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(Math.toIntExact(channel.size()));
+        while (buffer.hasRemaining() && channel.read(buffer, buffer.position()) > 0) {
+            // keep reading
+        }
+        return buffer.flip();
+    }
+
+    private static final class ReleaseState {
+        private final JournalRecord.BatchRegistered batch;
+        private final Map<String, String> completedFiles = new LinkedHashMap<>();
+        private final Map<String, String> aliases = new LinkedHashMap<>();
+        private final Map<String, JournaledRelease.Transfer> transfers = new LinkedHashMap<>();
+        private final Set<String> promotedFiles = new LinkedHashSet<>();
+        private JournaledRelease.Monitor monitor;
+
+        private ReleaseState(JournalRecord.BatchRegistered batch) {
+            this.batch = batch;
+        }
+
+        private List<JournalRecord> toRecords() {
+            String releaseId = batch.releaseId();
+            List<JournalRecord> records = new ArrayList<>();
+            records.add(batch);
+            aliases.forEach((alias, remote) -> records.add(new JournalRecord.AliasAdded(releaseId, remote, alias)));
+            completedFiles.forEach((remote, local) -> records.add(new JournalRecord.FileCompleted(releaseId, remote, local)));
+            transfers.values().forEach(transfer -> records.add(new JournalRecord.TransferTracked(releaseId, transfer)));
+            if (monitor != null) {
+                records.add(new JournalRecord.MonitorStarted(releaseId, monitor));
+            }
+            promotedFiles.forEach(file -> records.add(new JournalRecord.TrackPromoted(releaseId, file)));
+            return records;
+        }
+
+        private JournaledRelease toRelease() {
+            return new JournaledRelease(batch.chatId(), batch.releaseId(), batch.source(), batch.files(), batch.sizes(),
+                    batch.directory(), copy(completedFiles), copy(aliases), copy(transfers), monitor,
+                    List.copyOf(promotedFiles));
+        }
+
+        private static <V> Map<String, V> copy(Map<String, V> map) {
+            return Collections.unmodifiableMap(new LinkedHashMap<>(map));
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package com.sashkomusic.downloadagent.domain.journal;
+
+import com.sashkomusic.downloadagent.domain.model.DownloadEngine;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * One change to the in-flight downloads, as written to the journal.
+ */
+sealed interface JournalRecord {
+
+    String releaseId();
+
+    void writeTo(DataOutputStream out) throws IOException;
+
+    record BatchRegistered(long chatId, String releaseId, DownloadEngine source, List<String> files, List<Long> sizes,
+                           String directory) implements JournalRecord {
+        static final byte TYPE = 1;
+
+        @Override
+        public void writeTo(DataOutputStream out) throws IOException {
+            out.writeByte(TYPE);
+            out.writeLong(chatId);
+            out.writeUTF(releaseId);
+            out.writeUTF(source.name());
+            out.writeInt(files.size());
+            for (String file : files) {
+                out.writeUTF(file);
+            }
+            out.writeInt(sizes.size());
+            for (long size : sizes) {
+                out.writeLong(size);
+            }
+            writeNullable(out, directory);
+        }
+    }
+
+    record FileCompleted(String releaseId, String remoteFilename, String localFilename) implements JournalRecord {
+        static final byte TYPE = 2;
+
+        @Override
+        public void writeTo(DataOutputStream out) throws IOException {
+            out.writeByte(TYPE);
+            out.writeUTF(releaseId);
+            out.writeUTF(remoteFilename);
+            writeNullable(out, localFilename);
+        }
+    }
+
+    record AliasAdded(String releaseId, String remoteFilename, String aliasFilename) implements JournalRecord {
+        static final byte TYPE = 3;
+
+        @Override
+        public void writeTo(DataOutputStream out) throws IOException {
+            out.writeByte(TYPE);
+            out.writeUTF(releaseId);
+            out.writeUTF(remoteFilename);
+            out.writeUTF(aliasFilename);
+        }
+    }
+
+    record TransferTracked(String releaseId, JournaledRelease.Transfer transfer) implements JournalRecord {
+        static final byte TYPE = 4;
+
+        @Override
+        public void writeTo(DataOutputStream out) throws IOException {
+            out.writeByte(TYPE);
+            out.writeUTF(releaseId);
+            out.writeUTF(transfer.batchFilename());
+            out.writeUTF(transfer.id());
+            out.writeUTF(transfer.username());
+            out.writeUTF(transfer.filename());
+            out.writeLong(transfer.size());
+        }
+    }
+
+    record MonitorStarted(String releaseId, JournaledRelease.Monitor monitor) implements JournalRecord {
+        static final byte TYPE = 5;
+
+        @Override
+        public void writeTo(DataOutputStream out) throws IOException {
+            out.writeByte(TYPE);
+            out.writeUTF(releaseId);
+            out.writeUTF(monitor.downloadPath());
+            out.writeInt(monitor.expectedFileCount());
+            writeNullable(out, monitor.artist());
+            writeNullable(out, monitor.title());
+            out.writeBoolean(monitor.processDriven());
+        }
+    }
+
+    record TrackPromoted(String releaseId, String libraryFilename) implements JournalRecord {
+        static final byte TYPE = 7;
+
+        @Override
+        public void writeTo(DataOutputStream out) throws IOException {
+            out.writeByte(TYPE);
+            out.writeUTF(releaseId);
+            out.writeUTF(libraryFilename);
+        }
+    }
+
+    record Released(String releaseId) implements JournalRecord {
+        static final byte TYPE = 6;
+
+        @Override
+        public void writeTo(DataOutputStream out) throws IOException {
+            out.writeByte(TYPE);
+            out.writeUTF(releaseId);
+        }
+    }
+
+    static JournalRecord readFrom(DataInputStream in) throws IOException {
+        byte type = in.readByte();
+        return switch (type) {
+            case BatchRegistered.TYPE -> {
+                long chatId = in.readLong();
+                String releaseId = in.readUTF();
+                DownloadEngine source = DownloadEngine.valueOf(in.readUTF());
+                int count = in.readInt();
+                List<String> files = new ArrayList<>(count);
+                for (int i = 0; i < count; i++) {
+                    files.add(in.readUTF());
+                }
+                int sizeCount = in.readInt();
+                List<Long> sizes = new ArrayList<>(sizeCount);
+                for (int i = 0; i < sizeCount; i++) {
+                    sizes.add(in.readLong());
+                }
+                yield new BatchRegistered(chatId, releaseId, source, files, sizes, readNullable(in));
+            }
+            case FileCompleted.TYPE -> new FileCompleted(in.readUTF(), in.readUTF(), readNullable(in));
+            case AliasAdded.TYPE -> new AliasAdded(in.readUTF(), in.readUTF(), in.readUTF());
+            case TransferTracked.TYPE -> new TransferTracked(in.readUTF(), new JournaledRelease.Transfer(
+                    in.readUTF(), in.readUTF(), in.readUTF(), in.readUTF(), in.readLong()));
+            case MonitorStarted.TYPE -> new MonitorStarted(in.readUTF(), new JournaledRelease.Monitor(
+                    in.readUTF(), in.readInt(), readNullable(in), readNullable(in), in.readBoolean()));
+            case TrackPromoted.TYPE -> new TrackPromoted(in.readUTF(), in.readUTF());
+            case Released.TYPE -> new Released(in.readUTF());
+            default -> throw new IOException("Unknown journal record type " + type);
+        };
+    }
+
+    // an empty string stands in for null
+    private static void writeNullable(DataOutputStream out, String value) throws IOException {
+        out.writeUTF(value != null ? value : "");
+    }
+
+    private static String readNullable(DataInputStream in) throws IOException {
+        String value = in.readUTF();
+        return value.isEmpty() ? null : value;
+    }
+}
@@ -0,0 +1,38 @@
+package com.sashkomusic.downloadagent.domain.journal;
+
+import com.sashkomusic.downloadagent.domain.model.DownloadEngine;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An in-flight release as recovered from the journal.
+ *
+ * @param directory      the local directory the release is collected in, null when unknown
+ * @param completedFiles remote filename -> local filename of the files already downloaded
+ * @param aliases        alias remote filename -> batch filename it completes
+ * @param transfers      batch filename -> the slskd transfer currently downloading it
+ * @param monitor        the CLI download monitor, or null for slskd releases
+ * @param promotedFiles  library paths of the tracks the monitor moved out of staging ahead of the rest
+ */
+public record JournaledRelease(
+        long chatId,
+        String releaseId,
+        DownloadEngine source,
+        List<String> files,
+        List<Long> sizes,
+        String directory,
+        Map<String, String> completedFiles,
+        Map<String, String> aliases,
+        Map<String, Transfer> transfers,
+        Monitor monitor,
+        List<String> promotedFiles
+) {
+
+    public record Transfer(String batchFilename, String id, String username, String filename, long size) {
+    }
+
+    public record Monitor(String downloadPath, int expectedFileCount, String artist, String title,
+                          boolean processDriven) {
+    }
+}
@@ -4,49 +4,150 @@ import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 
 import java.util.ArrayList;
-import java.util.HashSet;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
+/**
+ * Completion state of one release download. slskd webhooks for the same batch arrive concurrently,
+ * so all state is indexed by file position and updated with atomics instead of shared collections:
+ * a bitset of completed positions, the local filename per position and a remaining-files counter.
+ */
 @Slf4j
-@Getter
 public class DownloadBatch {
+    @Getter
     private final long chatId;
+    @Getter
     private final String releaseId;
+    @Getter
     private final String remoteDirectoryPath;
+    @Getter
     private final List<String> allFiles;
+    @Getter
     private final DownloadEngine source;
+    // where the files of every peer are collected, null when unknown
+    @Getter
+    private final String localDirectory;
 
-    private final List<String> localFilenames;
+    private final long[] expectedSizes;
+    private final Map<String, Integer> positions;
+    // remote filenames of replacement transfers (another peer) -> position of the file they replace
+    private final Map<String, Integer> aliases = new ConcurrentHashMap<>();
+    private final AtomicLongArray completed;
+    private final AtomicReferenceArray<String> localFilenames;
+    private final AtomicInteger remaining;
+    private final AtomicBoolean completionClaimed = new AtomicBoolean();
+    @Getter
+    private final long createdAt = System.currentTimeMillis();
 
-    private final Set<String> remainingFiles;
+    public DownloadBatch(long chatId, String releaseId, String remoteDirectoryPath, List<String> files,
+                         List<Long> sizes, DownloadEngine source) {
+        this(chatId, releaseId, remoteDirectoryPath, files, sizes, source, null);
+    }
 
-    public DownloadBatch(long chatId, String releaseId, String remoteDirectoryPath, List<String> files, DownloadEngine source) {
+    /**
+     * @param sizes          expected size of each file, in the order of {@code files}; 0 or missing when unknown
+     * @param localDirectory the local directory the release is collected in, null when unknown
+     */
+    public DownloadBatch(long chatId, String releaseId, String remoteDirectoryPath, List<String> files,
+                         List<Long> sizes, DownloadEngine source, String localDirectory) {
         this.chatId = chatId;
         this.releaseId = releaseId;
         this.remoteDirectoryPath = remoteDirectoryPath;
         this.allFiles = List.copyOf(files);
         this.source = source;
-        this.localFilenames = new ArrayList<>();
-        this.remainingFiles = new HashSet<>(files);
+        this.localDirectory = localDirectory;
+        this.expectedSizes = new long[allFiles.size()];
+        for (int i = 0; i < Math.min(sizes.size(), expectedSizes.length); i++) {
+            expectedSizes[i] = sizes.get(i);
+        }
+
+        Map<String, Integer> filePositions = new HashMap<>();
+        for (int i = 0; i < allFiles.size(); i++) {
+            filePositions.putIfAbsent(allFiles.get(i), i);
+        }
+        this.positions = Map.copyOf(filePositions);
+        this.completed = new AtomicLongArray((allFiles.size() + 63) / 64);
+        this.localFilenames = new AtomicReferenceArray<>(allFiles.size());
+        this.remaining = new AtomicInteger(positions.size());
         log.debug("Created download batch: releaseId={}, directory={}, source={}, totalFiles={}",
                 releaseId, remoteDirectoryPath, source, files.size());
     }
 
-    public void markFileCompleted(String remoteFilename) {
-        boolean removed = remainingFiles.remove(remoteFilename);
-        if (removed) {
-            log.debug("File completed: {} ({}/{} files remaining)",
-                    remoteFilename, remainingFiles.size(), allFiles.size());
+    /**
+     * Records a finished file.
+     *
+     * @return false if the file is not part of this batch or was already recorded
+     */
+    public boolean markFileCompleted(String remoteFilename, String localFilename) {
+        Integer position = position(remoteFilename);
+        if (position == null || !setCompleted(position)) {
+            return false;
         }
+
+        // local filename is published before the counter, so whoever sees remaining == 0 sees every filename
+        localFilenames.set(position, localFilename);
+        int left = remaining.decrementAndGet();
+        log.debug("File completed: {} ({}/{} files remaining)", remoteFilename, left, allFiles.size());
+        return true;
+    }
+
+    /**
+     * Lets a file of this batch also be completed under another remote filename, e.g. when it is
+     * re-requested from a different peer.
+     *
+     * @return false if {@code remoteFilename} is not part of this batch
+     */
+    public boolean addAlias(String remoteFilename, String aliasFilename) {
+        Integer position = positions.get(remoteFilename);
+        if (position == null) {
+            return false;
+        }
+        aliases.put(aliasFilename, position);
+        return true;
+    }
+
+    /**
+     * Local filename of a completed file, found by its remote filename or one of its aliases; null if the
+     * file is not completed.
+     */
+    public String getLocalFilename(String remoteFilename) {
+        Integer position = position(remoteFilename);
+        return position != null ? localFilenames.get(position) : null;
+    }
+
+    /**
+     * @return the expected size of a file by its remote filename or one of its aliases, 0 when unknown
+     */
+    public long getExpectedSize(String remoteFilename) {
+        Integer position = position(remoteFilename);
+        return position != null ? expectedSizes[position] : 0;
+    }
+
+    public Set<String> getAliasFilenames() {
+        return Set.copyOf(aliases.keySet());
     }
 
-    public void addLocalFilename(String localFilename) {
-        localFilenames.add(localFilename);
+    public boolean isFileCompleted(String remoteFilename) {
+        Integer position = positions.get(remoteFilename);
+        return position != null && (completed.get(position >>> 6) & (1L << position)) != 0;
     }
 
     public boolean isComplete() {
-        return remainingFiles.isEmpty();
+        return remaining.get() == 0;
+    }
+
+    /**
+     * Returns true exactly once, to the caller that should emit the batch-complete event.
+     */
+    public boolean tryClaimCompletion() {
+        return isComplete() && completionClaimed.compareAndSet(false, true);
     }
 
     public int getTotalFiles() {
@@ -54,22 +155,97 @@ public class DownloadBatch {
     }
 
     public int getRemainingCount() {
-        return remainingFiles.size();
+        return remaining.get();
+    }
+
+    /**
+     * @return the sum of the expected sizes of the completed files
+     */
+    public long getCompletedExpectedSize() {
+        long total = 0;
+        for (int i = 0; i < expectedSizes.length; i++) {
+            if ((completed.get(i >>> 6) & (1L << i)) != 0) {
+                total += expectedSizes[i];
+            }
+        }
+        return total;
+    }
+
+    /**
+     * @return the sum of the expected file sizes, 0 when any of them is unknown
+     */
+    public long getTotalExpectedSize() {
+        long total = 0;
+        for (long size : expectedSizes) {
+            if (size <= 0) {
+                return 0;
+            }
+            total += size;
+        }
+        return total;
+    }
+
+    public List<String> getLocalFilenames() {
+        List<String> result = new ArrayList<>(allFiles.size());
+        for (int i = 0; i < localFilenames.length(); i++) {
+            String localFilename = localFilenames.get(i);
+            if (localFilename != null) {
+                result.add(localFilename);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Local filename -> expected size of the completed files whose size is known.
+     */
+    public Map<String, Long> getExpectedLocalSizes() {
+        Map<String, Long> result = new HashMap<>();
+        for (int i = 0; i < localFilenames.length(); i++) {
+            String localFilename = localFilenames.get(i);
+            if (localFilename != null && expectedSizes[i] > 0) {
+                result.put(localFilename, expectedSizes[i]);
+            }
+        }
+        return result;
+    }
+
+    private Integer position(String remoteFilename) {
+        Integer position = positions.get(remoteFilename);
+        return position != null ? position : aliases.get(remoteFilename);
     }
 
+    /**
+     * The directory the release is collected in, or the directory of its first completed file when unknown.
+     */
     public String getLocalDirectoryPath() {
-        if (localFilenames.isEmpty()) {
-            return "";
+        if (localDirectory != null) {
+            return localDirectory;
         }
-        // Extract directory from first local filename
-        String firstLocal = localFilenames.getFirst();
-        if (firstLocal == null) {
+        List<String> local = getLocalFilenames();
+        if (local.isEmpty()) {
             return "";
         }
+        // Extract directory from first local filename
+        String firstLocal = local.getFirst();
         int lastSlash = Math.max(firstLocal.lastIndexOf('\\'), firstLocal.lastIndexOf('/'));
         if (lastSlash > 0) {
             return firstLocal.substring(0, lastSlash);
         }
         return "";
     }
-}
\ No newline at end of file
+
+    private boolean setCompleted(int position) {
+        int word = position >>> 6;
+        long bit = 1L << position;
+        while (true) {
+            long current = completed.get(word);
+            if ((current & bit) != 0) {
+                return false;
+            }
+            if (completed.compareAndSet(word, current, current | bit)) {
+                return true;
+            }
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package com.sashkomusic.downloadagent.domain.model;
+
+/**
+ * Progress reported by a downloader CLI: the track being downloaded (1-based), the number of tracks
+ * if the tool prints it (0 otherwise) and the percentage of the current track.
+ */
+public record DownloadProgress(int track, int totalTracks, double trackPercent) {
+
+    public int completedTracks() {
+        return trackPercent >= 100 ? track : Math.max(track - 1, 0);
+    }
+}
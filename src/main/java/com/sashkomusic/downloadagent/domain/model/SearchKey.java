@@ -0,0 +1,13 @@
+package com.sashkomusic.downloadagent.domain.model;
+
+import com.sashkomusic.downloadagent.domain.util.SearchMatchingUtil;
+
+public record SearchKey(
+        DownloadEngine engine,
+        String artist,
+        String title
+) {
+    public static SearchKey of(DownloadEngine engine, String artist, String title) {
+        return new SearchKey(engine, SearchMatchingUtil.normalize(artist), SearchMatchingUtil.normalize(title));
+    }
+}
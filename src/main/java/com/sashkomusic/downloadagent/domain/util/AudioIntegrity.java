@@ -0,0 +1,378 @@
+package com.sashkomusic.downloadagent.domain.util;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Locale;
+
+/**
+ * Structural checks of downloaded FLAC and MP3 files; other formats only get the size check.
+ */
+public class AudioIntegrity {
+
+    private static final int FLAC_MARKER = 0x664C6143; // "fLaC"
+    private static final int STREAMINFO_LENGTH = 34;
+    private static final int MP3_SYNC_SEARCH_BYTES = 64 * 1024;
+
+    private static final int[] CRC8 = new int[256];
+    private static final int[] CRC16 = new int[256];
+
+    private static final int[][] MPEG_BITRATES = {
+            // MPEG-1 layer I, II, III
+            {0, 32, 64, 96, 128, 160, 192, 224, 256, 288, 320, 352, 384, 416, 448},
+            {0, 32, 48, 56, 64, 80, 96, 112, 128, 160, 192, 224, 256, 320, 384},
+            {0, 32, 40, 48, 56, 64, 80, 96, 112, 128, 160, 192, 224, 256, 320},
+            // MPEG-2 and 2.5 layer I, II and III
+            {0, 32, 48, 56, 64, 80, 96, 112, 128, 144, 160, 176, 192, 224, 256},
+            {0, 8, 16, 24, 32, 40, 48, 56, 64, 80, 96, 112, 128, 144, 160},
+            {0, 8, 16, 24, 32, 40, 48, 56, 64, 80, 96, 112, 128, 144, 160},
+    };
+    private static final int[] MPEG1_SAMPLE_RATES = {44100, 48000, 32000};
+
+    static {
+        for (int i = 0; i < 256; i++) {
+            int crc8 = i;
+            int crc16 = i << 8;
+            for (int bit = 0; bit < 8; bit++) {
+                crc8 = (crc8 & 0x80) != 0 ? (crc8 << 1) ^ 0x07 : crc8 << 1;
+                crc16 = (crc16 & 0x8000) != 0 ? (crc16 << 1) ^ 0x8005 : crc16 << 1;
+            }
+            CRC8[i] = crc8 & 0xFF;
+            CRC16[i] = crc16 & 0xFFFF;
+        }
+    }
+
+    /**
+     * @param expectedSize size the source announced, or 0 when unknown
+     * @return null when the file looks intact, otherwise what is wrong with it
+     */
+    public static String check(Path file, long expectedSize) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (expectedSize > 0 && size != expectedSize) {
+                return "size " + size + " bytes, expected " + expectedSize;
+            }
+            if (size == 0) {
+                return "empty file";
+            }
+            if (size > Integer.MAX_VALUE) {
+                return null; // a single mapping is limited to 2 GB, only the size is checked
+            }
+
+            ByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+            if (name.endsWith(".flac")) {
+                return checkFlac(data);
+            }
+            if (name.endsWith(".mp3")) {
+                return checkMp3(data);
+            }
+            return null;
+        } catch (NoSuchFileException e) {
+            return "missing";
+        }
+    }
+
+    static String checkFlac(ByteBuffer data) {
+        int limit = data.limit();
+        if (limit >= 128 && startsWith(data, limit - 128, "TAG")) {
+            limit -= 128; // ID3v1 appended by some taggers
+        }
+
+        int pos = skipId3v2(data, limit);
+        if (pos + 4 > limit || data.getInt(pos) != FLAC_MARKER) {
+            return "no fLaC marker";
+        }
+        pos += 4;
+
+        long totalSamples = 0;
+        boolean first = true;
+        boolean last = false;
+        while (!last) {
+            if (pos + 4 > limit) {
+                return "truncated metadata";
+            }
+            int header = data.get(pos) & 0xFF;
+            int length = readInt24(data, pos + 1);
+            last = (header & 0x80) != 0;
+            int type = header & 0x7F;
+            pos += 4;
+
+            if (first) {
+                if (type != 0 || length != STREAMINFO_LENGTH || pos + length > limit) {
+                    return "STREAMINFO is not the first metadata block";
+                }
+                int minBlockSize = data.getShort(pos) & 0xFFFF;
+                int maxBlockSize = data.getShort(pos + 2) & 0xFFFF;
+                long packed = data.getLong(pos + 10);
+                if (minBlockSize < 16 || maxBlockSize < minBlockSize || (packed >>> 44) == 0) {
+                    return "invalid STREAMINFO";
+                }
+                totalSamples = packed & 0xFFFFFFFFFL;
+                first = false;
+            } else if (type == 127) {
+                return "invalid metadata block at " + (pos - 4);
+            }
+
+            pos += length;
+            if (pos > limit) {
+                return "truncated metadata";
+            }
+        }
+
+        if (pos == limit) {
+            return totalSamples == 0 ? null : "no audio frames";
+        }
+        if (pos + 2 > limit || (data.get(pos) & 0xFF) != 0xFF || ((data.get(pos + 1) & 0xFF) & 0xFE) != 0xF8) {
+            return "no frame sync after metadata";
+        }
+        int syncSecond = data.get(pos + 1) & 0xFF;
+        int blockSize = flacFrameHeader(data, pos, limit);
+        if (blockSize < 0) {
+            return "invalid frame header at " + pos;
+        }
+
+        // the running CRC-16 of a frame is zero right after its footer, so the next frame starts at the first
+        // valid header found there
+        int frameStart = pos;
+        long samples = 0;
+        int crc = 0;
+        for (int i = pos; i < limit; i++) {
+            crc = ((crc << 8) ^ CRC16[((crc >>> 8) ^ data.get(i)) & 0xFF]) & 0xFFFF;
+
+            int next = i + 1;
+            if (crc == 0 && next + 1 < limit
+                    && (data.get(next) & 0xFF) == 0xFF && (data.get(next + 1) & 0xFF) == syncSecond) {
+                int nextBlockSize = flacFrameHeader(data, next, limit);
+                if (nextBlockSize > 0) {
+                    samples += blockSize;
+                    blockSize = nextBlockSize;
+                    frameStart = next;
+                    crc = 0;
+                }
+            }
+        }
+
+        if (crc != 0) {
+            return "damaged or truncated frame at " + frameStart;
+        }
+        samples += blockSize;
+        if (totalSamples > 0 && samples != totalSamples) {
+            return samples + " samples, STREAMINFO declares " + totalSamples;
+        }
+        return null;
+    }
+
+    /**
+     * @return the block size of the frame starting at {@code pos}, or -1 if there is no valid frame header there
+     */
+    private static int flacFrameHeader(ByteBuffer data, int pos, int limit) {
+        if (pos + 6 > limit) {
+            return -1;
+        }
+        int blockSizeCode = (data.get(pos + 2) & 0xFF) >>> 4;
+        int sampleRateCode = data.get(pos + 2) & 0x0F;
+        int channelsAndDepth = data.get(pos + 3) & 0xFF;
+        if (blockSizeCode == 0 || sampleRateCode == 15
+                || (channelsAndDepth >>> 4) > 10 || ((channelsAndDepth >>> 1) & 7) == 3 || (channelsAndDepth & 1) != 0) {
+            return -1;
+        }
+
+        // frame or sample number, UTF-8 coded
+        int q = pos + 4;
+        int lead = data.get(q++) & 0xFF;
+        int continuation = lead < 0x80 ? 0
+                : (lead & 0xE0) == 0xC0 ? 1
+                : (lead & 0xF0) == 0xE0 ? 2
+                : (lead & 0xF8) == 0xF0 ? 3
+                : (lead & 0xFC) == 0xF8 ? 4
+                : (lead & 0xFE) == 0xFC ? 5
+                : lead == 0xFE ? 6 : -1;
+        if (continuation < 0 || q + continuation + 4 > limit) {
+            return -1;
+        }
+        for (int k = 0; k < continuation; k++) {
+            if ((data.get(q++) & 0xC0) != 0x80) {
+                return -1;
+            }
+        }
+
+        int blockSize = switch (blockSizeCode) {
+            case 1 -> 192;
+            case 2, 3, 4, 5 -> 576 << (blockSizeCode - 2);
+            case 6 -> (data.get(q++) & 0xFF) + 1;
+            case 7 -> {
+                int value = (data.getShort(q) & 0xFFFF) + 1;
+                q += 2;
+                yield value;
+            }
+            default -> 256 << (blockSizeCode - 8);
+        };
+        if (sampleRateCode == 12) {
+            q += 1;
+        } else if (sampleRateCode == 13 || sampleRateCode == 14) {
+            q += 2;
+        }
+        if (q >= limit) {
+            return -1;
+        }
+
+        int crc = 0;
+        for (int i = pos; i < q; i++) {
+            crc = CRC8[(crc ^ data.get(i)) & 0xFF];
+        }
+        return crc == (data.get(q) & 0xFF) ? blockSize : -1;
+    }
+
+    static String checkMp3(ByteBuffer data) {
+        int limit = data.limit();
+        if (limit >= 128 && startsWith(data, limit - 128, "TAG")) {
+            limit -= 128;
+        }
+        if (limit >= 32 && startsWith(data, limit - 32, "APETAGEX")) {
+            int tagSize = Integer.reverseBytes(data.getInt(limit - 32 + 12));
+            boolean hasHeader = (Integer.reverseBytes(data.getInt(limit - 32 + 20)) & 0x80000000) != 0;
+            limit = Math.max(0, limit - tagSize - (hasHeader ? 32 : 0));
+        }
+        if (limit >= 15 && startsWith(data, limit - 9, "LYRICS200")) {
+            limit = Math.max(0, limit - 15 - parseDigits(data, limit - 15, 6));
+        }
+
+        int start = skipId3v2(data, limit);
+        int pos = findMp3Frame(data, start, Math.min(limit, start + MP3_SYNC_SEARCH_BYTES), limit);
+        if (pos < 0) {
+            return "no MPEG frame sync";
+        }
+
+        long frames = 0;
+        long outOfSync = 0;
+        while (pos < limit) {
+            int length = mp3FrameLength(data, pos, limit);
+            if (length <= 0) {
+                int next = findMp3Frame(data, pos + 1, limit, limit);
+                int resumeAt = next < 0 ? limit : next;
+                outOfSync += resumeAt - pos;
+                pos = resumeAt;
+                continue;
+            }
+            if (pos + length > limit) {
+                return "truncated frame at " + pos;
+            }
+            frames++;
+            pos += length;
+        }
+
+        if (frames == 0) {
+            return "no MPEG frames";
+        }
+        if (outOfSync * 100 > limit - start) {
+            return outOfSync + " bytes out of frame sync";
+        }
+        return null;
+    }
+
+    /**
+     * First position in [from, to) where a frame header is followed by another one (or the end of the audio).
+     */
+    private static int findMp3Frame(ByteBuffer data, int from, int to, int limit) {
+        for (int pos = from; pos < to - 1; pos++) {
+            if ((data.get(pos) & 0xFF) != 0xFF || (data.get(pos + 1) & 0xE0) != 0xE0) {
+                continue;
+            }
+            int length = mp3FrameLength(data, pos, limit);
+            if (length > 0 && (pos + length == limit || mp3FrameLength(data, pos + length, limit) > 0)) {
+                return pos;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return the length of the frame starting at {@code pos}, or -1 if there is no valid frame header there
+     */
+    private static int mp3FrameLength(ByteBuffer data, int pos, int limit) {
+        if (pos + 4 > limit) {
+            return -1;
+        }
+        int header = data.getInt(pos);
+        int bitrate = mpegBitrate(header);
+        if (bitrate <= 0) {
+            return -1;
+        }
+
+        int version = (header >>> 19) & 3;
+        int layer = (header >>> 17) & 3;
+        int sampleRate = mpegSampleRate(header);
+        int padding = (header >>> 9) & 1;
+        return switch (layer) {
+            case 3 -> (12 * bitrate / sampleRate + padding) * 4;
+            case 2 -> 144 * bitrate / sampleRate + padding;
+            default -> (version == 3 ? 144 : 72) * bitrate / sampleRate + padding;
+        };
+    }
+
+    /**
+     * Bitrate in bits per second of an MPEG audio frame header, or -1 if the header is not valid.
+     * Free format frames (bitrate index 0) count as invalid.
+     */
+    static int mpegBitrate(int header) {
+        int version = (header >>> 19) & 3;      // 0 = MPEG-2.5, 1 = reserved, 2 = MPEG-2, 3 = MPEG-1
+        int layer = (header >>> 17) & 3;        // 1 = III, 2 = II, 3 = I
+        int bitrateIndex = (header >>> 12) & 0xF;
+        int sampleRateIndex = (header >>> 10) & 3;
+        if ((header >>> 21) != 0x7FF || version == 1 || layer == 0
+                || bitrateIndex == 0 || bitrateIndex == 15 || sampleRateIndex == 3) {
+            return -1;
+        }
+        return MPEG_BITRATES[(version == 3 ? 0 : 3) + 3 - layer][bitrateIndex] * 1000;
+    }
+
+    /**
+     * Sample rate of an MPEG audio frame header that {@link #mpegBitrate} accepted.
+     */
+    static int mpegSampleRate(int header) {
+        int version = (header >>> 19) & 3;
+        return MPEG1_SAMPLE_RATES[(header >>> 10) & 3] >> (version == 3 ? 0 : version == 2 ? 1 : 2);
+    }
+
+    private static int skipId3v2(ByteBuffer data, int limit) {
+        if (limit < 10 || !startsWith(data, 0, "ID3")) {
+            return 0;
+        }
+        int size = ((data.get(6) & 0x7F) << 21) | ((data.get(7) & 0x7F) << 14)
+                | ((data.get(8) & 0x7F) << 7) | (data.get(9) & 0x7F);
+        boolean footer = (data.get(5) & 0x10) != 0;
+        return Math.min(limit, 10 + size + (footer ? 10 : 0));
+    }
+
+    private static boolean startsWith(ByteBuffer data, int pos, String ascii) {
+        if (pos < 0 || pos + ascii.length() > data.limit()) {
+            return false;
+        }
+        for (int i = 0; i < ascii.length(); i++) {
+            if (data.get(pos + i) != ascii.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int readInt24(ByteBuffer data, int pos) {
+        return ((data.get(pos) & 0xFF) << 16) | ((data.get(pos + 1) & 0xFF) << 8) | (data.get(pos + 2) & 0xFF);
+    }
+
+    private static int parseDigits(ByteBuffer data, int pos, int count) {
+        int value = 0;
+        for (int i = 0; i < count; i++) {
+            int digit = data.get(pos + i) - '0';
+            if (digit < 0 || digit > 9) {
+                return 0;
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+}
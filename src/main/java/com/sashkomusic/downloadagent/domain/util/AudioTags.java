@@ -0,0 +1,342 @@
+package com.sashkomusic.downloadagent.domain.util;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Locale;
+
+/**
+ * Reads track numbering and duration from the tags of an audio file without reading its audio: FLAC metadata
+ * blocks (STREAMINFO and Vorbis comments), ID3v2 frames (with the MPEG frame after them for the duration) and
+ * MP4 atoms. Only the headers are read, with positional reads; blocks, frames and atoms that are not needed,
+ * cover art included, are skipped by their length.
+ */
+public class AudioTags {
+
+    private static final int FLAC_MARKER = 0x664C6143; // "fLaC"
+    private static final int MAX_COMMENT_BLOCK = 1024 * 1024;
+    private static final int MAX_TEXT_FRAME = 256;
+    private static final int MAX_ATOM_DEPTH = 8;
+
+    /**
+     * Numbers are 0 and the duration is 0 when the file does not carry them.
+     */
+    public record Tags(int track, int totalTracks, int disc, int totalDiscs, long durationMillis) {
+
+        static final Tags NONE = new Tags(0, 0, 0, 0, 0);
+    }
+
+    public static Tags read(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            Tags tags = Tags.NONE;
+            String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+            if (name.endsWith(".m4a") || name.endsWith(".mp4") || name.endsWith(".alac") || name.endsWith(".aac")) {
+                return readMp4(channel, 0, channel.size(), tags, 0);
+            }
+
+            long pos = 0;
+            ByteBuffer header = read(channel, 0, 10);
+            if (header.remaining() == 10 && startsWith(header, "ID3")) {
+                int size = syncsafe(header, 6);
+                tags = readId3v2(channel, header, size);
+                pos = 10 + size + ((header.get(5) & 0x10) != 0 ? 10 : 0);
+            }
+
+            ByteBuffer marker = read(channel, pos, 4);
+            if (marker.remaining() == 4 && marker.getInt(0) == FLAC_MARKER) {
+                return readFlac(channel, pos + 4, tags);
+            }
+            if (name.endsWith(".mp3") && tags.durationMillis() == 0) {
+                return withDuration(tags, mp3Duration(channel, pos));
+            }
+            return tags;
+        }
+    }
+
+    private static Tags readFlac(FileChannel channel, long pos, Tags tags) throws IOException {
+        boolean last = false;
+        while (!last) {
+            ByteBuffer header = read(channel, pos, 4);
+            if (header.remaining() < 4) {
+                return tags;
+            }
+            int type = header.get(0) & 0x7F;
+            int length = ((header.get(1) & 0xFF) << 16) | ((header.get(2) & 0xFF) << 8) | (header.get(3) & 0xFF);
+            last = (header.get(0) & 0x80) != 0;
+            pos += 4;
+
+            if (type == 0 && length >= 18) {
+                ByteBuffer streamInfo = read(channel, pos + 10, 8);
+                long packed = streamInfo.remaining() == 8 ? streamInfo.getLong(0) : 0;
+                long sampleRate = packed >>> 44;
+                long totalSamples = packed & 0xFFFFFFFFFL;
+                if (sampleRate > 0) {
+                    tags = withDuration(tags, totalSamples * 1000 / sampleRate);
+                }
+            } else if (type == 4 && length <= MAX_COMMENT_BLOCK) {
+                tags = readVorbisComments(read(channel, pos, length).order(ByteOrder.LITTLE_ENDIAN), tags);
+            }
+            pos += length;
+        }
+        return tags;
+    }
+
+    private static Tags readVorbisComments(ByteBuffer block, Tags tags) {
+        int vendorLength = block.remaining() >= 8 ? block.getInt() : -1;
+        if (vendorLength < 0 || vendorLength > block.remaining() - 4) {
+            return tags;
+        }
+        block.position(block.position() + vendorLength);
+        int count = block.getInt();
+        for (int i = 0; i < count && block.remaining() >= 4; i++) {
+            int length = block.getInt();
+            if (length < 0 || length > block.remaining()) {
+                break;
+            }
+            byte[] bytes = new byte[length];
+            block.get(bytes);
+            String comment = new String(bytes, StandardCharsets.UTF_8);
+            int eq = comment.indexOf('=');
+            if (eq > 0) {
+                tags = apply(tags, comment.substring(0, eq).toUpperCase(Locale.ROOT), comment.substring(eq + 1));
+            }
+        }
+        return tags;
+    }
+
+    private static Tags apply(Tags tags, String key, String value) {
+        return switch (key) {
+            case "TRACKNUMBER", "TRCK", "TRK" -> {
+                int[] numbers = parseNumbers(value);
+                yield new Tags(numbers[0], numbers[1] > 0 ? numbers[1] : tags.totalTracks(),
+                        tags.disc(), tags.totalDiscs(), tags.durationMillis());
+            }
+            case "TRACKTOTAL", "TOTALTRACKS" -> new Tags(tags.track(), parseNumbers(value)[0],
+                    tags.disc(), tags.totalDiscs(), tags.durationMillis());
+            case "DISCNUMBER", "TPOS", "TPA" -> {
+                int[] numbers = parseNumbers(value);
+                yield new Tags(tags.track(), tags.totalTracks(),
+                        numbers[0], numbers[1] > 0 ? numbers[1] : tags.totalDiscs(), tags.durationMillis());
+            }
+            case "DISCTOTAL", "TOTALDISCS" -> new Tags(tags.track(), tags.totalTracks(),
+                    tags.disc(), parseNumbers(value)[0], tags.durationMillis());
+            case "TLEN", "TLE" -> withDuration(tags, parseNumbers(value)[0]);
+            default -> tags;
+        };
+    }
+
+    /**
+     * Reads the text frames with numbering and length. ID3v2.2 frames have 3 character ids and 3 byte sizes;
+     * v2.4 sizes are syncsafe.
+     */
+    private static Tags readId3v2(FileChannel channel, ByteBuffer header, int size) throws IOException {
+        int version = header.get(3);
+        int idLength = version == 2 ? 3 : 4;
+        int headerLength = version == 2 ? 6 : 10;
+        long pos = 10;
+        long end = 10L + size;
+
+        if (version >= 3 && (header.get(5) & 0x40) != 0) {
+            ByteBuffer extended = read(channel, pos, 4);
+            if (extended.remaining() < 4) {
+                return Tags.NONE;
+            }
+            pos += version == 4 ? syncsafe(extended, 0) : extended.getInt(0) + 4;
+        }
+
+        Tags tags = Tags.NONE;
+        while (pos + headerLength <= end) {
+            ByteBuffer frame = read(channel, pos, headerLength);
+            if (frame.remaining() < headerLength || frame.get(0) == 0) {
+                break; // padding
+            }
+            String id = new String(bytes(frame, 0, idLength), StandardCharsets.ISO_8859_1);
+            int frameSize = switch (version) {
+                case 2 -> ((frame.get(3) & 0xFF) << 16) | ((frame.get(4) & 0xFF) << 8) | (frame.get(5) & 0xFF);
+                case 4 -> syncsafe(frame, 4);
+                default -> frame.getInt(4);
+            };
+            if (frameSize <= 0 || pos + headerLength + frameSize > end) {
+                break;
+            }
+
+            if (id.equals("TRCK") || id.equals("TPOS") || id.equals("TLEN")
+                    || id.equals("TRK") || id.equals("TPA") || id.equals("TLE")) {
+                ByteBuffer body = read(channel, pos + headerLength, Math.min(frameSize, MAX_TEXT_FRAME));
+                tags = apply(tags, id, decodeText(body));
+            }
+            pos += headerLength + frameSize;
+        }
+        return tags;
+    }
+
+    private static String decodeText(ByteBuffer body) {
+        if (!body.hasRemaining()) {
+            return "";
+        }
+        Charset charset = switch (body.get(0)) {
+            case 1 -> StandardCharsets.UTF_16;
+            case 2 -> StandardCharsets.UTF_16BE;
+            case 3 -> StandardCharsets.UTF_8;
+            default -> StandardCharsets.ISO_8859_1;
+        };
+        return new String(bytes(body, 1, body.remaining() - 1), charset).replace("\0", "").trim();
+    }
+
+    /**
+     * Duration from the Xing/Info header of the first frame when there is one (VBR files), otherwise from the
+     * bitrate of the first frame and the size of the audio.
+     */
+    private static long mp3Duration(FileChannel channel, long audioStart) throws IOException {
+        ByteBuffer frame = read(channel, audioStart, 64);
+        int pos = 0;
+        while (pos + 4 <= frame.remaining() && AudioIntegrity.mpegBitrate(frame.getInt(pos)) <= 0) {
+            pos++; // junk between the tag and the first frame
+        }
+        if (pos + 4 > frame.remaining()) {
+            return 0;
+        }
+
+        int header = frame.getInt(pos);
+        int bitrate = AudioIntegrity.mpegBitrate(header);
+        int sampleRate = AudioIntegrity.mpegSampleRate(header);
+        boolean mpeg1 = ((header >>> 19) & 3) == 3;
+        boolean mono = ((header >>> 6) & 3) == 3;
+        int layer = (header >>> 17) & 3;
+        int samplesPerFrame = layer == 3 ? 384 : layer == 1 && !mpeg1 ? 576 : 1152;
+
+        int xingOffset = pos + 4 + (mpeg1 ? (mono ? 17 : 32) : (mono ? 9 : 17));
+        if (xingOffset + 12 <= frame.remaining()) {
+            String id = new String(bytes(frame, xingOffset, 4), StandardCharsets.ISO_8859_1);
+            if ((id.equals("Xing") || id.equals("Info")) && (frame.getInt(xingOffset + 4) & 1) != 0) {
+                long frames = frame.getInt(xingOffset + 8) & 0xFFFFFFFFL;
+                return frames * samplesPerFrame * 1000 / sampleRate;
+            }
+        }
+        return (channel.size() - audioStart - pos) * 8000 / bitrate;
+    }
+
+    private static Tags readMp4(FileChannel channel, long pos, long end, Tags tags, int depth) throws IOException {
+        while (pos + 8 <= end && depth < MAX_ATOM_DEPTH) {
+            ByteBuffer header = read(channel, pos, 16);
+            if (header.remaining() < 8) {
+                break;
+            }
+            long size = header.getInt(0) & 0xFFFFFFFFL;
+            String type = new String(bytes(header, 4, 4), StandardCharsets.ISO_8859_1);
+            int headerLength = 8;
+            if (size == 1 && header.remaining() == 16) {
+                size = header.getLong(8);
+                headerLength = 16;
+            } else if (size == 0) {
+                size = end - pos;
+            }
+            if (size < headerLength || pos + size > end) {
+                break;
+            }
+
+            long bodyStart = pos + headerLength;
+            long atomEnd = pos + size;
+            switch (type) {
+                case "moov", "udta", "ilst" -> tags = readMp4(channel, bodyStart, atomEnd, tags, depth + 1);
+                case "meta" -> {
+                    // a full box in iTunes files; QuickTime files put the handler right after the header
+                    ByteBuffer next = read(channel, bodyStart + 4, 4);
+                    boolean fullBox = !(next.remaining() == 4 && startsWith(next, "hdlr"));
+                    tags = readMp4(channel, fullBox ? bodyStart + 4 : bodyStart, atomEnd, tags, depth + 1);
+                }
+                case "mvhd" -> {
+                    ByteBuffer body = read(channel, bodyStart, 32);
+                    if (body.remaining() < 32) {
+                        break;
+                    }
+                    boolean version1 = body.get(0) == 1;
+                    long timescale = body.getInt(version1 ? 20 : 12) & 0xFFFFFFFFL;
+                    long duration = version1 ? body.getLong(24) : body.getInt(16) & 0xFFFFFFFFL;
+                    if (timescale > 0) {
+                        tags = withDuration(tags, duration * 1000 / timescale);
+                    }
+                }
+                case "trkn", "disk" -> {
+                    // data atom: size, "data", type, locale, then reserved, number, total as 16 bit values
+                    ByteBuffer data = read(channel, bodyStart, 22);
+                    if (data.remaining() >= 22 && startsWith(data.duplicate().position(4), "data")) {
+                        int number = data.getShort(18) & 0xFFFF;
+                        int total = data.getShort(20) & 0xFFFF;
+                        tags = type.equals("trkn")
+                                ? new Tags(number, total, tags.disc(), tags.totalDiscs(), tags.durationMillis())
+                                : new Tags(tags.track(), tags.totalTracks(), number, total, tags.durationMillis());
+                    }
+                }
+                default -> {
+                    // audio data and everything else is skipped
+                }
+            }
+            pos = atomEnd;
+        }
+        return tags;
+    }
+
+    private static Tags withDuration(Tags tags, long durationMillis) {
+        return new Tags(tags.track(), tags.totalTracks(), tags.disc(), tags.totalDiscs(), durationMillis);
+    }
+
+    /**
+     * "3", "3/12" or "03 of 12" as {number, total}, 0 for what is missing.
+     */
+    private static int[] parseNumbers(String value) {
+        int[] numbers = new int[2];
+        int index = 0;
+        boolean inNumber = false;
+        for (int i = 0; i < value.length() && index < 2; i++) {
+            char c = value.charAt(i);
+            if (c >= '0' && c <= '9') {
+                numbers[index] = Math.min(numbers[index] * 10 + (c - '0'), 100_000);
+                inNumber = true;
+            } else if (inNumber) {
+                index++;
+                inNumber = false;
+            }
+        }
+        return numbers;
+    }
+
+    private static ByteBuffer read(FileChannel channel, long pos, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, pos + buffer.position()) < 0) {
+                break;
+            }
+        }
+        return buffer.flip();
+    }
+
+    private static byte[] bytes(ByteBuffer buffer, int offset, int length) {
+        byte[] bytes = new byte[Math.max(0, Math.min(length, buffer.limit() - offset))];
+        buffer.get(offset, bytes);
+        return bytes;
+    }
+
+    private static boolean startsWith(ByteBuffer buffer, String ascii) {
+        int base = buffer.position();
+        if (buffer.limit() - base < ascii.length()) {
+            return false;
+        }
+        for (int i = 0; i < ascii.length(); i++) {
+            if (buffer.get(base + i) != ascii.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int syncsafe(ByteBuffer buffer, int offset) {
+        return ((buffer.get(offset) & 0x7F) << 21) | ((buffer.get(offset + 1) & 0x7F) << 14)
+                | ((buffer.get(offset + 2) & 0x7F) << 7) | (buffer.get(offset + 3) & 0x7F);
+    }
+}
@@ -17,6 +17,19 @@ public class SearchMatchingUtil {
         return artistMatches && titleMatches;
     }
 
+    /**
+     * Normalizes a query part for use as a lookup key: lowercase words separated by single spaces,
+     * punctuation dropped. "Nthng  - Hypnotherapy!" and "nthng hypnotherapy" give the same key.
+     */
+    public static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        return String.join(" ", Arrays.stream(text.toLowerCase(Locale.ROOT).split("[\\s\\p{Punct}]+"))
+                .filter(word -> !word.isEmpty())
+                .toList());
+    }
+
     private static boolean matchesAllWords(String search, String result) {
         if (search == null || search.isBlank() || result == null || result.isBlank()) {
             return false;
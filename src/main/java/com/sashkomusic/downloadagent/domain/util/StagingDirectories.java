@@ -0,0 +1,139 @@
+package com.sashkomusic.downloadagent.domain.util;
+
+import java.io.IOException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Per-download staging directories for the CLI engines. Each download writes into
+ * {@code <library root>/.staging/<releaseId>}; keeping staging inside the library root puts it on the
+ * same file system, so promoting the finished download is a rename rather than a copy.
+ */
+public class StagingDirectories {
+
+    public static final String STAGING_DIR = ".staging";
+
+    public static Path resolve(String libraryRoot, String releaseId) {
+        return Path.of(libraryRoot, STAGING_DIR, releaseId.replaceAll("[^A-Za-z0-9._-]", "_"));
+    }
+
+    /**
+     * Where a staged path ends up after {@link #promote}.
+     */
+    public static Path libraryPath(Path staging, Path libraryRoot, Path staged) {
+        return libraryRoot.resolve(staging.relativize(staged));
+    }
+
+    /**
+     * Moves everything from the staging directory into the library root with atomic renames and removes
+     * the staging directory. Folders that already exist in the library (an artist folder, for example)
+     * are merged entry by entry instead of replaced. Nothing is ever replaced: if any staged file is already
+     * in the library, nothing is moved.
+     *
+     * @throws FileAlreadyExistsException naming the first library file in the way
+     */
+    public static void promote(Path staging, Path libraryRoot) throws IOException {
+        try (Stream<Path> paths = Files.walk(staging)) {
+            for (Path staged : paths.filter(path -> !Files.isDirectory(path)).toList()) {
+                requireAbsent(libraryPath(staging, libraryRoot, staged));
+            }
+        }
+        try (Stream<Path> entries = Files.list(staging)) {
+            for (Path entry : entries.toList()) {
+                moveInto(entry, libraryRoot);
+            }
+        }
+        Files.deleteIfExists(staging);
+    }
+
+    /**
+     * Moves a single finished file into the library ahead of the rest of its download, creating its folders
+     * there; {@link #promote} merges the rest into them later.
+     *
+     * @return the file's library path
+     * @throws FileAlreadyExistsException if the library already has a file there
+     */
+    public static Path promoteFile(Path staging, Path libraryRoot, Path staged) throws IOException {
+        Path target = libraryPath(staging, libraryRoot, staged);
+        requireAbsent(target);
+        Files.createDirectories(target.getParent());
+        Files.move(staged, target, StandardCopyOption.ATOMIC_MOVE);
+        return target;
+    }
+
+    /**
+     * Deletes files promoted by {@link #promoteFile} together with the folders they leave empty.
+     */
+    public static void deletePromoted(Path libraryRoot, Collection<Path> files) throws IOException {
+        for (Path file : files) {
+            Files.deleteIfExists(file);
+            for (Path dir = file.getParent(); dir != null && dir.startsWith(libraryRoot) && !dir.equals(libraryRoot);
+                 dir = dir.getParent()) {
+                try (Stream<Path> children = Files.list(dir)) {
+                    if (children.findAny().isPresent()) {
+                        break;
+                    }
+                }
+                Files.delete(dir);
+            }
+        }
+    }
+
+    /**
+     * Deepest directory containing all of the given files.
+     */
+    public static Path commonDirectory(List<Path> files) {
+        Path common = null;
+        for (Path file : files) {
+            Path parent = file.getParent();
+            if (common == null) {
+                common = parent;
+                continue;
+            }
+            while (common != null && !parent.startsWith(common)) {
+                common = common.getParent();
+            }
+        }
+        return common;
+    }
+
+    public static void delete(Path directory) throws IOException {
+        if (!Files.exists(directory)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(directory)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    private static void moveInto(Path source, Path targetParent) throws IOException {
+        Path target = targetParent.resolve(source.getFileName().toString());
+        if (Files.isDirectory(source) && Files.isDirectory(target)) {
+            try (Stream<Path> children = Files.list(source)) {
+                for (Path child : children.toList()) {
+                    moveInto(child, target);
+                }
+            }
+            Files.delete(source);
+            return;
+        }
+        // an atomic rename replaces a file silently, so a file that appeared since the check still stops it
+        requireAbsent(target);
+        Files.move(source, target, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void requireAbsent(Path target) throws FileAlreadyExistsException {
+        if (Files.exists(target, LinkOption.NOFOLLOW_LINKS)) {
+            throw new FileAlreadyExistsException(target.toString());
+        }
+    }
+}
@@ -6,6 +6,10 @@ import com.sashkomusic.downloadagent.domain.MusicSourcePort;
 import com.sashkomusic.downloadagent.domain.exception.MusicDownloadException;
 import com.sashkomusic.downloadagent.domain.model.DownloadEngine;
 import com.sashkomusic.downloadagent.domain.model.DownloadOption;
+import com.sashkomusic.downloadagent.domain.util.StagingDirectories;
+import com.sashkomusic.downloadagent.infrastracture.process.CliProgressParser;
+import com.sashkomusic.downloadagent.infrastracture.process.ProcessSupervisor;
+import com.sashkomusic.downloadagent.infrastracture.process.SupervisedProcess;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
@@ -13,7 +17,6 @@ import org.springframework.stereotype.Service;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.*;
-import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 
 
@@ -24,9 +27,9 @@ public class AppleMusicClient implements MusicSourcePort {
     private final ITunesSearchClient searchClient;
     private final DownloadMonitorService monitorService;
     private final ActiveDownloadRegistry downloadRegistry;
-    private final AppleMusicCommandExecutor commandExecutor;
+    private final ProcessSupervisor processSupervisor;
 
-    private final ConcurrentHashMap<String, CompletableFuture<Process>> activeProcesses = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, SupervisedProcess> activeProcesses = new ConcurrentHashMap<>();
 
     @Value("${applemusic.gamdl.path}")
     private String gamdlPath;
@@ -40,11 +43,11 @@ public class AppleMusicClient implements MusicSourcePort {
     public AppleMusicClient(ITunesSearchClient searchClient,
                             DownloadMonitorService monitorService,
                             ActiveDownloadRegistry downloadRegistry,
-                            AppleMusicCommandExecutor commandExecutor) {
+                            ProcessSupervisor processSupervisor) {
         this.searchClient = searchClient;
         this.monitorService = monitorService;
         this.downloadRegistry = downloadRegistry;
-        this.commandExecutor = commandExecutor;
+        this.processSupervisor = processSupervisor;
     }
 
     @Override
@@ -72,7 +75,7 @@ public class AppleMusicClient implements MusicSourcePort {
 
         } catch (Exception e) {
             log.error("Error searching Apple Music: {}", e.getMessage(), e);
-            return List.of();
+            throw new MusicDownloadException("Apple Music search failed: " + e.getMessage(), e);
         }
     }
 
@@ -95,28 +98,32 @@ public class AppleMusicClient implements MusicSourcePort {
                 throw new MusicDownloadException("Cookies file not found: " + cookiesPath);
             }
 
-            CompletableFuture<Process> futureProcess = commandExecutor.executeAsync(
+            Path stagingPath = Files.createDirectories(StagingDirectories.resolve(outputPath, releaseId));
+
+            CliProgressParser progressParser = new CliProgressParser();
+            SupervisedProcess process = processSupervisor.submit(DownloadEngine.APPLE_MUSIC, "gamdl",
+                    line -> progressParser.accept(line)
+                            .ifPresent(progress -> monitorService.reportProgress(releaseId, progress)),
                     gamdlPath,
                     url,
                     "--cookies-path", cookiesPath,
-                    "--output-path", outputPath,
+                    "--output-path", stagingPath.toString(),
                     "--language", "uk",
                     "--song-codec", "aac-legacy"
             );
 
-            activeProcesses.put(releaseId, futureProcess);
+            activeProcesses.put(releaseId, process);
+            process.exit().whenComplete((exitCode, error) -> downloadRegistry.remove(releaseId));
 
             downloadRegistry.registerCancelHandle(releaseId, () -> {
-                Process process = futureProcess.getNow(null);
-                if (process != null && process.isAlive()) {
-                    process.destroyForcibly();
-                    log.info("Forcibly killed Apple Music download process for releaseId={}", releaseId);
-                }
-                activeProcesses.remove(releaseId);
+                // stop monitoring first so the killed process is not reported as a failed download
                 monitorService.stopMonitoring(releaseId);
+                activeProcesses.remove(releaseId);
+                process.cancel();
+                log.info("Cancelled Apple Music download process for releaseId={}", releaseId);
             });
 
-            log.info("Apple Music download started in background");
+            log.info("Apple Music download submitted");
 
             String batchId = option.technicalMetadata().get("albumId");
             return batchId != null ? batchId : option.id();
@@ -143,7 +150,9 @@ public class AppleMusicClient implements MusicSourcePort {
         log.info("Starting monitoring for Apple Music album: artist='{}', album='{}', expectedTracks={}",
                 artist, albumName, trackCount);
 
-        monitorService.startMonitoring(chatId, releaseId, downloadPath, trackCount, artist, albumName);
+        SupervisedProcess process = activeProcesses.remove(releaseId);
+        monitorService.startMonitoring(chatId, releaseId, downloadPath, trackCount, artist, albumName,
+                process != null ? process.exit() : null);
     }
 
     private DownloadOption toDownloadOption(ITunesSearchClient.AppleMusicSearchResult result) {
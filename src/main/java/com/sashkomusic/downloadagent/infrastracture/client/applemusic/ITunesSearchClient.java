@@ -1,6 +1,7 @@
 package com.sashkomusic.downloadagent.infrastracture.client.applemusic;
 
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.sashkomusic.downloadagent.domain.exception.MusicDownloadException;
 import io.github.resilience4j.circuitbreaker.annotation.CircuitBreaker;
 import io.github.resilience4j.retry.annotation.Retry;
 import lombok.extern.slf4j.Slf4j;
@@ -63,7 +64,7 @@ public class ITunesSearchClient {
 
     private List<AppleMusicSearchResult> searchFallback(String artist, String title, Exception e) {
         log.warn("iTunes search fallback triggered for '{}' - '{}': {}", artist, title, e.getMessage());
-        return Collections.emptyList();
+        throw new MusicDownloadException("iTunes search failed: " + e.getMessage(), e);
     }
 
     private String buildSearchTerm(String artist, String title) {
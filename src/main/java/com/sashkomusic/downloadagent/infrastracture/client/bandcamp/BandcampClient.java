@@ -6,6 +6,10 @@ import com.sashkomusic.downloadagent.domain.MusicSourcePort;
 import com.sashkomusic.downloadagent.domain.exception.MusicDownloadException;
 import com.sashkomusic.downloadagent.domain.model.DownloadEngine;
 import com.sashkomusic.downloadagent.domain.model.DownloadOption;
+import com.sashkomusic.downloadagent.domain.util.StagingDirectories;
+import com.sashkomusic.downloadagent.infrastracture.process.CliProgressParser;
+import com.sashkomusic.downloadagent.infrastracture.process.ProcessSupervisor;
+import com.sashkomusic.downloadagent.infrastracture.process.SupervisedProcess;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
@@ -13,7 +17,6 @@ import org.springframework.stereotype.Service;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.*;
-import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 
 @Slf4j
@@ -23,9 +26,9 @@ public class BandcampClient implements MusicSourcePort {
     private final BandcampSearchClient searchClient;
     private final DownloadMonitorService monitorService;
     private final ActiveDownloadRegistry downloadRegistry;
-    private final BandcampCommandExecutor commandExecutor;
+    private final ProcessSupervisor processSupervisor;
 
-    private final ConcurrentHashMap<String, CompletableFuture<Process>> activeProcesses = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, SupervisedProcess> activeProcesses = new ConcurrentHashMap<>();
 
     @Value("${bandcamp.cli-path}")
     private String bandcampDlPath;
@@ -36,11 +39,11 @@ public class BandcampClient implements MusicSourcePort {
     public BandcampClient(BandcampSearchClient searchClient,
                           DownloadMonitorService monitorService,
                           ActiveDownloadRegistry downloadRegistry,
-                          BandcampCommandExecutor commandExecutor) {
+                          ProcessSupervisor processSupervisor) {
         this.searchClient = searchClient;
         this.monitorService = monitorService;
         this.downloadRegistry = downloadRegistry;
-        this.commandExecutor = commandExecutor;
+        this.processSupervisor = processSupervisor;
     }
 
     @Override
@@ -68,7 +71,7 @@ public class BandcampClient implements MusicSourcePort {
 
         } catch (Exception e) {
             log.error("Error searching Bandcamp: {}", e.getMessage(), e);
-            return List.of();
+            throw new MusicDownloadException("Bandcamp search failed: " + e.getMessage(), e);
         }
     }
 
@@ -87,26 +90,30 @@ public class BandcampClient implements MusicSourcePort {
                 throw new MusicDownloadException("bandcamp-dl executable not found: " + bandcampDlPath);
             }
 
-            CompletableFuture<Process> futureProcess = commandExecutor.executeAsync(
+            Path stagingPath = Files.createDirectories(StagingDirectories.resolve(outputPath, releaseId));
+
+            CliProgressParser progressParser = new CliProgressParser();
+            SupervisedProcess process = processSupervisor.submit(DownloadEngine.BANDCAMP, "bandcamp-dl",
+                    line -> progressParser.accept(line)
+                            .ifPresent(progress -> monitorService.reportProgress(releaseId, progress)),
                     bandcampDlPath,
                     url,
-                    "--base-dir", outputPath,
+                    "--base-dir", stagingPath.toString(),
                     "--template", "%{artist}/%{album}/%{track} - %{title}"
             );
 
-            activeProcesses.put(releaseId, futureProcess);
+            activeProcesses.put(releaseId, process);
+            process.exit().whenComplete((exitCode, error) -> downloadRegistry.remove(releaseId));
 
             downloadRegistry.registerCancelHandle(releaseId, () -> {
-                Process process = futureProcess.getNow(null);
-                if (process != null && process.isAlive()) {
-                    process.destroyForcibly();
-                    log.info("Forcibly killed Bandcamp download process for releaseId={}", releaseId);
-                }
-                activeProcesses.remove(releaseId);
+                // stop monitoring first so the killed process is not reported as a failed download
                 monitorService.stopMonitoring(releaseId);
+                activeProcesses.remove(releaseId);
+                process.cancel();
+                log.info("Cancelled Bandcamp download process for releaseId={}", releaseId);
             });
 
-            log.info("Bandcamp download started in background");
+            log.info("Bandcamp download submitted");
 
             return option.id();
 
@@ -127,13 +134,15 @@ public class BandcampClient implements MusicSourcePort {
 
         String artist = option.technicalMetadata().get("artist");
         String title = option.technicalMetadata().get("title");
-        // Bandcamp doesn't provide trackCount in search, use 1 as default
+        // Bandcamp doesn't provide trackCount in search; the monitor learns the real count from the tags
         int expectedFiles = 1;
 
         log.info("Starting monitoring for Bandcamp release: artist='{}', title='{}', expectedFiles={}",
                 artist, title, expectedFiles);
 
-        monitorService.startMonitoring(chatId, releaseId, downloadPath, expectedFiles, artist, title);
+        SupervisedProcess process = activeProcesses.remove(releaseId);
+        monitorService.startMonitoring(chatId, releaseId, downloadPath, expectedFiles, artist, title,
+                process != null ? process.exit() : null);
     }
 
     private DownloadOption toDownloadOption(BandcampSearchResult result) {
@@ -45,7 +45,7 @@ public class BandcampSearchClient {
 
         } catch (Exception ex) {
             log.error("Error searching Bandcamp: {}", ex.getMessage(), ex);
-            return List.of();
+            throw ex;
         }
     }
 
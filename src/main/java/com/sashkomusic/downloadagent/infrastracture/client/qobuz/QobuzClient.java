@@ -6,6 +6,10 @@ import com.sashkomusic.downloadagent.domain.MusicSourcePort;
 import com.sashkomusic.downloadagent.domain.exception.MusicDownloadException;
 import com.sashkomusic.downloadagent.domain.model.DownloadEngine;
 import com.sashkomusic.downloadagent.domain.model.DownloadOption;
+import com.sashkomusic.downloadagent.domain.util.StagingDirectories;
+import com.sashkomusic.downloadagent.infrastracture.process.CliProgressParser;
+import com.sashkomusic.downloadagent.infrastracture.process.ProcessSupervisor;
+import com.sashkomusic.downloadagent.infrastracture.process.SupervisedProcess;
 import com.sashkomusic.downloadagent.infrastracture.client.qobuz.dto.QobuzSearchResult;
 import lombok.extern.slf4j.Slf4j;
 import org.jsoup.Jsoup;
@@ -16,8 +20,9 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestClient;
 
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.*;
-import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -27,11 +32,11 @@ import java.util.regex.Pattern;
 public class QobuzClient implements MusicSourcePort {
 
     private final RestClient restClient;
-    private final QobuzCommandExecutor commandExecutor;
+    private final ProcessSupervisor processSupervisor;
     private final DownloadMonitorService monitorService;
     private final ActiveDownloadRegistry downloadRegistry;
 
-    private final ConcurrentHashMap<String, CompletableFuture<Process>> activeProcesses = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, SupervisedProcess> activeProcesses = new ConcurrentHashMap<>();
 
     @Value("${qobuz.cli-path:/usr/local/bin/qobuz-dl}")
     private String cliPath;
@@ -43,14 +48,14 @@ public class QobuzClient implements MusicSourcePort {
     private int searchLimit;
 
     public QobuzClient(RestClient.Builder restClientBuilder,
-                       QobuzCommandExecutor commandExecutor,
+                       ProcessSupervisor processSupervisor,
                        DownloadMonitorService monitorService,
                        ActiveDownloadRegistry downloadRegistry) {
         this.restClient = restClientBuilder
                 .baseUrl("https://www.qobuz.com")
                 .defaultHeader("User-Agent", "Mozilla/5.0 (Macintosh; Intel Mac OS X 10_15_7) AppleWebKit/537.36")
                 .build();
-        this.commandExecutor = commandExecutor;
+        this.processSupervisor = processSupervisor;
         this.monitorService = monitorService;
         this.downloadRegistry = downloadRegistry;
     }
@@ -101,7 +106,7 @@ public class QobuzClient implements MusicSourcePort {
 
         } catch (Exception e) {
             log.error("Error searching Qobuz: {}", e.getMessage(), e);
-            return List.of();
+            throw new MusicDownloadException("Qobuz search failed: " + e.getMessage(), e);
         }
     }
 
@@ -117,23 +122,27 @@ public class QobuzClient implements MusicSourcePort {
         log.info("Initiating Qobuz download: url={}, quality={}, releaseId={}", albumUrl, quality, releaseId);
 
         try {
-            CompletableFuture<Process> futureProcess = commandExecutor.executeAsync(
-                    cliPath, "dl", albumUrl, "-q", quality, "-d", downloadPath, "--no-db"
+            Path stagingPath = Files.createDirectories(StagingDirectories.resolve(downloadPath, releaseId));
+
+            CliProgressParser progressParser = new CliProgressParser();
+            SupervisedProcess process = processSupervisor.submit(DownloadEngine.QOBUZ, "qobuz-dl",
+                    line -> progressParser.accept(line)
+                            .ifPresent(progress -> monitorService.reportProgress(releaseId, progress)),
+                    cliPath, "dl", albumUrl, "-q", quality, "-d", stagingPath.toString(), "--no-db"
             );
 
-            activeProcesses.put(releaseId, futureProcess);
+            activeProcesses.put(releaseId, process);
+            process.exit().whenComplete((exitCode, error) -> downloadRegistry.remove(releaseId));
 
             downloadRegistry.registerCancelHandle(releaseId, () -> {
-                Process process = futureProcess.getNow(null);
-                if (process != null && process.isAlive()) {
-                    process.destroyForcibly();
-                    log.info("Forcibly killed Qobuz download process for releaseId={}", releaseId);
-                }
-                activeProcesses.remove(releaseId);
+                // stop monitoring first so the killed process is not reported as a failed download
                 monitorService.stopMonitoring(releaseId);
+                activeProcesses.remove(releaseId);
+                process.cancel();
+                log.info("Cancelled Qobuz download process for releaseId={}", releaseId);
             });
 
-            log.info("Qobuz download started in background");
+            log.info("Qobuz download submitted");
 
             // Return album ID as batch ID
             String batchId = option.technicalMetadata().get("albumId");
@@ -355,8 +364,8 @@ public class QobuzClient implements MusicSourcePort {
 
     @Override
     public String getDownloadPath(DownloadOption option) {
-        // qobuz-dl creates folder: "Artist - AlbumTitle (Year) [Quality]" directly in downloadPath
-        // We return the base downloadPath and monitor will search for folder matching artist+title
+        // qobuz-dl creates folder: "Artist - AlbumTitle (Year) [Quality]" in the release's staging directory,
+        // the monitor moves it into downloadPath once the download is complete
         return downloadPath;
     }
 
@@ -366,6 +375,7 @@ public class QobuzClient implements MusicSourcePort {
 
         String artist = option.technicalMetadata().get("artist");
         String title = option.technicalMetadata().get("title");
+        SupervisedProcess process = activeProcesses.remove(releaseId);
 
         monitorService.startMonitoring(
                 chatId,
@@ -373,7 +383,8 @@ public class QobuzClient implements MusicSourcePort {
                 downloadPath,
                 expectedFileCount,
                 artist,
-                title
+                title,
+                process != null ? process.exit() : null
         );
 
         log.info("Started monitoring for Qobuz download: {}", downloadPath);
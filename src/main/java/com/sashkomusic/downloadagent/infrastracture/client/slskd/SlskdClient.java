@@ -2,27 +2,44 @@ package com.sashkomusic.downloadagent.infrastracture.client.slskd;
 
 import com.sashkomusic.downloadagent.config.SlskdPathConfig;
 import com.sashkomusic.downloadagent.domain.ActiveDownloadRegistry;
+import com.sashkomusic.downloadagent.domain.DownloadContext;
+import com.sashkomusic.downloadagent.domain.DownloadProgressAggregator;
+import com.sashkomusic.downloadagent.domain.DownloadVerifier;
 import com.sashkomusic.downloadagent.domain.MusicSourcePort;
 import com.sashkomusic.downloadagent.domain.exception.MusicDownloadException;
+import com.sashkomusic.downloadagent.domain.journal.DownloadJournal;
+import com.sashkomusic.downloadagent.domain.journal.JournaledRelease;
 import com.sashkomusic.downloadagent.domain.model.DownloadEngine;
 import com.sashkomusic.downloadagent.domain.model.DownloadOption;
 import com.sashkomusic.downloadagent.infrastracture.client.slskd.dto.SlskdDownloadResponse;
 import com.sashkomusic.downloadagent.infrastracture.client.slskd.dto.SlskdSearchEntryResponse;
 import com.sashkomusic.downloadagent.infrastracture.client.slskd.dto.SlskdSearchEventResponse;
+import com.sashkomusic.downloadagent.messaging.producer.DownloadErrorProducer;
 import io.github.resilience4j.circuitbreaker.annotation.CircuitBreaker;
 import io.github.resilience4j.retry.annotation.Retry;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestClient;
+import org.springframework.web.client.RestClientResponseException;
 
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -31,26 +48,52 @@ import java.util.stream.Stream;
 public class SlskdClient implements MusicSourcePort {
 
     private static final long POLL_TIMEOUT_MS = 20_000;
-    private static final long POLL_INTERVAL_MS = 3_000;
-    private static final long STABILIZATION_DELAY_MS = 10_000;
+    private static final long PARTIAL_RESULTS_INTERVAL_MS = 1_000;
+    private static final int MAX_PEERS_PER_SEARCH = 50;
+    private static final int MAX_OPTIONS = 10;
+    private static final int MAX_INDEXED_FILES = 50_000;
 
     private final RestClient client;
     private final String apiKey;
     private final SlskdPathConfig pathConfig;
     private final ActiveDownloadRegistry downloadRegistry;
-
-    private final ConcurrentHashMap<String, List<String>> transferIds = new ConcurrentHashMap<>();
+    private final SlskdSearchTracker searchTracker;
+    private final SlskdOptionRanker optionRanker = new SlskdOptionRanker();
+    private final SlskdSearchResponseReader responseReader = new SlskdSearchResponseReader(MAX_PEERS_PER_SEARCH,
+            peer -> optionRanker.bestScore(splitByAlbumFolder(peer)));
+    private final SlskdSourceIndex sourceIndex = new SlskdSourceIndex(MAX_INDEXED_FILES);
+    private final SlskdTransferWatchdog transferWatchdog;
+    private final SlskdTransferReconciler transferReconciler;
+    private final DownloadContext downloadContext;
+    private final DownloadJournal journal;
 
     public SlskdClient(RestClient.Builder builder,
                        @Value("${slskd.api-key:}") String apiKey,
                        @Value("${slskd.base-url:http://localhost:5030}") String baseUrl,
+                       @Value("${slskd.search.quiet-period:3s}") Duration searchQuietPeriod,
+                       @Value("${slskd.watchdog.min-bytes-per-second:16384}") long minBytesPerSecond,
+                       @Value("${slskd.watchdog.stall-window:2m}") Duration stallWindow,
+                       @Value("${slskd.watchdog.queue-timeout:10m}") Duration queueTimeout,
+                       @Value("${slskd.watchdog.max-failovers:3}") int maxFailovers,
                        SlskdPathConfig pathConfig,
-                       ActiveDownloadRegistry downloadRegistry) {
+                       ActiveDownloadRegistry downloadRegistry,
+                       DownloadContext downloadContext,
+                       DownloadJournal journal,
+                       DownloadProgressAggregator progressAggregator,
+                       DownloadVerifier downloadVerifier,
+                       DownloadErrorProducer errorProducer) {
         log.info("Initializing SlskdClient with base URL: {}", baseUrl);
         this.client = builder.baseUrl(baseUrl).build();
         this.apiKey = apiKey;
         this.pathConfig = pathConfig;
         this.downloadRegistry = downloadRegistry;
+        this.downloadContext = downloadContext;
+        this.journal = journal;
+        this.searchTracker = new SlskdSearchTracker(client, apiKey, Duration.ofMillis(POLL_TIMEOUT_MS), searchQuietPeriod);
+        this.transferWatchdog = new SlskdTransferWatchdog(client, apiKey, sourceIndex, downloadContext, journal,
+                errorProducer, minBytesPerSecond, stallWindow, queueTimeout, maxFailovers);
+        this.transferReconciler = new SlskdTransferReconciler(client, apiKey, pathConfig, downloadContext,
+                transferWatchdog, progressAggregator, downloadVerifier);
     }
 
     @Override
@@ -66,8 +109,7 @@ public class SlskdClient implements MusicSourcePort {
         log.info("🔄 Soulseek search attempt for: {}", query);
 
         var searchId = initiateSearchRequest(query);
-        int fileCount = waitForSearchToComplete(searchId);
-        waitToStabilize(fileCount);
+        searchTracker.track(searchId);
 
         List<DownloadOption> results = getSearchResults(searchId);
 
@@ -82,7 +124,49 @@ public class SlskdClient implements MusicSourcePort {
 
     private List<DownloadOption> searchFallback(String artist, String release, Exception e) {
         log.warn("Slskd search fallback triggered for '{}' - '{}': {}", artist, release, e.getMessage());
-        return List.of();
+        if (e instanceof NoSearchResultsException) {
+            return List.of();
+        }
+        throw new MusicDownloadException("Soulseek search failed: " + e.getMessage(), e);
+    }
+
+    @Override
+    @CircuitBreaker(name = "slskdClient", fallbackMethod = "searchIncrementallyFallback")
+    @Retry(name = "slskdClient")
+    public List<DownloadOption> searchIncrementally(String artist, String release,
+                                                    Consumer<List<DownloadOption>> onPartialResults) {
+        var query = artist + " " + release;
+        log.info("🔄 Soulseek incremental search attempt for: {}", query);
+
+        var searchId = initiateSearchRequest(query);
+        AtomicLong lastPublishedAt = new AtomicLong();
+
+        searchTracker.track(searchId, responseCount -> {
+            long now = System.currentTimeMillis();
+            if (now - lastPublishedAt.get() < PARTIAL_RESULTS_INTERVAL_MS) {
+                return;
+            }
+            lastPublishedAt.set(now);
+            List<DownloadOption> partial = getSearchResults(searchId);
+            log.debug("Publishing {} partial results after {} responses", partial.size(), responseCount);
+            onPartialResults.accept(partial);
+        });
+
+        List<DownloadOption> results = getSearchResults(searchId);
+
+        if (results.isEmpty()) {
+            log.warn("❌ No results found for query: {}, throwing exception to trigger retry", query);
+            throw new NoSearchResultsException("No results found for: " + query);
+        }
+
+        log.info("✅ Found {} results", results.size());
+        return results;
+    }
+
+    private List<DownloadOption> searchIncrementallyFallback(String artist, String release,
+                                                             Consumer<List<DownloadOption>> onPartialResults,
+                                                             Exception e) {
+        return searchFallback(artist, release, e);
     }
 
     private UUID initiateSearchRequest(String query) {
@@ -116,102 +200,70 @@ public class SlskdClient implements MusicSourcePort {
         }
     }
 
-    private int waitForSearchToComplete(UUID searchId) {
-        long endTime = System.currentTimeMillis() + POLL_TIMEOUT_MS;
-        SlskdSearchEventResponse lastStatus = null;
-
-        while (System.currentTimeMillis() < endTime) {
-            try {
-                var status = getSearchStatus(searchId);
-                lastStatus = status;
-                log.info("Status: searchId={}, state={}, isComplete={}, fileCount={}",
-                        searchId, status.getState(), status.getIsComplete(), status.getFileCount());
-
-                if (Boolean.TRUE.equals(status.getIsComplete())) {
-                    return status.getFileCount() != null ? status.getFileCount() : 0;
-                }
-
-                Thread.sleep(POLL_INTERVAL_MS);
-
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-                throw new RuntimeException("Search interrupted", e);
-            } catch (Exception e) {
-                log.warn("Error polling status, retrying in next tick: {}", e.getMessage());
-            }
-        }
-        log.warn("Search polling timed out locally for ID: {}. Returning accumulated results.", searchId);
-        return lastStatus != null && lastStatus.getFileCount() != null ? lastStatus.getFileCount() : 0;
-    }
-
-    private static void waitToStabilize(int fileCount) {
-        if (fileCount > 0) {
-            try {
-                log.debug("Waiting {}ms for results to stabilize...", STABILIZATION_DELAY_MS);
-                Thread.sleep(STABILIZATION_DELAY_MS);
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-            }
-        } else {
-            log.info("No files found, skipping stabilization wait");
-        }
-    }
-
-    private SlskdSearchEventResponse getSearchStatus(UUID searchId) {
-        return client.get()
-                .uri("/api/v0/searches/{id}", searchId)
-                .header("X-API-KEY", apiKey)
-                .retrieve()
-                .body(SlskdSearchEventResponse.class);
-    }
-
     private List<DownloadOption> getSearchResults(UUID searchId) {
+        // locked peers, peers without a free slot and non-audio files are dropped while streaming the body
         List<SlskdSearchEntryResponse> responses = client.get()
                 .uri("/api/v0/searches/{id}/responses", searchId.toString())
                 .header("X-API-KEY", apiKey)
-                .retrieve()
-                .body(new ParameterizedTypeReference<>() {
+                .exchange((request, response) -> {
+                    if (response.getStatusCode().isError()) {
+                        throw new RestClientResponseException("Failed to fetch search responses",
+                                response.getStatusCode(), response.getStatusText(), null, null, null);
+                    }
+                    return responseReader.read(response.getBody());
                 });
 
-        return toDomain(responses);
+        // remembered so a stalled transfer can be moved to another peer with an identical folder
+        sourceIndex.record(responses);
+
+        return toDomain(searchId, responses);
     }
 
-    private List<DownloadOption> toDomain(List<SlskdSearchEntryResponse> response) {
+    private List<DownloadOption> toDomain(UUID searchId, List<SlskdSearchEntryResponse> response) {
         if (response == null) return List.of();
 
-        return response.stream()
-                .filter(r -> r.files() != null && !r.files().isEmpty())
-                .filter(r -> r.lockedFileCount() == 0)
-                .filter(SlskdSearchEntryResponse::canDownload)
-                .flatMap(this::splitByAlbumFolder)
-                .limit(10)
+        return optionRanker.top(collapseIdenticalFolders(response.stream().flatMap(SlskdClient::splitByAlbumFolder)), MAX_OPTIONS).stream()
+                .map(ranked -> mapOption(searchId, ranked))
                 .toList();
     }
 
-    private Stream<DownloadOption> splitByAlbumFolder(SlskdSearchEntryResponse response) {
+    private static Stream<SlskdOptionRanker.Candidate> splitByAlbumFolder(SlskdSearchEntryResponse response) {
         Map<String, List<SlskdSearchEntryResponse.SoulseekFile>> groupedByFolder = response.files().stream()
                 .filter(f -> f.size() > 0)
                 .filter(SlskdSearchEntryResponse.SoulseekFile::isAudioFile)
                 .collect(Collectors.groupingBy(f -> extractAlbumFolder(f.filename())));
 
         return groupedByFolder.entrySet().stream()
-                .map(entry -> {
-                    String albumFolder = entry.getKey();
-                    List<SlskdSearchEntryResponse.SoulseekFile> filesInFolder = entry.getValue();
-
-                    double totalSizeMB = filesInFolder.stream()
-                            .mapToLong(SlskdSearchEntryResponse.SoulseekFile::size)
-                            .sum() / (1024.0 * 1024.0);
+                .map(entry -> new SlskdOptionRanker.Candidate(response, entry.getKey(), entry.getValue()));
+    }
 
-                    return mapOption(response, albumFolder, filesInFolder, totalSizeMB);
-                });
+    /**
+     * Folders with the same fingerprint become one candidate: the best peer's folder (peers arrive best first)
+     * with the other peers as mirrors to split the download across. Only folders with the same name qualify,
+     * since slskd saves each transfer under its remote folder name and the album has to end up in one directory.
+     */
+    private static Stream<SlskdOptionRanker.Candidate> collapseIdenticalFolders(Stream<SlskdOptionRanker.Candidate> candidates) {
+        Map<String, List<SlskdOptionRanker.Candidate>> byFingerprint = candidates.collect(Collectors.groupingBy(
+                SlskdOptionRanker.Candidate::fingerprint, LinkedHashMap::new, Collectors.toList()));
+
+        return byFingerprint.values().stream().map(group -> {
+            SlskdOptionRanker.Candidate primary = group.getFirst();
+            Set<String> usernames = new HashSet<>(Set.of(primary.peer().username()));
+            List<SlskdOptionRanker.Candidate> mirrors = group.stream()
+                    .skip(1)
+                    .filter(mirror -> SlskdSourceIndex.baseName(mirror.albumFolder())
+                            .equalsIgnoreCase(SlskdSourceIndex.baseName(primary.albumFolder())))
+                    .filter(mirror -> usernames.add(mirror.peer().username()))
+                    .toList();
+            return mirrors.isEmpty() ? primary : primary.withMirrors(mirrors);
+        });
     }
 
-    private static DownloadOption mapOption(
-            SlskdSearchEntryResponse response,
-            String albumFolder,
-            List<SlskdSearchEntryResponse.SoulseekFile> files,
-            double totalSizeMB) {
+    private static DownloadOption mapOption(UUID searchId, SlskdOptionRanker.Ranked ranked) {
+        SlskdSearchEntryResponse response = ranked.candidate().peer();
+        String albumFolder = ranked.candidate().albumFolder();
+        List<SlskdSearchEntryResponse.SoulseekFile> files = ranked.candidate().files();
+        double totalSizeMB = ranked.candidate().totalSize() / (1024.0 * 1024.0);
 
         var fileItems = files.stream()
                 .map(SlskdClient::mapFileItem)
@@ -220,17 +272,32 @@ public class SlskdClient implements MusicSourcePort {
         Map<String, String> metadata = new HashMap<>();
         metadata.put("username", response.username());
         metadata.put("albumFolder", albumFolder);
+        metadata.put("uploadSpeed", String.valueOf(response.uploadSpeed()));
+        SlskdSwarm.putMirrors(metadata, ranked.candidate().mirrors());
+        metadata.put("score", String.format(Locale.ROOT, "%.3f", ranked.score()));
+        metadata.put("estimatedSeconds", String.valueOf(ranked.estimatedSeconds()));
+
+        // stable within the search, so the same peer folder keeps its id across partial result updates; the
+        // search id keeps a generic folder name ("Music") of one peer from sharing an id across releases
+        String optionId = UUID.nameUUIDFromBytes((searchId + "|" + response.username() + "|" + albumFolder)
+                .getBytes(StandardCharsets.UTF_8)).toString();
 
         return new DownloadOption(
-                UUID.randomUUID().toString(),
+                optionId,
                 DownloadEngine.SOULSEEK,
-                response.username() + " - " + albumFolder,
+                displayName(response.username(), ranked.candidate().mirrors().size(), albumFolder),
                 (int) totalSizeMB,
                 fileItems,
                 metadata
         );
     }
 
+    private static String displayName(String username, int mirrors, String albumFolder) {
+        return mirrors == 0
+                ? username + " - " + albumFolder
+                : username + " +" + mirrors + " - " + albumFolder;
+    }
+
     private static DownloadOption.FileItem mapFileItem(SlskdSearchEntryResponse.SoulseekFile f) {
         return new DownloadOption.FileItem(
                 f.filename(),
@@ -270,42 +337,65 @@ public class SlskdClient implements MusicSourcePort {
 
         log.info("Attempting download from user={}, files={}, releaseId={}", username, option.files().size(), releaseId);
 
-        List<Map<String, Object>> files = option.files().stream()
-                .map(f -> Map.<String, Object>of(
-                        "filename", f.filename(),
-                        "size", f.size()
-                ))
-                .toList();
-
-        log.info("Initiating download from user={}, files count={}", username, files.size());
-        files.forEach(f -> log.debug("  - {}", f.get("filename")));
+        List<SlskdSwarm.Peer> peers = SlskdSwarm.peers(option);
+        Map<SlskdSwarm.Peer, List<DownloadOption.FileItem>> assignment = SlskdSwarm.split(option.files(), peers);
+        SlskdSwarm.Peer primary = peers.getFirst();
 
         try {
-            var response = client.post()
-                    .uri("/api/v0/transfers/downloads/{username}", username)
-                    .header("X-API-KEY", apiKey)
-                    .contentType(MediaType.APPLICATION_JSON)
-                    .body(files)
-                    .retrieve()
-                    .body(SlskdDownloadResponse.class);
-
-            if (response == null || response.enqueued() == null || response.enqueued().isEmpty()) {
+            List<SlskdDownloadResponse.EnqueuedDownload> enqueued = new ArrayList<>(
+                    enqueue(username, assignment.get(primary), Map.of()));
+            if (enqueued.isEmpty()) {
                 log.warn("No files were enqueued for download from username={}", username);
                 throw new MusicDownloadException("ніц не виходе скачати...");
             }
 
-            log.info("Download initiated for username={}, enqueued {} files",
-                    username, response.enqueued().size());
+            // the rest of the tracks come from peers sharing the identical folder, registered as aliases
+            // of the option's filenames so their webhooks complete the batch
+            Map<String, String> batchFilenames = new HashMap<>();
+            List<DownloadOption.FileItem> fallback = new ArrayList<>();
+            for (SlskdSwarm.Peer mirror : peers.subList(1, peers.size())) {
+                List<DownloadOption.FileItem> mirrorFiles = assignment.get(mirror);
+                if (mirrorFiles.isEmpty()) {
+                    continue;
+                }
 
-            List<String> ids = response.enqueued().stream()
-                    .map(SlskdDownloadResponse.EnqueuedDownload::id)
-                    .toList();
-            transferIds.put(releaseId, ids);
-            log.debug("Stored {} transfer IDs for releaseId={}", ids.size(), releaseId);
+                Map<String, String> remoteNames = new HashMap<>();
+                mirrorFiles.forEach(file -> {
+                    String remote = mirror.remoteFilename(file);
+                    remoteNames.put(file.filename(), remote);
+                    batchFilenames.put(remote, file.filename());
+                    downloadContext.addRemoteAlias(releaseId, file.filename(), remote);
+                });
 
-            downloadRegistry.registerCancelHandle(releaseId, () -> cancelSlskdTransfers(releaseId));
+                try {
+                    List<SlskdDownloadResponse.EnqueuedDownload> mirrorEnqueued = enqueue(mirror.username(), mirrorFiles, remoteNames);
+                    enqueued.addAll(mirrorEnqueued);
+                    log.info("Swarm: {} files from user={}", mirrorEnqueued.size(), mirror.username());
+                    if (mirrorEnqueued.size() < mirrorFiles.size()) {
+                        var accepted = mirrorEnqueued.stream().map(SlskdDownloadResponse.EnqueuedDownload::filename).toList();
+                        mirrorFiles.stream()
+                                .filter(file -> !accepted.contains(remoteNames.get(file.filename())))
+                                .forEach(fallback::add);
+                    }
+                } catch (Exception e) {
+                    log.warn("Swarm peer user={} failed, falling back to user={}: {}", mirror.username(), username, e.getMessage());
+                    fallback.addAll(mirrorFiles);
+                }
+            }
+
+            if (!fallback.isEmpty()) {
+                enqueued.addAll(enqueue(username, fallback, Map.of()));
+            }
 
-            String batchId = response.enqueued().getFirst().id();
+            log.info("Download initiated for releaseId={}, enqueued {} files from {} peers",
+                    releaseId, enqueued.size(), peers.size());
+
+            transferWatchdog.track(releaseId, enqueued, batchFilenames);
+            log.debug("Tracking {} transfers for releaseId={}", enqueued.size(), releaseId);
+
+            downloadRegistry.registerCancelHandle(releaseId, () -> transferWatchdog.cancel(releaseId));
+
+            String batchId = enqueued.getFirst().id();
             log.info("Batch ID: {}", batchId);
 
             return batchId;
@@ -318,24 +408,63 @@ public class SlskdClient implements MusicSourcePort {
         }
     }
 
-    private void cancelSlskdTransfers(String releaseId) {
-        List<String> ids = transferIds.remove(releaseId);
-        if (ids != null) {
-            for (String transferId : ids) {
-                try {
-                    client.delete()
-                            .uri("/api/v0/transfers/" + transferId)
-                            .header("X-API-KEY", apiKey)
-                            .retrieve()
-                            .toBodilessEntity();
-                    log.info("Cancelled Slskd transfer: {}", transferId);
-                } catch (Exception e) {
-                    log.error("Failed to cancel transfer {}: {}", transferId, e.getMessage());
-                }
-            }
+    /**
+     * @param remoteNames the peer's filename for an option filename, when it differs
+     */
+    private List<SlskdDownloadResponse.EnqueuedDownload> enqueue(String username, List<DownloadOption.FileItem> items,
+                                                                  Map<String, String> remoteNames) {
+        if (items.isEmpty()) {
+            return List.of();
+        }
+
+        List<Map<String, Object>> files = items.stream()
+                .map(f -> Map.<String, Object>of(
+                        "filename", remoteNames.getOrDefault(f.filename(), f.filename()),
+                        "size", f.size()
+                ))
+                .toList();
+
+        log.info("Initiating download from user={}, files count={}", username, files.size());
+        files.forEach(f -> log.debug("  - {}", f.get("filename")));
+
+        var response = client.post()
+                .uri("/api/v0/transfers/downloads/{username}", username)
+                .header("X-API-KEY", apiKey)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(files)
+                .retrieve()
+                .body(SlskdDownloadResponse.class);
+
+        return response != null && response.enqueued() != null ? response.enqueued() : List.of();
+    }
+
+    /**
+     * Picks up the releases that were downloading before a restart: reconciles them with slskd's transfer list,
+     * or follows the journaled transfers if slskd can't be reached.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void recoverTransfers() {
+        List<JournaledRelease> releases = journal.recovered().stream()
+                .filter(release -> release.source() == DownloadEngine.SOULSEEK)
+                .toList();
+
+        releases.forEach(release -> downloadRegistry.registerCancelHandle(release.releaseId(),
+                () -> transferWatchdog.cancel(release.releaseId())));
+
+        try {
+            transferReconciler.reconcile(releases);
+        } catch (Exception e) {
+            log.warn("Failed to fetch Slskd transfers for reconciliation, following journaled transfers: {}",
+                    e.getMessage());
+            releases.forEach(release -> transferWatchdog.restore(release.releaseId(), release.transfers().values()));
         }
     }
 
+    @Scheduled(fixedDelayString = "${slskd.watchdog.interval:30s}")
+    public void checkTransfers() {
+        transferWatchdog.check();
+    }
+
     @Override
     public void cancelDownload(String releaseId) {
         downloadRegistry.cancel(releaseId);
@@ -350,10 +479,7 @@ public class SlskdClient implements MusicSourcePort {
             throw new IllegalArgumentException("Missing required metadata: username or albumFolder");
         }
 
-        String containerPath = pathConfig.getContainerPath() + "/" + username + "/" + albumFolder;
-        containerPath = containerPath.replace("\\\\", "/").replace("\\", "/");
-
-        return pathConfig.transformToLocalPath(containerPath);
+        return pathConfig.transformToLocalPath(pathConfig.containerDirectory(username, albumFolder));
     }
 
     @Override
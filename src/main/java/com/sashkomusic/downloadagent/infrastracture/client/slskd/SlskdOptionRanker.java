@@ -0,0 +1,169 @@
+package com.sashkomusic.downloadagent.infrastracture.client.slskd;
+
+import com.sashkomusic.downloadagent.infrastracture.client.slskd.dto.SlskdSearchEntryResponse;
+import com.sashkomusic.downloadagent.infrastracture.client.slskd.dto.SlskdSearchEntryResponse.SoulseekFile;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Scores Soulseek folder candidates and keeps the best ones.
+ * <p>
+ * The score mixes three parts:
+ * <ul>
+ *     <li>quality (45%) - lossless beats lossy, hi-res gets a small bonus, lossy scales with bitrate</li>
+ *     <li>speed (35%) - expected time to complete from folder size, peer upload speed and queue length;
+ *     a folder shared identically by several peers is split across them, so their speeds add up</li>
+ *     <li>completeness (20%) - how much of the track numbering 1..N the folder covers</li>
+ * </ul>
+ */
+class SlskdOptionRanker {
+
+    private static final double QUALITY_WEIGHT = 0.45;
+    private static final double SPEED_WEIGHT = 0.35;
+    private static final double COMPLETENESS_WEIGHT = 0.20;
+
+    private static final long MIN_UPLOAD_SPEED = 16 * 1024;
+    private static final long SECONDS_PER_QUEUED_UPLOAD = 60;
+    // expected time at which the speed score drops to 0.5
+    private static final double REFERENCE_SECONDS = 300;
+
+    private static final Pattern TRACK_NUMBER = Pattern.compile("^(?:\\d-)?(\\d{1,3})\\D");
+
+    /**
+     * A peer's album folder, together with other peers sharing an identical folder (same file names and sizes).
+     */
+    record Candidate(SlskdSearchEntryResponse peer, String albumFolder, List<SoulseekFile> files, List<Candidate> mirrors) {
+        Candidate(SlskdSearchEntryResponse peer, String albumFolder, List<SoulseekFile> files) {
+            this(peer, albumFolder, files, List.of());
+        }
+
+        long totalSize() {
+            return files.stream().mapToLong(SoulseekFile::size).sum();
+        }
+
+        /**
+         * Same for identical folders no matter the peer or the path they are shared under.
+         */
+        String fingerprint() {
+            return files.stream()
+                    .map(file -> SlskdSourceIndex.fingerprint(file.filename(), file.size()))
+                    .sorted()
+                    .collect(Collectors.joining("\n"));
+        }
+
+        Candidate withMirrors(List<Candidate> mirrors) {
+            return new Candidate(peer, albumFolder, files, List.copyOf(mirrors));
+        }
+
+        Stream<SlskdSearchEntryResponse> peers() {
+            return Stream.concat(Stream.of(peer), mirrors.stream().map(Candidate::peer));
+        }
+    }
+
+    record Ranked(Candidate candidate, double score, long estimatedSeconds) {
+    }
+
+    /**
+     * Picks the {@code limit} best candidates in one pass with a bounded min-heap.
+     *
+     * @return the best candidates, highest score first
+     */
+    List<Ranked> top(Stream<Candidate> candidates, int limit) {
+        PriorityQueue<Ranked> best = new PriorityQueue<>(limit + 1, Comparator.comparingDouble(Ranked::score));
+
+        candidates.forEach(candidate -> {
+            best.offer(rank(candidate));
+            if (best.size() > limit) {
+                best.poll();
+            }
+        });
+
+        List<Ranked> result = new ArrayList<>(best);
+        result.sort(Comparator.comparingDouble(Ranked::score).reversed());
+        return result;
+    }
+
+    /**
+     * Score of the best folder a peer shares, before identical folders of other peers are merged into it.
+     */
+    double bestScore(Stream<Candidate> folders) {
+        return folders.mapToDouble(candidate -> rank(candidate).score()).max().orElse(0);
+    }
+
+    Ranked rank(Candidate candidate) {
+        long estimatedSeconds = estimateSeconds(candidate);
+        double speed = 1.0 / (1.0 + estimatedSeconds / REFERENCE_SECONDS);
+
+        double score = QUALITY_WEIGHT * quality(candidate.files())
+                + SPEED_WEIGHT * speed
+                + COMPLETENESS_WEIGHT * completeness(candidate.files());
+
+        return new Ranked(candidate, score, estimatedSeconds);
+    }
+
+    private static long estimateSeconds(Candidate candidate) {
+        long combinedSpeed = candidate.peers()
+                .mapToLong(peer -> Math.max(peer.uploadSpeed(), MIN_UPLOAD_SPEED))
+                .sum();
+        long transferSeconds = candidate.totalSize() / combinedSpeed;
+        long queueSeconds = candidate.peers()
+                .mapToLong(peer -> (long) peer.queueLength() * SECONDS_PER_QUEUED_UPLOAD)
+                .min()
+                .orElse(0);
+        return transferSeconds + queueSeconds;
+    }
+
+    private static double quality(List<SoulseekFile> files) {
+        return files.stream()
+                .mapToDouble(SlskdOptionRanker::fileQuality)
+                .average()
+                .orElse(0);
+    }
+
+    private static double fileQuality(SoulseekFile file) {
+        if (file.isLossless()) {
+            boolean hiRes = (file.bitDepth() != null && file.bitDepth() > 16)
+                    || (file.sampleRate() != null && file.sampleRate() > 48_000);
+            return hiRes ? 1.0 : 0.95;
+        }
+        if (file.bitRate() == null || file.bitRate() <= 0) {
+            return 0.5;
+        }
+        return Math.min(file.bitRate() / 320.0, 1.0) * 0.85;
+    }
+
+    private static double completeness(List<SoulseekFile> files) {
+        Set<Integer> trackNumbers = new HashSet<>();
+        int maxTrack = 0;
+
+        for (SoulseekFile file : files) {
+            String name = file.getFileName();
+            if (name == null) {
+                continue;
+            }
+            Matcher matcher = TRACK_NUMBER.matcher(name);
+            if (matcher.find()) {
+                int track = Integer.parseInt(matcher.group(1));
+                if (track > 0) {
+                    trackNumbers.add(track);
+                    maxTrack = Math.max(maxTrack, track);
+                }
+            }
+        }
+
+        if (trackNumbers.size() * 2 < files.size() || maxTrack == 0) {
+            // no usable numbering: a lone file is likely a single track, several files likely a release
+            return files.size() > 1 ? 0.8 : 0.5;
+        }
+        return (double) trackNumbers.size() / maxTrack;
+    }
+}
@@ -0,0 +1,161 @@
+package com.sashkomusic.downloadagent.infrastracture.client.slskd;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.sashkomusic.downloadagent.infrastracture.client.slskd.dto.SlskdSearchEntryResponse;
+import com.sashkomusic.downloadagent.infrastracture.client.slskd.dto.SlskdSearchEntryResponse.SoulseekFile;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Reads slskd {@code /searches/{id}/responses} payloads with the Jackson streaming API.
+ * Locked files and non-audio files are skipped while parsing, peers with locked files or without
+ * a free upload slot are dropped, and only the {@code maxPeers} peers with the highest score are kept
+ * in a bounded heap, so memory per search stays constant no matter how many peers answered.
+ */
+@Slf4j
+class SlskdSearchResponseReader {
+
+    private static final JsonFactory JSON = new JsonFactory();
+
+    private final int maxPeers;
+    private final ToDoubleFunction<SlskdSearchEntryResponse> score;
+
+    /**
+     * @param score how good a peer is, the same score its options are ranked by later
+     */
+    SlskdSearchResponseReader(int maxPeers, ToDoubleFunction<SlskdSearchEntryResponse> score) {
+        this.maxPeers = maxPeers;
+        this.score = score;
+    }
+
+    /**
+     * @return the kept peers, best first
+     */
+    List<SlskdSearchEntryResponse> read(InputStream body) throws IOException {
+        PriorityQueue<Scored> best = new PriorityQueue<>(maxPeers + 1, Comparator.comparingDouble(Scored::score));
+        int peers = 0;
+
+        try (JsonParser parser = JSON.createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                return List.of();
+            }
+
+            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                peers++;
+                SlskdSearchEntryResponse entry = readEntry(parser);
+                if (entry == null) {
+                    continue;
+                }
+
+                best.offer(new Scored(entry, score.applyAsDouble(entry)));
+                if (best.size() > maxPeers) {
+                    best.poll();
+                }
+            }
+        }
+
+        List<SlskdSearchEntryResponse> result = best.stream()
+                .sorted(Comparator.comparingDouble(Scored::score).reversed())
+                .map(Scored::peer)
+                .toList();
+        log.debug("Parsed {} peer responses, kept {}", peers, result.size());
+        return result;
+    }
+
+    private static SlskdSearchEntryResponse readEntry(JsonParser parser) throws IOException {
+        String username = null;
+        int fileCount = 0;
+        boolean hasFreeUploadSlot = false;
+        int lockedFileCount = 0;
+        int queueLength = 0;
+        int token = 0;
+        long uploadSpeed = 0;
+        List<SoulseekFile> files = new ArrayList<>();
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            parser.nextToken();
+
+            switch (field) {
+                case "username" -> username = parser.getValueAsString();
+                case "fileCount" -> fileCount = parser.getValueAsInt();
+                case "hasFreeUploadSlot" -> hasFreeUploadSlot = parser.getValueAsBoolean();
+                case "lockedFileCount" -> lockedFileCount = parser.getValueAsInt();
+                case "queueLength" -> queueLength = parser.getValueAsInt();
+                case "token" -> token = parser.getValueAsInt();
+                case "uploadSpeed" -> uploadSpeed = parser.getValueAsLong();
+                case "files" -> readAudioFiles(parser, files);
+                default -> parser.skipChildren(); // lockedFiles and anything we don't use
+            }
+        }
+
+        if (files.isEmpty() || lockedFileCount > 0 || !hasFreeUploadSlot) {
+            return null;
+        }
+
+        return new SlskdSearchEntryResponse(fileCount, files, hasFreeUploadSlot, lockedFileCount, List.of(),
+                queueLength, token, uploadSpeed, username);
+    }
+
+    private static void readAudioFiles(JsonParser parser, List<SoulseekFile> files) throws IOException {
+        if (parser.currentToken() != JsonToken.START_ARRAY) {
+            parser.skipChildren();
+            return;
+        }
+
+        while (parser.nextToken() == JsonToken.START_OBJECT) {
+            SoulseekFile file = readFile(parser);
+            if (file.size() > 0 && !file.isLocked() && file.isAudioFile()) {
+                files.add(file);
+            }
+        }
+    }
+
+    private static SoulseekFile readFile(JsonParser parser) throws IOException {
+        Integer bitRate = null;
+        Integer bitDepth = null;
+        int code = 0;
+        String extension = null;
+        String filename = null;
+        Boolean isVariableBitRate = null;
+        Integer length = null;
+        Integer sampleRate = null;
+        long size = 0;
+        boolean isLocked = false;
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            boolean isNull = value == JsonToken.VALUE_NULL;
+
+            switch (field) {
+                case "bitRate" -> bitRate = isNull ? null : parser.getValueAsInt();
+                case "bitDepth" -> bitDepth = isNull ? null : parser.getValueAsInt();
+                case "code" -> code = parser.getValueAsInt();
+                case "extension" -> extension = parser.getValueAsString();
+                case "filename" -> filename = parser.getValueAsString();
+                case "isVariableBitRate" -> isVariableBitRate = isNull ? null : parser.getValueAsBoolean();
+                case "length" -> length = isNull ? null : parser.getValueAsInt();
+                case "sampleRate" -> sampleRate = isNull ? null : parser.getValueAsInt();
+                case "size" -> size = parser.getValueAsLong();
+                case "isLocked" -> isLocked = parser.getValueAsBoolean();
+                default -> parser.skipChildren();
+            }
+        }
+
+        return new SoulseekFile(bitRate, bitDepth, code, extension, filename, isVariableBitRate,
+                length, sampleRate, size, isLocked);
+    }
+
+    private record Scored(SlskdSearchEntryResponse peer, double score) {
+    }
+}
@@ -0,0 +1,127 @@
+package com.sashkomusic.downloadagent.infrastracture.client.slskd;
+
+import com.sashkomusic.downloadagent.infrastracture.client.slskd.dto.SlskdSearchEventResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
+import org.springframework.web.client.RestClient;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.IntConsumer;
+
+/**
+ * Follows a running slskd search with adaptive polling instead of a fixed interval.
+ * Polls fast while peers keep replying, backs off while nothing changes, and ends the search
+ * as soon as the response count has stopped growing for the quiet period.
+ */
+@Slf4j
+class SlskdSearchTracker {
+
+    private static final long INITIAL_INTERVAL_MS = 250;
+    private static final long MAX_INTERVAL_MS = 2_000;
+
+    private final RestClient client;
+    private final String apiKey;
+    private final Duration timeout;
+    private final Duration quietPeriod;
+
+    SlskdSearchTracker(RestClient client, String apiKey, Duration timeout, Duration quietPeriod) {
+        this.client = client;
+        this.apiKey = apiKey;
+        this.timeout = timeout;
+        this.quietPeriod = quietPeriod;
+    }
+
+    /**
+     * Blocks until the search is complete, has settled, or the timeout passes.
+     *
+     * @return the last known search status, or null if slskd never answered
+     */
+    SlskdSearchEventResponse track(UUID searchId) {
+        return track(searchId, responseCount -> {
+        });
+    }
+
+    /**
+     * Same as {@link #track(UUID)}, calling {@code onNewResponses} with the response count every time it grows.
+     */
+    SlskdSearchEventResponse track(UUID searchId, IntConsumer onNewResponses) {
+        long startedAt = System.currentTimeMillis();
+        long deadline = startedAt + timeout.toMillis();
+        long interval = INITIAL_INTERVAL_MS;
+        long lastGrowthAt = startedAt;
+        int lastResponseCount = 0;
+        SlskdSearchEventResponse lastStatus = null;
+
+        while (System.currentTimeMillis() < deadline) {
+            try {
+                var status = getSearchStatus(searchId);
+                lastStatus = status;
+                long now = System.currentTimeMillis();
+                int responseCount = status.getResponseCount() != null ? status.getResponseCount() : 0;
+
+                log.debug("Status: searchId={}, state={}, isComplete={}, responses={}, files={}",
+                        searchId, status.getState(), status.getIsComplete(), responseCount, status.getFileCount());
+
+                if (Boolean.TRUE.equals(status.getIsComplete())) {
+                    log.info("Search completed by slskd: searchId={}, responses={}, took={}ms",
+                            searchId, responseCount, now - startedAt);
+                    return status;
+                }
+
+                if (responseCount > lastResponseCount) {
+                    lastResponseCount = responseCount;
+                    lastGrowthAt = now;
+                    interval = INITIAL_INTERVAL_MS;
+                    onNewResponses.accept(responseCount);
+                } else if (responseCount > 0 && now - lastGrowthAt >= quietPeriod.toMillis()) {
+                    log.info("Search settled: searchId={}, responses={}, took={}ms",
+                            searchId, responseCount, now - startedAt);
+                    stopSearch(searchId);
+                    return status;
+                } else {
+                    interval = Math.min(interval * 2, MAX_INTERVAL_MS);
+                }
+            } catch (Exception e) {
+                log.warn("Error polling status, retrying in next tick: {}", e.getMessage());
+            }
+
+            sleep(Math.min(interval, Math.max(deadline - System.currentTimeMillis(), 0)));
+        }
+
+        log.warn("Search polling timed out locally for ID: {}. Returning accumulated results.", searchId);
+        return lastStatus;
+    }
+
+    private SlskdSearchEventResponse getSearchStatus(UUID searchId) {
+        return client.get()
+                .uri("/api/v0/searches/{id}", searchId)
+                .header("X-API-KEY", apiKey)
+                .retrieve()
+                .body(SlskdSearchEventResponse.class);
+    }
+
+    private void stopSearch(UUID searchId) {
+        try {
+            client.put()
+                    .uri("/api/v0/searches/{id}", searchId)
+                    .header("X-API-KEY", apiKey)
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body(Map.of())
+                    .retrieve()
+                    .toBodilessEntity();
+        } catch (Exception e) {
+            log.debug("Failed to stop settled search {}: {}", searchId, e.getMessage());
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Search interrupted", e);
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.sashkomusic.downloadagent.infrastracture.client.slskd;
+
+import com.sashkomusic.downloadagent.infrastracture.client.slskd.dto.SlskdSearchEntryResponse;
+import com.sashkomusic.downloadagent.infrastracture.client.slskd.dto.SlskdSearchEntryResponse.SoulseekFile;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Remembers which peers shared which files in recent searches, keyed by a (file name, size) fingerprint,
+ * so a stalled transfer can be re-requested from another peer that has the identical file in an identical folder.
+ * Bounded LRU: the oldest fingerprints are dropped first.
+ */
+class SlskdSourceIndex {
+
+    private static final int MAX_SOURCES_PER_FILE = 10;
+
+    /**
+     * @param folder the fingerprints of the audio files in the source's folder, which peers with identical
+     *               folders share
+     */
+    record Source(String username, String filename, long size, String folder, int queueLength, long uploadSpeed,
+                  boolean hasFreeUploadSlot) {
+    }
+
+    private final Map<String, List<Source>> sourcesByFingerprint;
+
+    SlskdSourceIndex(int maxFingerprints) {
+        this.sourcesByFingerprint = new LinkedHashMap<>(1024, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, List<Source>> eldest) {
+                return size() > maxFingerprints;
+            }
+        };
+    }
+
+    /**
+     * Records every file of the given peers. Peers are expected best first, which keeps each source list ordered.
+     */
+    synchronized void record(List<SlskdSearchEntryResponse> peers) {
+        for (SlskdSearchEntryResponse peer : peers) {
+            Map<String, List<SoulseekFile>> folders = peer.files().stream()
+                    .filter(file -> file.filename() != null && file.size() > 0 && file.isAudioFile())
+                    .collect(Collectors.groupingBy(file -> parentOf(file.filename())));
+
+            folders.values().forEach(files -> {
+                String folder = files.stream()
+                        .map(file -> fingerprint(file.filename(), file.size()))
+                        .sorted()
+                        .collect(Collectors.joining("\n"));
+                for (SoulseekFile file : files) {
+                    List<Source> sources = sourcesByFingerprint.computeIfAbsent(
+                            fingerprint(file.filename(), file.size()), key -> new ArrayList<>());
+                    sources.removeIf(source -> source.username().equals(peer.username()));
+                    if (sources.size() < MAX_SOURCES_PER_FILE) {
+                        sources.add(new Source(peer.username(), file.filename(), file.size(), folder,
+                                peer.queueLength(), peer.uploadSpeed(), peer.hasFreeUploadSlot()));
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Peers known to share an identical file in a folder identical to the one {@code username} shares it in,
+     * best first, without the excluded users. Nothing when that folder is not known.
+     */
+    synchronized List<Source> alternatives(String username, String filename, long size, Set<String> excludedUsers) {
+        List<Source> sources = sourcesByFingerprint.get(fingerprint(filename, size));
+        if (sources == null) {
+            return List.of();
+        }
+        String folder = sources.stream()
+                .filter(source -> source.username().equals(username) && source.filename().equals(filename))
+                .map(Source::folder)
+                .findFirst()
+                .orElse(null);
+        if (folder == null) {
+            return List.of();
+        }
+        return sources.stream()
+                .filter(source -> source.folder().equals(folder))
+                .filter(source -> !excludedUsers.contains(source.username()))
+                .toList();
+    }
+
+    static String fingerprint(String filename, long size) {
+        return baseName(filename).toLowerCase(Locale.ROOT) + "|" + size;
+    }
+
+    private static String parentOf(String path) {
+        int lastSlash = Math.max(path.lastIndexOf('\\'), path.lastIndexOf('/'));
+        return lastSlash > 0 ? path.substring(0, lastSlash) : "";
+    }
+
+    static String baseName(String path) {
+        if (path == null) {
+            return "";
+        }
+        int lastSlash = Math.max(path.lastIndexOf('\\'), path.lastIndexOf('/'));
+        return lastSlash >= 0 ? path.substring(lastSlash + 1) : path;
+    }
+}
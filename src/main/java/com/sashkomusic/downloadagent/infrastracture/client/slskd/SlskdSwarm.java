@@ -0,0 +1,95 @@
+package com.sashkomusic.downloadagent.infrastracture.client.slskd;
+
+import com.sashkomusic.downloadagent.domain.model.DownloadOption;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Splits one Soulseek option across the peers sharing an identical folder.
+ * <p>
+ * The extra peers travel in the option's technical metadata ({@code mirror.<n>.username},
+ * {@code mirror.<n>.albumFolder}, {@code mirror.<n>.uploadSpeed}), since the option goes through the bot and back
+ * before it is downloaded. Files are assigned largest first to the peer that would finish them earliest given its
+ * upload speed and what it was already assigned.
+ */
+class SlskdSwarm {
+
+    static final String MIRROR_COUNT = "mirrors";
+    private static final long MIN_UPLOAD_SPEED = 16 * 1024;
+
+    record Peer(String username, String albumFolder, long uploadSpeed) {
+
+        /**
+         * The peer's path of a file from the option: identical folders hold the same file names.
+         */
+        String remoteFilename(DownloadOption.FileItem file) {
+            return albumFolder + "\\" + SlskdSourceIndex.baseName(file.filename());
+        }
+    }
+
+    static void putMirrors(Map<String, String> metadata, List<SlskdOptionRanker.Candidate> mirrors) {
+        metadata.put(MIRROR_COUNT, String.valueOf(mirrors.size()));
+        for (int i = 0; i < mirrors.size(); i++) {
+            SlskdOptionRanker.Candidate mirror = mirrors.get(i);
+            metadata.put("mirror." + i + ".username", mirror.peer().username());
+            metadata.put("mirror." + i + ".albumFolder", mirror.albumFolder());
+            metadata.put("mirror." + i + ".uploadSpeed", String.valueOf(mirror.peer().uploadSpeed()));
+        }
+    }
+
+    /**
+     * The option's own peer first, then its mirrors.
+     */
+    static List<Peer> peers(DownloadOption option) {
+        Map<String, String> metadata = option.technicalMetadata();
+        List<Peer> peers = new ArrayList<>();
+        peers.add(new Peer(metadata.get("username"), metadata.get("albumFolder"),
+                parseSpeed(metadata.get("uploadSpeed"))));
+
+        int mirrors = Integer.parseInt(metadata.getOrDefault(MIRROR_COUNT, "0"));
+        for (int i = 0; i < mirrors; i++) {
+            String username = metadata.get("mirror." + i + ".username");
+            String albumFolder = metadata.get("mirror." + i + ".albumFolder");
+            if (username != null && albumFolder != null) {
+                peers.add(new Peer(username, albumFolder, parseSpeed(metadata.get("mirror." + i + ".uploadSpeed"))));
+            }
+        }
+        return peers;
+    }
+
+    static Map<Peer, List<DownloadOption.FileItem>> split(List<DownloadOption.FileItem> files, List<Peer> peers) {
+        Map<Peer, List<DownloadOption.FileItem>> assignment = new LinkedHashMap<>();
+        long[] assignedBytes = new long[peers.size()];
+        peers.forEach(peer -> assignment.put(peer, new ArrayList<>()));
+
+        List<DownloadOption.FileItem> bySize = new ArrayList<>(files);
+        bySize.sort(Comparator.comparingLong(DownloadOption.FileItem::size).reversed());
+
+        for (DownloadOption.FileItem file : bySize) {
+            int best = 0;
+            double bestFinish = Double.MAX_VALUE;
+            for (int i = 0; i < peers.size(); i++) {
+                double finish = (double) (assignedBytes[i] + file.size()) / peers.get(i).uploadSpeed();
+                if (finish < bestFinish) {
+                    bestFinish = finish;
+                    best = i;
+                }
+            }
+            assignedBytes[best] += file.size();
+            assignment.get(peers.get(best)).add(file);
+        }
+        return assignment;
+    }
+
+    private static long parseSpeed(String value) {
+        try {
+            return Math.max(value != null ? Long.parseLong(value) : 0, MIN_UPLOAD_SPEED);
+        } catch (NumberFormatException e) {
+            return MIN_UPLOAD_SPEED;
+        }
+    }
+}
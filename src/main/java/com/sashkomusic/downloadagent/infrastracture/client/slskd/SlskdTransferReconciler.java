@@ -0,0 +1,231 @@
+package com.sashkomusic.downloadagent.infrastracture.client.slskd;
+
+import com.sashkomusic.downloadagent.config.SlskdPathConfig;
+import com.sashkomusic.downloadagent.domain.DownloadContext;
+import com.sashkomusic.downloadagent.domain.DownloadProgressAggregator;
+import com.sashkomusic.downloadagent.domain.DownloadVerifier;
+import com.sashkomusic.downloadagent.domain.journal.JournaledRelease;
+import com.sashkomusic.downloadagent.domain.model.DownloadBatch;
+import com.sashkomusic.downloadagent.infrastracture.client.slskd.dto.SlskdDownloadResponse;
+import com.sashkomusic.downloadagent.infrastracture.client.slskd.dto.SlskdUserTransfersResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.MediaType;
+import org.springframework.web.client.RestClient;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Matches the releases recovered after a restart against what slskd actually did meanwhile, using one
+ * {@code GET /api/v0/transfers/downloads} call for all users.
+ * <p>
+ * For every file of a recovered batch that is not completed yet, the transfers with its remote filename (or one
+ * of its aliases) decide what happens: a succeeded transfer completes the file, as its webhook would have; a
+ * queued or running one is followed by the watchdog again; a failed or missing one is enqueued again from the
+ * peer it was requested from.
+ */
+@Slf4j
+class SlskdTransferReconciler {
+
+    private static final ParameterizedTypeReference<List<SlskdUserTransfersResponse>> ALL_TRANSFERS =
+            new ParameterizedTypeReference<>() {
+            };
+
+    private final RestClient client;
+    private final String apiKey;
+    private final SlskdPathConfig pathConfig;
+    private final DownloadContext downloadContext;
+    private final SlskdTransferWatchdog transferWatchdog;
+    private final DownloadProgressAggregator progressAggregator;
+    private final DownloadVerifier downloadVerifier;
+
+    SlskdTransferReconciler(RestClient client, String apiKey, SlskdPathConfig pathConfig,
+                            DownloadContext downloadContext, SlskdTransferWatchdog transferWatchdog,
+                            DownloadProgressAggregator progressAggregator,
+                            DownloadVerifier downloadVerifier) {
+        this.client = client;
+        this.apiKey = apiKey;
+        this.pathConfig = pathConfig;
+        this.downloadContext = downloadContext;
+        this.transferWatchdog = transferWatchdog;
+        this.progressAggregator = progressAggregator;
+        this.downloadVerifier = downloadVerifier;
+    }
+
+    /**
+     * @throws org.springframework.web.client.RestClientException if slskd could not be asked for its transfers
+     */
+    void reconcile(List<JournaledRelease> releases) {
+        if (releases.isEmpty()) {
+            return;
+        }
+
+        long startedAt = System.currentTimeMillis();
+        Map<String, List<SlskdUserTransfersResponse.Transfer>> transfersByFilename = fetchAllTransfers();
+
+        for (JournaledRelease release : releases) {
+            DownloadBatch batch = downloadContext.findBatchByReleaseId(release.releaseId());
+            if (batch == null) {
+                continue;
+            }
+            try {
+                reconcile(release, batch, transfersByFilename);
+            } catch (Exception e) {
+                log.error("Failed to reconcile releaseId={}, following the journaled transfers: {}",
+                        release.releaseId(), e.getMessage(), e);
+                transferWatchdog.restore(release.releaseId(), release.transfers().values());
+            }
+        }
+
+        log.info("Reconciled {} releases with slskd in {}ms", releases.size(), System.currentTimeMillis() - startedAt);
+    }
+
+    private void reconcile(JournaledRelease release, DownloadBatch batch,
+                           Map<String, List<SlskdUserTransfersResponse.Transfer>> transfersByFilename) {
+        String releaseId = release.releaseId();
+        Map<String, List<String>> aliasesByFile = release.aliases().entrySet().stream()
+                .collect(Collectors.groupingBy(Map.Entry::getValue,
+                        Collectors.mapping(Map.Entry::getKey, Collectors.toList())));
+
+        List<JournaledRelease.Transfer> active = new ArrayList<>();
+        Map<String, List<JournaledRelease.Transfer>> toEnqueue = new LinkedHashMap<>();
+        int completed = 0;
+
+        for (String file : batch.getAllFiles()) {
+            if (batch.isFileCompleted(file)) {
+                continue;
+            }
+
+            JournaledRelease.Transfer journaled = release.transfers().get(file);
+            SlskdUserTransfersResponse.Transfer transfer = Stream
+                    .concat(Stream.of(file), aliasesByFile.getOrDefault(file, List.of()).stream())
+                    .flatMap(name -> transfersByFilename.getOrDefault(name, List.of()).stream())
+                    .min(Comparator.comparingInt(SlskdTransferReconciler::stateRank)
+                            .thenComparing(candidate -> journaled == null || !candidate.id().equals(journaled.id())))
+                    .orElse(null);
+
+            if (transfer != null && transfer.isSucceeded()) {
+                complete(batch, transfer);
+                completed++;
+            } else if (transfer != null && !transfer.isFailed()) {
+                active.add(new JournaledRelease.Transfer(file, transfer.id(), transfer.username(),
+                        transfer.filename(), transfer.size()));
+            } else if (transfer != null) {
+                toEnqueue.computeIfAbsent(transfer.username(), user -> new ArrayList<>()).add(
+                        new JournaledRelease.Transfer(file, transfer.id(), transfer.username(),
+                                transfer.filename(), transfer.size()));
+            } else if (journaled != null) {
+                toEnqueue.computeIfAbsent(journaled.username(), user -> new ArrayList<>()).add(journaled);
+            } else {
+                log.warn("No slskd transfer and no known peer for {} (releaseId={}), waiting for its webhook",
+                        file, releaseId);
+            }
+        }
+
+        int transferring = active.size();
+        toEnqueue.forEach((username, transfers) -> active.addAll(enqueue(username, transfers)));
+        transferWatchdog.restore(releaseId, active);
+
+        log.info("Reconciled releaseId={}: {} completed while down, {} still transferring, {} re-enqueued",
+                releaseId, completed, transferring, active.size() - transferring);
+
+        if (batch.tryClaimCompletion()) {
+            log.info("All files downloaded for release: {}", releaseId);
+            downloadVerifier.verifyAndComplete(batch);
+        }
+    }
+
+    /**
+     * Completes a file the way its webhook would have, with the container path slskd saved it under.
+     */
+    private void complete(DownloadBatch batch, SlskdUserTransfersResponse.Transfer transfer) {
+        String localFilename = pathConfig.containerDirectory(transfer.username(), parentOf(transfer.filename()))
+                + "/" + SlskdSourceIndex.baseName(transfer.filename());
+
+        if (downloadContext.markFileCompleted(transfer.filename(), localFilename) != null) {
+            progressAggregator.fileCompleted(batch, transfer.filename(), transfer.size());
+
+            String completedFilename = batch.getLocalFilename(transfer.filename());
+            if (completedFilename != null) {
+                downloadVerifier.announceReadyTrack(batch.getChatId(), batch.getReleaseId(),
+                        Path.of(completedFilename), batch.getExpectedSize(transfer.filename()));
+            }
+        }
+    }
+
+    private List<JournaledRelease.Transfer> enqueue(String username, List<JournaledRelease.Transfer> transfers) {
+        List<Map<String, Object>> files = transfers.stream()
+                .map(transfer -> Map.<String, Object>of("filename", transfer.filename(), "size", transfer.size()))
+                .toList();
+
+        SlskdDownloadResponse response;
+        try {
+            response = client.post()
+                    .uri("/api/v0/transfers/downloads/{username}", username)
+                    .header("X-API-KEY", apiKey)
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body(files)
+                    .retrieve()
+                    .body(SlskdDownloadResponse.class);
+        } catch (Exception e) {
+            log.warn("Re-enqueue of {} files from user={} failed, the watchdog will fail them over: {}",
+                    transfers.size(), username, e.getMessage());
+            return transfers;
+        }
+
+        Map<String, SlskdDownloadResponse.EnqueuedDownload> enqueued = new HashMap<>();
+        if (response != null && response.enqueued() != null) {
+            response.enqueued().forEach(download -> enqueued.put(download.filename(), download));
+        }
+
+        return transfers.stream()
+                .map(transfer -> {
+                    SlskdDownloadResponse.EnqueuedDownload download = enqueued.get(transfer.filename());
+                    return download == null ? transfer : new JournaledRelease.Transfer(transfer.batchFilename(),
+                            download.id(), username, download.filename(), download.size());
+                })
+                .toList();
+    }
+
+    private Map<String, List<SlskdUserTransfersResponse.Transfer>> fetchAllTransfers() {
+        List<SlskdUserTransfersResponse> users = client.get()
+                .uri("/api/v0/transfers/downloads")
+                .header("X-API-KEY", apiKey)
+                .retrieve()
+                .body(ALL_TRANSFERS);
+
+        if (users == null) {
+            return Map.of();
+        }
+        return users.stream()
+                .filter(user -> user.directories() != null)
+                .flatMap(user -> user.directories().stream())
+                .filter(directory -> directory.files() != null)
+                .flatMap(directory -> directory.files().stream())
+                .filter(transfer -> transfer.filename() != null && transfer.id() != null)
+                .collect(Collectors.groupingBy(SlskdUserTransfersResponse.Transfer::filename));
+    }
+
+    private static int stateRank(SlskdUserTransfersResponse.Transfer transfer) {
+        if (transfer.isSucceeded()) {
+            return 0;
+        }
+        if (transfer.isFailed()) {
+            return 2;
+        }
+        return 1;
+    }
+
+    private static String parentOf(String filename) {
+        int lastSlash = Math.max(filename.lastIndexOf('\\'), filename.lastIndexOf('/'));
+        return lastSlash > 0 ? filename.substring(0, lastSlash) : "";
+    }
+}
@@ -0,0 +1,418 @@
+package com.sashkomusic.downloadagent.infrastracture.client.slskd;
+
+import com.sashkomusic.downloadagent.domain.DownloadContext;
+import com.sashkomusic.downloadagent.domain.journal.DownloadJournal;
+import com.sashkomusic.downloadagent.domain.journal.JournaledRelease;
+import com.sashkomusic.downloadagent.domain.model.DownloadBatch;
+import com.sashkomusic.downloadagent.infrastracture.client.slskd.dto.SlskdDownloadResponse;
+import com.sashkomusic.downloadagent.infrastracture.client.slskd.dto.SlskdUserTransfersResponse;
+import com.sashkomusic.downloadagent.messaging.producer.DownloadErrorProducer;
+import com.sashkomusic.downloadagent.messaging.producer.dto.DownloadErrorDto;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
+import org.springframework.web.client.RestClient;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Follows the slskd transfers of every active release and moves the ones that stopped moving to peers sharing
+ * an identical folder.
+ */
+@Slf4j
+class SlskdTransferWatchdog {
+
+    private static final int MAX_REPORTED_FILES = 5;
+
+    private final RestClient client;
+    private final String apiKey;
+    private final SlskdSourceIndex sourceIndex;
+    private final DownloadContext downloadContext;
+    private final DownloadJournal journal;
+    private final DownloadErrorProducer errorProducer;
+    private final long minBytesPerSecond;
+    private final long stallWindowMs;
+    private final long queueTimeoutMs;
+    private final int maxFailovers;
+
+    // guarded by this, together with the identity (id, username, filename) of the tracked transfers;
+    // slskd is only called without holding the lock
+    private final Map<String, List<TrackedTransfer>> transfersByRelease = new HashMap<>();
+
+    SlskdTransferWatchdog(RestClient client, String apiKey, SlskdSourceIndex sourceIndex, DownloadContext downloadContext,
+                          DownloadJournal journal, DownloadErrorProducer errorProducer, long minBytesPerSecond,
+                          Duration stallWindow, Duration queueTimeout, int maxFailovers) {
+        this.client = client;
+        this.apiKey = apiKey;
+        this.sourceIndex = sourceIndex;
+        this.downloadContext = downloadContext;
+        this.journal = journal;
+        this.errorProducer = errorProducer;
+        this.minBytesPerSecond = minBytesPerSecond;
+        this.stallWindowMs = stallWindow.toMillis();
+        this.queueTimeoutMs = queueTimeout.toMillis();
+        this.maxFailovers = maxFailovers;
+    }
+
+    /**
+     * @param batchFilenames filename in the release's batch for transfers requested under another name (swarm peers)
+     */
+    void track(String releaseId, List<SlskdDownloadResponse.EnqueuedDownload> enqueued,
+               Map<String, String> batchFilenames) {
+        List<TrackedTransfer> transfers = enqueued.stream()
+                .map(download -> new TrackedTransfer(
+                        batchFilenames.getOrDefault(download.filename(), download.filename()),
+                        download.filename(), download.size(), download.id(), download.username()))
+                .collect(Collectors.toCollection(ArrayList::new));
+        synchronized (this) {
+            transfersByRelease.put(releaseId, transfers);
+        }
+        transfers.forEach(transfer -> journal.transferTracked(releaseId, transfer.toJournaled()));
+    }
+
+    /**
+     * Follows transfers of a release again after a restart.
+     */
+    void restore(String releaseId, Collection<JournaledRelease.Transfer> transfers) {
+        List<TrackedTransfer> tracked = transfers.stream()
+                .map(transfer -> new TrackedTransfer(transfer.batchFilename(), transfer.filename(), transfer.size(),
+                        transfer.id(), transfer.username()))
+                .collect(Collectors.toCollection(ArrayList::new));
+        synchronized (this) {
+            transfersByRelease.put(releaseId, tracked);
+        }
+        transfers.forEach(transfer -> journal.transferTracked(releaseId, transfer));
+    }
+
+    /**
+     * Stops following a release and cancels its unfinished transfers in slskd.
+     */
+    void cancel(String releaseId) {
+        List<TrackedTransfer> transfers;
+        synchronized (this) {
+            transfers = transfersByRelease.remove(releaseId);
+        }
+        if (transfers != null) {
+            transfers.forEach(this::cancelTransfer);
+        }
+    }
+
+    /**
+     * Runs on the scheduler only, so checks never overlap; transfer timing is only touched here.
+     */
+    void check() {
+        Map<String, List<TrackedTransfer>> releases = new HashMap<>();
+        synchronized (this) {
+            transfersByRelease.forEach((releaseId, transfers) -> releases.put(releaseId, List.copyOf(transfers)));
+        }
+
+        releases.forEach((releaseId, transfers) -> {
+            DownloadBatch batch = downloadContext.findBatchByReleaseId(releaseId);
+            if (batch == null) {
+                untrack(releaseId, transfers); // completed or cancelled
+                return;
+            }
+            try {
+                checkRelease(releaseId, batch, transfers);
+            } catch (Exception e) {
+                log.warn("Failed to check transfers for releaseId={}: {}", releaseId, e.getMessage());
+            }
+        });
+    }
+
+    private void checkRelease(String releaseId, DownloadBatch batch, List<TrackedTransfer> transfers) {
+        long now = System.currentTimeMillis();
+        List<TrackedTransfer> succeeded = new ArrayList<>();
+        List<TrackedTransfer> stalled = new ArrayList<>();
+
+        Map<String, List<TrackedTransfer>> byUser = transfers.stream()
+                .collect(Collectors.groupingBy(TrackedTransfer::username));
+
+        for (Map.Entry<String, List<TrackedTransfer>> userTransfers : byUser.entrySet()) {
+            Map<String, SlskdUserTransfersResponse.Transfer> states = fetchTransfers(userTransfers.getKey());
+
+            for (TrackedTransfer transfer : userTransfers.getValue()) {
+                SlskdUserTransfersResponse.Transfer state = states.get(transfer.id);
+                if (batch.isFileCompleted(transfer.batchFilename) || (state != null && state.isSucceeded())) {
+                    succeeded.add(transfer);
+                } else if (isStalled(transfer, state, now)) {
+                    stalled.add(transfer);
+                }
+            }
+        }
+
+        untrack(releaseId, succeeded);
+        if (!stalled.isEmpty()) {
+            failover(releaseId, stalled);
+        }
+    }
+
+    private synchronized void untrack(String releaseId, Collection<TrackedTransfer> transfers) {
+        List<TrackedTransfer> tracked = transfersByRelease.get(releaseId);
+        if (tracked != null) {
+            tracked.removeAll(transfers);
+            if (tracked.isEmpty()) {
+                transfersByRelease.remove(releaseId);
+            }
+        }
+    }
+
+    private synchronized boolean isTracked(String releaseId, TrackedTransfer transfer) {
+        List<TrackedTransfer> tracked = transfersByRelease.get(releaseId);
+        return tracked != null && tracked.contains(transfer);
+    }
+
+    private boolean isStalled(TrackedTransfer transfer, SlskdUserTransfersResponse.Transfer state, long now) {
+        if (state == null) {
+            // slskd drops finished transfers, so its webhook may still be on the way; only a transfer that
+            // stays missing for the queue timeout is given up on
+            if (transfer.missingSince == 0) {
+                transfer.missingSince = now;
+            }
+            return now - transfer.missingSince >= queueTimeoutMs;
+        }
+        transfer.missingSince = 0;
+        if (state.isFailed()) {
+            return true;
+        }
+
+        if (state.isQueued()) {
+            transfer.queued = true;
+            return now - transfer.windowStartedAt >= queueTimeoutMs;
+        }
+        if (transfer.queued) {
+            // the peer just started sending, throughput is measured from here
+            transfer.queued = false;
+            transfer.windowStartedAt = now;
+            transfer.windowStartBytes = state.bytesTransferred();
+            return false;
+        }
+
+        long elapsed = now - transfer.windowStartedAt;
+        if (elapsed < stallWindowMs) {
+            return false;
+        }
+
+        long bytesPerSecond = (state.bytesTransferred() - transfer.windowStartBytes) * 1000 / Math.max(elapsed, 1);
+        if (bytesPerSecond < minBytesPerSecond) {
+            log.info("Transfer stalled: user={}, file={}, {} B/s over {}s",
+                    transfer.username, SlskdSourceIndex.baseName(transfer.filename), bytesPerSecond, elapsed / 1000);
+            return true;
+        }
+
+        transfer.windowStartedAt = now;
+        transfer.windowStartBytes = state.bytesTransferred();
+        return false;
+    }
+
+    /**
+     * Moves stalled transfers to other peers, preferring the peer that can take over most of them at once.
+     * A transfer that already failed over {@code maxFailovers} times, or has no other peer left, fails the release.
+     */
+    private void failover(String releaseId, List<TrackedTransfer> stalled) {
+        List<TrackedTransfer> exhausted = stalled.stream()
+                .filter(transfer -> transfer.failovers >= maxFailovers)
+                .toList();
+        if (!exhausted.isEmpty()) {
+            log.warn("Transfers of releaseId={} stalled after {} failovers: {}", releaseId, maxFailovers,
+                    exhausted.stream().map(transfer -> transfer.batchFilename).toList());
+            giveUp(releaseId, exhausted);
+            return;
+        }
+
+        List<TrackedTransfer> remaining = new ArrayList<>(stalled);
+        while (!remaining.isEmpty()) {
+            Map<String, Map<TrackedTransfer, SlskdSourceIndex.Source>> coverage = new LinkedHashMap<>();
+            for (TrackedTransfer transfer : remaining) {
+                for (SlskdSourceIndex.Source source : sourceIndex.alternatives(transfer.username, transfer.filename,
+                        transfer.size, transfer.triedUsers)) {
+                    coverage.computeIfAbsent(source.username(), user -> new LinkedHashMap<>()).put(transfer, source);
+                }
+            }
+
+            var best = coverage.entrySet().stream()
+                    .max((a, b) -> Integer.compare(a.getValue().size(), b.getValue().size()))
+                    .orElse(null);
+            if (best == null) {
+                log.warn("No other peer shares the stalled files of releaseId={}: {}", releaseId,
+                        remaining.stream().map(transfer -> transfer.batchFilename).toList());
+                giveUp(releaseId, remaining);
+                return;
+            }
+
+            reassign(releaseId, best.getKey(), best.getValue());
+            remaining.removeAll(best.getValue().keySet());
+        }
+    }
+
+    private void reassign(String releaseId, String username, Map<TrackedTransfer, SlskdSourceIndex.Source> moves) {
+        List<Map<String, Object>> files = moves.values().stream()
+                .map(source -> Map.<String, Object>of("filename", source.filename(), "size", source.size()))
+                .toList();
+
+        SlskdDownloadResponse response;
+        try {
+            response = client.post()
+                    .uri("/api/v0/transfers/downloads/{username}", username)
+                    .header("X-API-KEY", apiKey)
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body(files)
+                    .retrieve()
+                    .body(SlskdDownloadResponse.class);
+        } catch (Exception e) {
+            log.warn("Failover enqueue to user={} failed: {}", username, e.getMessage());
+            moves.keySet().forEach(transfer -> transfer.triedUsers.add(username));
+            return;
+        }
+
+        Map<String, SlskdDownloadResponse.EnqueuedDownload> enqueued = new HashMap<>();
+        if (response != null && response.enqueued() != null) {
+            response.enqueued().forEach(download -> enqueued.put(download.filename(), download));
+        }
+
+        long now = System.currentTimeMillis();
+        moves.forEach((transfer, source) -> {
+            transfer.triedUsers.add(username);
+            SlskdDownloadResponse.EnqueuedDownload download = enqueued.get(source.filename());
+            if (download == null) {
+                return;
+            }
+
+            String previousUsername = transfer.username;
+            cancelTransfer(transfer);
+            boolean tracked;
+            synchronized (this) {
+                tracked = isTracked(releaseId, transfer);
+                if (tracked) {
+                    transfer.id = download.id();
+                    transfer.username = username;
+                    transfer.filename = download.filename();
+                }
+            }
+            if (!tracked) {
+                // the release was cancelled or finished meanwhile
+                cancelTransfer(download.id(), username);
+                return;
+            }
+
+            downloadContext.addRemoteAlias(releaseId, transfer.batchFilename, download.filename());
+            log.info("Failed over {} from user={} to user={} (releaseId={})",
+                    SlskdSourceIndex.baseName(transfer.batchFilename), previousUsername, username, releaseId);
+
+            transfer.failovers++;
+            transfer.windowStartedAt = now;
+            transfer.windowStartBytes = 0;
+            transfer.missingSince = 0;
+            transfer.queued = true;
+            journal.transferTracked(releaseId, transfer.toJournaled());
+        });
+    }
+
+    /**
+     * Cancels every unfinished transfer of the release and reports it as failed.
+     */
+    private void giveUp(String releaseId, List<TrackedTransfer> stuck) {
+        List<TrackedTransfer> transfers;
+        synchronized (this) {
+            transfers = transfersByRelease.remove(releaseId);
+        }
+        if (transfers == null) {
+            return; // cancelled meanwhile
+        }
+
+        transfers.forEach(this::cancelTransfer);
+        DownloadBatch batch = downloadContext.findBatchByReleaseId(releaseId);
+        if (batch == null || !downloadContext.removeBatchByReleaseId(releaseId)) {
+            return;
+        }
+
+        String names = stuck.stream()
+                .limit(MAX_REPORTED_FILES)
+                .map(transfer -> SlskdSourceIndex.baseName(transfer.batchFilename))
+                .collect(Collectors.joining(", "));
+        if (stuck.size() > MAX_REPORTED_FILES) {
+            names += " і ще " + (stuck.size() - MAX_REPORTED_FILES);
+        }
+        errorProducer.sendError(DownloadErrorDto.of(batch.getChatId(),
+                "завантаження застрягло, а інших джерел нема 😢: " + names));
+    }
+
+    private Map<String, SlskdUserTransfersResponse.Transfer> fetchTransfers(String username) {
+        SlskdUserTransfersResponse response = client.get()
+                .uri("/api/v0/transfers/downloads/{username}", username)
+                .header("X-API-KEY", apiKey)
+                .retrieve()
+                .body(SlskdUserTransfersResponse.class);
+
+        Map<String, SlskdUserTransfersResponse.Transfer> byId = new HashMap<>();
+        if (response != null && response.directories() != null) {
+            response.directories().stream()
+                    .filter(directory -> directory.files() != null)
+                    .flatMap(directory -> directory.files().stream())
+                    .forEach(transfer -> byId.put(transfer.id(), transfer));
+        }
+        return byId;
+    }
+
+    private void cancelTransfer(TrackedTransfer transfer) {
+        String id;
+        String username;
+        synchronized (this) {
+            id = transfer.id;
+            username = transfer.username;
+        }
+        cancelTransfer(id, username);
+    }
+
+    private void cancelTransfer(String id, String username) {
+        try {
+            client.delete()
+                    .uri("/api/v0/transfers/downloads/{username}/{id}?remove=true", username, id)
+                    .header("X-API-KEY", apiKey)
+                    .retrieve()
+                    .toBodilessEntity();
+            log.info("Cancelled Slskd transfer: {}", id);
+        } catch (Exception e) {
+            log.error("Failed to cancel transfer {}: {}", id, e.getMessage());
+        }
+    }
+
+    private static final class TrackedTransfer {
+        private final String batchFilename;
+        private final long size;
+        private final Set<String> triedUsers = new HashSet<>();
+        private String id;
+        private String username;
+        private String filename;
+        private int failovers;
+        private long windowStartedAt = System.currentTimeMillis();
+        private long windowStartBytes;
+        private long missingSince;
+        private boolean queued = true;
+
+        private TrackedTransfer(String batchFilename, String filename, long size, String id, String username) {
+            this.batchFilename = batchFilename;
+            this.filename = filename;
+            this.size = size;
+            this.id = id;
+            this.username = username;
+            this.triedUsers.add(username);
+        }
+
+        private String username() {
+            return username;
+        }
+
+        private JournaledRelease.Transfer toJournaled() {
+            return new JournaledRelease.Transfer(batchFilename, id, username, filename, size);
+        }
+    }
+}
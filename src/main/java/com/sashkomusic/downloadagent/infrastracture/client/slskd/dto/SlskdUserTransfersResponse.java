@@ -0,0 +1,44 @@
+package com.sashkomusic.downloadagent.infrastracture.client.slskd.dto;
+
+import java.util.List;
+
+/**
+ * Response of {@code GET /api/v0/transfers/downloads/{username}}: the user's download transfers grouped by remote directory.
+ */
+public record SlskdUserTransfersResponse(
+        String username,
+        List<Directory> directories
+) {
+    public record Directory(
+            String directory,
+            int fileCount,
+            List<Transfer> files
+    ) {
+    }
+
+    public record Transfer(
+            String id,
+            String username,
+            String filename,
+            long size,
+            String state,
+            long bytesTransferred,
+            double averageSpeed,
+            double percentComplete
+    ) {
+        public boolean isSucceeded() {
+            return state != null && state.contains("Succeeded");
+        }
+
+        /**
+         * Completed without the file: errored, rejected, timed out or cancelled.
+         */
+        public boolean isFailed() {
+            return state != null && state.startsWith("Completed") && !isSucceeded();
+        }
+
+        public boolean isQueued() {
+            return state != null && state.startsWith("Queued");
+        }
+    }
+}
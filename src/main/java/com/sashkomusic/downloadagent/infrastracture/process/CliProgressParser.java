@@ -0,0 +1,78 @@
+package com.sashkomusic.downloadagent.infrastracture.process;
+
+import com.sashkomusic.downloadagent.domain.model.DownloadProgress;
+
+import java.util.Optional;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Turns downloader CLI output lines into {@link DownloadProgress}. Track counters and percentages are
+ * usually printed on different lines, so one parser instance follows one process and keeps the last
+ * track it saw.
+ * <p>
+ * Recognized counters: "(Track 3/12 from URL 1/1)" and "Track 3 of 12" anywhere in a line, "[3/12]" or
+ * "(3/12)" at its start after an optional log prefix. Recognized percentages: progress bars such as
+ * "45%|████" and "[download]  45.2% of 8.43MiB". Percentages are ignored until a counter was seen,
+ * since the tools also print them in titles and quality notes.
+ */
+public class CliProgressParser {
+
+    private static final Pattern TRACK_COUNTER = Pattern.compile(
+            "(?i)\\btrack\\s+(\\d{1,3})\\s*(?:/|of)\\s*(\\d{1,3})\\b");
+    private static final Pattern LEADING_COUNTER = Pattern.compile(
+            "^(?:\\[[A-Z]+[^\\]]*]\\s*)?[\\[(]\\s*(\\d{1,3})\\s*/\\s*(\\d{1,3})\\s*[\\])]");
+    private static final Pattern BAR_PERCENT = Pattern.compile("(?<![\\d.])(\\d{1,3})%\\|");
+    private static final Pattern DOWNLOAD_PERCENT = Pattern.compile(
+            "^\\[download]\\s+(\\d{1,3}(?:\\.\\d+)?)%\\s+of\\b");
+
+    private int track;
+    private int totalTracks;
+    private double trackPercent;
+
+    /**
+     * @return the updated progress if the line carried any, empty otherwise
+     */
+    public Optional<DownloadProgress> accept(String line) {
+        boolean changed = false;
+
+        Matcher counter = TRACK_COUNTER.matcher(line);
+        if (!counter.find()) {
+            counter = LEADING_COUNTER.matcher(line);
+            if (!counter.find()) {
+                counter = null;
+            }
+        }
+        if (counter != null) {
+            int current = Integer.parseInt(counter.group(1));
+            int total = Integer.parseInt(counter.group(2));
+            if (current > 0 && current <= total) {
+                if (current != track) {
+                    trackPercent = 0;
+                }
+                track = current;
+                totalTracks = total;
+                changed = true;
+            }
+        }
+
+        if (track > 0) {
+            Matcher percent = BAR_PERCENT.matcher(line);
+            if (!percent.find()) {
+                percent = DOWNLOAD_PERCENT.matcher(line.strip());
+                if (!percent.find()) {
+                    percent = null;
+                }
+            }
+            if (percent != null) {
+                double value = Double.parseDouble(percent.group(1));
+                if (value <= 100) {
+                    trackPercent = value;
+                    changed = true;
+                }
+            }
+        }
+
+        return changed ? Optional.of(new DownloadProgress(track, totalTracks, trackPercent)) : Optional.empty();
+    }
+}
@@ -0,0 +1,253 @@
+package com.sashkomusic.downloadagent.infrastracture.process;
+
+import com.sashkomusic.downloadagent.config.ProcessSupervisorConfig;
+import com.sashkomusic.downloadagent.domain.model.DownloadEngine;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.function.Consumer;
+
+/**
+ * Runs the downloader CLIs (qobuz-dl, gamdl, bandcamp-dl) with a concurrency cap per engine.
+ * Invocations over the cap wait in a FIFO queue and start as running ones exit. Each process gets its own
+ * virtual thread that reads its output and waits for its exit, so nothing blocks the common pool.
+ * On shutdown queued invocations are cancelled and running process trees are terminated.
+ */
+@Slf4j
+@Component
+public class ProcessSupervisor {
+
+    private final Map<DownloadEngine, EngineSlots> slots = new EnumMap<>(DownloadEngine.class);
+    private volatile boolean shuttingDown;
+
+    public ProcessSupervisor(ProcessSupervisorConfig config, MeterRegistry meterRegistry) {
+        for (DownloadEngine engine : DownloadEngine.values()) {
+            EngineSlots engineSlots = new EngineSlots(config.maxConcurrentFor(engine));
+            slots.put(engine, engineSlots);
+            Gauge.builder("cli.processes.running", engineSlots, EngineSlots::running)
+                    .tag("engine", engine.name())
+                    .register(meterRegistry);
+            Gauge.builder("cli.processes.queued", engineSlots, EngineSlots::queued)
+                    .tag("engine", engine.name())
+                    .register(meterRegistry);
+        }
+    }
+
+    /**
+     * Starts the command now if the engine has a free slot, otherwise queues it.
+     *
+     * @param name short tool name used to prefix the process output in the log
+     */
+    public SupervisedProcess submit(DownloadEngine engine, String name, String... command) {
+        return submit(engine, name, line -> {
+        }, command);
+    }
+
+    /**
+     * Same as {@link #submit(DownloadEngine, String, String...)}, also passing every output line
+     * (stdout and stderr merged) to {@code outputListener} on the process' reader thread.
+     */
+    public SupervisedProcess submit(DownloadEngine engine, String name, Consumer<String> outputListener,
+                                    String... command) {
+        SupervisedProcess invocation = new SupervisedProcess(this, engine, name, List.of(command), outputListener);
+        EngineSlots engineSlots = slots.get(engine);
+
+        if (shuttingDown) {
+            invocation.exitFuture().completeExceptionally(new CancellationException("Supervisor is shutting down"));
+            return invocation;
+        }
+
+        boolean startNow;
+        synchronized (engineSlots) {
+            startNow = engineSlots.running < engineSlots.limit;
+            if (startNow) {
+                engineSlots.running++;
+                engineSlots.active.add(invocation);
+            } else {
+                engineSlots.pending.addLast(invocation);
+            }
+        }
+
+        if (startNow) {
+            start(invocation);
+        } else {
+            log.info("{} slots busy ({}), queued: {}", engine, engineSlots.limit, String.join(" ", command));
+        }
+        return invocation;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        shuttingDown = true;
+        List<SupervisedProcess> queued = new ArrayList<>();
+        List<SupervisedProcess> active = new ArrayList<>();
+        slots.values().forEach(engineSlots -> {
+            synchronized (engineSlots) {
+                queued.addAll(engineSlots.pending);
+                engineSlots.pending.clear();
+                active.addAll(engineSlots.active);
+            }
+        });
+
+        queued.forEach(invocation -> invocation.exitFuture()
+                .completeExceptionally(new CancellationException("Supervisor shut down while queued")));
+        for (SupervisedProcess invocation : active) {
+            Process process = invocation.process();
+            if (process != null && process.isAlive()) {
+                terminateTree(process.toHandle());
+                log.info("Terminated {} process tree on shutdown, pid={}", invocation.name(), process.pid());
+            }
+        }
+    }
+
+    void cancel(SupervisedProcess invocation) {
+        EngineSlots engineSlots = slots.get(invocation.engine());
+        boolean wasQueued;
+        synchronized (engineSlots) {
+            wasQueued = engineSlots.pending.remove(invocation);
+        }
+
+        if (wasQueued) {
+            invocation.exitFuture().completeExceptionally(new CancellationException("Cancelled while queued"));
+            log.info("Removed queued {} invocation", invocation.name());
+            return;
+        }
+
+        Process process = invocation.process();
+        if (process != null && process.isAlive()) {
+            killTree(process.toHandle());
+            log.info("Killed {} process tree, pid={}", invocation.name(), process.pid());
+        }
+    }
+
+    private void start(SupervisedProcess invocation) {
+        Thread.ofVirtual()
+                .name("cli-" + invocation.name())
+                .start(() -> run(invocation));
+    }
+
+    private void run(SupervisedProcess invocation) {
+        try {
+            if (invocation.isCancelled()) {
+                throw new CancellationException("Cancelled before start");
+            }
+
+            log.info("Executing command: {}", String.join(" ", invocation.command()));
+            Process process = new ProcessBuilder(invocation.command())
+                    .redirectErrorStream(true)
+                    .start();
+            invocation.attach(process);
+            if (invocation.isCancelled() || shuttingDown) {
+                // cancelled while starting: cancel() or shutdown() may have run before the process was attached
+                killTree(process.toHandle());
+                log.info("Killed {} process tree cancelled while starting, pid={}", invocation.name(), process.pid());
+            }
+
+            try (BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    log.info("[{}] {}", invocation.name(), line);
+                    notifyListener(invocation, line);
+                }
+            }
+
+            int exitCode = process.waitFor();
+            if (exitCode != 0) {
+                log.error("{} failed with exit code {}", invocation.name(), exitCode);
+            } else {
+                log.info("{} completed successfully", invocation.name());
+            }
+            invocation.exitFuture().complete(exitCode);
+
+        } catch (IOException e) {
+            log.error("Failed to start {} process: {}", invocation.name(), e.getMessage(), e);
+            invocation.exitFuture().completeExceptionally(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            invocation.exitFuture().completeExceptionally(e);
+        } catch (Exception e) {
+            invocation.exitFuture().completeExceptionally(e);
+        } finally {
+            release(invocation);
+        }
+    }
+
+    private static void notifyListener(SupervisedProcess invocation, String line) {
+        try {
+            invocation.outputListener().accept(line);
+        } catch (Exception e) {
+            log.warn("{} output listener failed: {}", invocation.name(), e.getMessage());
+        }
+    }
+
+    private void release(SupervisedProcess finished) {
+        EngineSlots engineSlots = slots.get(finished.engine());
+        SupervisedProcess next;
+        synchronized (engineSlots) {
+            engineSlots.active.remove(finished);
+            next = engineSlots.pending.pollFirst();
+            if (next == null) {
+                engineSlots.running--;
+            } else {
+                engineSlots.active.add(next);
+            }
+        }
+
+        // the freed slot goes straight to the next queued invocation
+        if (next != null) {
+            start(next);
+        }
+    }
+
+    private static void killTree(ProcessHandle root) {
+        // snapshot first: once the root is gone its children are re-parented and no longer listed
+        List<ProcessHandle> descendants = root.descendants().toList();
+        root.destroyForcibly();
+        descendants.forEach(ProcessHandle::destroyForcibly);
+    }
+
+    /**
+     * Like {@link #killTree(ProcessHandle)}, but asks the processes to exit so the CLIs can clean up after
+     * themselves.
+     */
+    private static void terminateTree(ProcessHandle root) {
+        List<ProcessHandle> descendants = root.descendants().toList();
+        root.destroy();
+        descendants.forEach(ProcessHandle::destroy);
+    }
+
+    private static final class EngineSlots {
+        private final int limit;
+        private final ArrayDeque<SupervisedProcess> pending = new ArrayDeque<>();
+        private final Set<SupervisedProcess> active = new HashSet<>();
+        private int running;
+
+        private EngineSlots(int limit) {
+            this.limit = limit;
+        }
+
+        private synchronized int running() {
+            return running;
+        }
+
+        private synchronized int queued() {
+            return pending.size();
+        }
+    }
+}
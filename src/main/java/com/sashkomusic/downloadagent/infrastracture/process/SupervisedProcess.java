@@ -0,0 +1,85 @@
+package com.sashkomusic.downloadagent.infrastracture.process;
+
+import com.sashkomusic.downloadagent.domain.model.DownloadEngine;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+/**
+ * One CLI invocation handed to {@link ProcessSupervisor}. It may wait in the engine's queue before it starts.
+ */
+public final class SupervisedProcess {
+
+    private final ProcessSupervisor supervisor;
+    private final DownloadEngine engine;
+    private final String name;
+    private final List<String> command;
+    private final Consumer<String> outputListener;
+    private final CompletableFuture<Integer> exit = new CompletableFuture<>();
+
+    private volatile Process process;
+    private volatile boolean cancelled;
+
+    SupervisedProcess(ProcessSupervisor supervisor, DownloadEngine engine, String name, List<String> command,
+                      Consumer<String> outputListener) {
+        this.supervisor = supervisor;
+        this.engine = engine;
+        this.name = name;
+        this.command = List.copyOf(command);
+        this.outputListener = outputListener;
+    }
+
+    public DownloadEngine engine() {
+        return engine;
+    }
+
+    public String name() {
+        return name;
+    }
+
+    public List<String> command() {
+        return command;
+    }
+
+    /**
+     * Completes with the exit code once the process has finished, or exceptionally if it could not be
+     * started or was cancelled while still queued.
+     */
+    public CompletableFuture<Integer> exit() {
+        return exit;
+    }
+
+    public boolean isRunning() {
+        Process current = process;
+        return current != null && current.isAlive();
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Removes the invocation from the queue, or kills the running process together with all its descendants.
+     */
+    public void cancel() {
+        cancelled = true;
+        supervisor.cancel(this);
+    }
+
+    Process process() {
+        return process;
+    }
+
+    Consumer<String> outputListener() {
+        return outputListener;
+    }
+
+    void attach(Process process) {
+        this.process = process;
+    }
+
+    CompletableFuture<Integer> exitFuture() {
+        return exit;
+    }
+}
@@ -1,5 +1,6 @@
 package com.sashkomusic.downloadagent.messaging.consumer;
 
+import com.sashkomusic.downloadagent.domain.DownloadScheduler;
 import com.sashkomusic.downloadagent.domain.DownloadService;
 import com.sashkomusic.downloadagent.messaging.consumer.dto.DownloadCancelTaskDto;
 import lombok.RequiredArgsConstructor;
@@ -12,12 +13,15 @@ import org.springframework.stereotype.Component;
 @RequiredArgsConstructor
 public class DownloadCancelListener {
 
+    private final DownloadScheduler downloadScheduler;
     private final DownloadService downloadService;
 
     @KafkaListener(topics = "download-cancel-tasks", groupId = "download-agent-group")
     public void handleCancelTask(DownloadCancelTaskDto dto) {
         log.info("Received cancel download task: chatId={}, releaseId={}",
                 dto.chatId(), dto.releaseId());
-        downloadService.cancelDownload(dto.chatId(), dto.releaseId());
+        if (!downloadScheduler.cancelQueued(dto.chatId(), dto.releaseId())) {
+            downloadService.cancelDownload(dto.chatId(), dto.releaseId());
+        }
     }
 }
@@ -1,6 +1,6 @@
 package com.sashkomusic.downloadagent.messaging.consumer;
 
-import com.sashkomusic.downloadagent.domain.DownloadService;
+import com.sashkomusic.downloadagent.domain.DownloadScheduler;
 import com.sashkomusic.downloadagent.messaging.consumer.dto.DownloadFilesTaskDto;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -12,11 +12,11 @@ import org.springframework.stereotype.Component;
 @RequiredArgsConstructor
 public class DownloadTaskListener {
 
-    private final DownloadService downloadService;
+    private final DownloadScheduler downloadScheduler;
 
     @KafkaListener(topics = "files-download-tasks", groupId = "download-agent-group")
     public void handleDownloadTask(DownloadFilesTaskDto dto) {
         log.info("Received download task: chatId={}, releaseId={}", dto.chatId(), dto.releaseId());
-        downloadService.download(dto);
+        downloadScheduler.submit(dto);
     }
 }
\ No newline at end of file
@@ -0,0 +1,89 @@
+package com.sashkomusic.downloadagent.messaging.consumer;
+
+import com.sashkomusic.downloadagent.domain.AcquisitionService;
+import com.sashkomusic.downloadagent.messaging.consumer.dto.SearchFilesTaskDto;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs search tasks off the Kafka listener thread. At most {@code maxConcurrent} searches run at once;
+ * when that many are in flight the search listener container is paused and it is resumed once
+ * the backlog has drained to half. Each record is acknowledged after its search finishes.
+ */
+@Slf4j
+@Component
+public class SearchTaskExecutor {
+
+    static final String LISTENER_ID = "search-task-listener";
+
+    private final AcquisitionService acquisitionService;
+    private final KafkaListenerEndpointRegistry listenerRegistry;
+    private final int maxConcurrent;
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Semaphore searchSlots;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private boolean paused;
+
+    public SearchTaskExecutor(AcquisitionService acquisitionService,
+                              KafkaListenerEndpointRegistry listenerRegistry,
+                              @Value("${search.tasks.max-concurrent:16}") int maxConcurrent) {
+        this.acquisitionService = acquisitionService;
+        this.listenerRegistry = listenerRegistry;
+        this.maxConcurrent = maxConcurrent;
+        this.searchSlots = new Semaphore(maxConcurrent, true);
+    }
+
+    public void submit(SearchFilesTaskDto task, Acknowledgment ack) {
+        inFlight.incrementAndGet();
+        updateFlowControl();
+
+        executor.execute(() -> {
+            try {
+                // records already fetched before the pause took effect wait here for a slot
+                searchSlots.acquire();
+                try {
+                    acquisitionService.search(task);
+                } finally {
+                    searchSlots.release();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (Exception e) {
+                log.error("Search task failed for chatId={}, releaseId={}: {}",
+                        task.chatId(), task.releaseId(), e.getMessage(), e);
+            } finally {
+                ack.acknowledge();
+                inFlight.decrementAndGet();
+                updateFlowControl();
+            }
+        });
+    }
+
+    private synchronized void updateFlowControl() {
+        int current = inFlight.get();
+        MessageListenerContainer container = listenerRegistry.getListenerContainer(LISTENER_ID);
+        if (container == null) {
+            return;
+        }
+
+        if (!paused && current >= maxConcurrent) {
+            container.pause();
+            paused = true;
+            log.info("Search executor saturated ({} in flight), pausing search task consumption", current);
+        } else if (paused && current <= maxConcurrent / 2) {
+            container.resume();
+            paused = false;
+            log.info("Search executor drained ({} in flight), resuming search task consumption", current);
+        }
+    }
+}
@@ -1,19 +1,20 @@
 package com.sashkomusic.downloadagent.messaging.consumer;
 
-import com.sashkomusic.downloadagent.domain.AcquisitionService;
 import com.sashkomusic.downloadagent.messaging.consumer.dto.SearchFilesTaskDto;
 import lombok.RequiredArgsConstructor;
 import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.support.Acknowledgment;
 import org.springframework.stereotype.Component;
 
 @Component
 @RequiredArgsConstructor
 public class SearchTaskListener {
 
-    private final AcquisitionService acquisitionService;
+    private final SearchTaskExecutor searchTaskExecutor;
 
-    @KafkaListener(topics = "files-search-tasks")
-    public void handleSearchTask(SearchFilesTaskDto task) {
-        acquisitionService.search(task);
+    @KafkaListener(id = SearchTaskExecutor.LISTENER_ID, idIsGroup = false, topics = "files-search-tasks",
+            containerFactory = "searchListenerContainerFactory")
+    public void handleSearchTask(SearchFilesTaskDto task, Acknowledgment ack) {
+        searchTaskExecutor.submit(task, ack);
     }
 }
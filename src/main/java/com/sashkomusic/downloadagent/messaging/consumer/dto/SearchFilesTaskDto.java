@@ -2,10 +2,16 @@ package com.sashkomusic.downloadagent.messaging.consumer.dto;
 
 import com.sashkomusic.downloadagent.domain.model.DownloadEngine;
 
+/**
+ * @param trackCount tracks of the release, null when unknown; a library folder only counts as the release
+ *                   when it holds that many
+ */
 public record SearchFilesTaskDto(
         long chatId,
         String releaseId,
         String artist,
         String title,
-        DownloadEngine source) {
+        DownloadEngine source,
+        boolean streaming,
+        Integer trackCount) {
 }
\ No newline at end of file
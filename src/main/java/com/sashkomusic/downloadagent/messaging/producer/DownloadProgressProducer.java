@@ -0,0 +1,22 @@
+package com.sashkomusic.downloadagent.messaging.producer;
+
+import com.sashkomusic.downloadagent.messaging.producer.dto.DownloadProgressDto;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Component;
+
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class DownloadProgressProducer {
+
+    private final KafkaTemplate<String, Object> kafkaTemplate;
+
+    public void sendProgress(DownloadProgressDto progress) {
+        log.info("Sending download progress: releaseId={}, {}/{} files, {} MB, eta={}s",
+                progress.releaseId(), progress.filesDone(), progress.totalFiles(), progress.doneMB(),
+                progress.etaSeconds());
+        kafkaTemplate.send("download-progress", progress);
+    }
+}
@@ -0,0 +1,21 @@
+package com.sashkomusic.downloadagent.messaging.producer;
+
+import com.sashkomusic.downloadagent.messaging.producer.dto.DownloadQueuedDto;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Component;
+
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class DownloadQueuedProducer {
+
+    private final KafkaTemplate<String, Object> kafkaTemplate;
+
+    public void sendQueued(DownloadQueuedDto queued) {
+        log.info("Sending download queued: releaseId={}, position={}, estimatedStart={}",
+                queued.releaseId(), queued.position(), queued.estimatedStart());
+        kafkaTemplate.send("download-queued", queued.releaseId(), queued);
+    }
+}
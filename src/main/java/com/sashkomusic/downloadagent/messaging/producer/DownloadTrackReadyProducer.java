@@ -0,0 +1,20 @@
+package com.sashkomusic.downloadagent.messaging.producer;
+
+import com.sashkomusic.downloadagent.messaging.producer.dto.DownloadTrackReadyDto;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Component;
+
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class DownloadTrackReadyProducer {
+
+    private final KafkaTemplate<String, Object> kafkaTemplate;
+
+    public void sendTrackReady(DownloadTrackReadyDto dto) {
+        log.info("Sending track ready: releaseId={}, path={}", dto.releaseId(), dto.path());
+        kafkaTemplate.send("download-track-ready", dto);
+    }
+}
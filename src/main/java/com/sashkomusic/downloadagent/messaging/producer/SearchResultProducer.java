@@ -3,6 +3,7 @@ package com.sashkomusic.downloadagent.messaging.producer;
 import com.sashkomusic.downloadagent.domain.model.DownloadEngine;
 import com.sashkomusic.downloadagent.domain.model.DownloadOption;
 import com.sashkomusic.downloadagent.messaging.producer.dto.SearchFilesResultDto;
+import com.sashkomusic.downloadagent.messaging.producer.dto.SearchFilesResultUpdateDto;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.kafka.core.KafkaTemplate;
@@ -17,13 +18,32 @@ public class SearchResultProducer {
 
     public static final String RESULT_TOPIC = "file-search-results";
 
-    private final KafkaTemplate<String, SearchFilesResultDto> kafkaTemplate;
+    private final KafkaTemplate<String, Object> kafkaTemplate;
 
     public void sendResults(long chatId, String releaseId, DownloadEngine source, List<DownloadOption> results, boolean autoDownload) {
         log.info("Sending {} results from {} back to chat {} (autoDownload={})", results.size(), source, chatId, autoDownload);
 
-        SearchFilesResultDto dto = new SearchFilesResultDto(chatId, releaseId, source, results, autoDownload);
+        SearchFilesResultDto dto = new SearchFilesResultDto(chatId, releaseId, source, results, autoDownload, null);
 
         kafkaTemplate.send(RESULT_TOPIC, dto);
     }
+
+    public void sendInLibrary(long chatId, String releaseId, DownloadEngine source, String libraryDirectory) {
+        log.info("Release {} is already in library at {}, telling chat {}", releaseId, libraryDirectory, chatId);
+
+        var dto = new SearchFilesResultDto(chatId, releaseId, source, List.of(), false, libraryDirectory);
+
+        kafkaTemplate.send(RESULT_TOPIC, dto);
+    }
+
+    public void sendUpdate(long chatId, String releaseId, DownloadEngine source, int version,
+                           List<DownloadOption> results, boolean complete, boolean autoDownload) {
+        log.info("Sending search update v{} with {} new results from {} to chat {} (complete={}, autoDownload={})",
+                version, results.size(), source, chatId, complete, autoDownload);
+
+        var dto = new SearchFilesResultUpdateDto(chatId, releaseId, source, version, results, complete, autoDownload);
+
+        // keyed by release so every update of one search lands on the same partition, in order
+        kafkaTemplate.send(RESULT_TOPIC, releaseId, dto);
+    }
 }
\ No newline at end of file
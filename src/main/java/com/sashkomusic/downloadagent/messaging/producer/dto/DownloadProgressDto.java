@@ -0,0 +1,30 @@
+package com.sashkomusic.downloadagent.messaging.producer.dto;
+
+import com.fasterxml.jackson.annotation.JsonTypeName;
+
+import java.util.List;
+
+/**
+ * Files of a release completed over one aggregation window, with the release's progress so far.
+ *
+ * @param totalMB    0 when the sizes of the files are unknown
+ * @param etaSeconds -1 when there is nothing to estimate from yet
+ */
+@JsonTypeName("download_progress")
+public record DownloadProgressDto(
+        long chatId,
+        String releaseId,
+        List<String> completedFiles,
+        int filesDone,
+        int totalFiles,
+        long doneMB,
+        long totalMB,
+        long etaSeconds
+) {
+    public static DownloadProgressDto of(long chatId, String releaseId, List<String> completedFiles,
+                                         int filesDone, int totalFiles, long doneBytes, long totalBytes,
+                                         long etaSeconds) {
+        return new DownloadProgressDto(chatId, releaseId, List.copyOf(completedFiles), filesDone, totalFiles,
+                doneBytes / (1024 * 1024), totalBytes / (1024 * 1024), etaSeconds);
+    }
+}
@@ -0,0 +1,18 @@
+package com.sashkomusic.downloadagent.messaging.producer.dto;
+
+import com.fasterxml.jackson.annotation.JsonTypeName;
+
+import java.time.Instant;
+
+@JsonTypeName("download_queued")
+public record DownloadQueuedDto(
+        long chatId,
+        String releaseId,
+        String source,
+        int position,
+        Instant estimatedStart
+) {
+    public static DownloadQueuedDto of(long chatId, String releaseId, String source, int position, Instant estimatedStart) {
+        return new DownloadQueuedDto(chatId, releaseId, source, position, estimatedStart);
+    }
+}
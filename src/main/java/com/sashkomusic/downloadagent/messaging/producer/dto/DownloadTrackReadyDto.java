@@ -0,0 +1,18 @@
+package com.sashkomusic.downloadagent.messaging.producer.dto;
+
+import com.fasterxml.jackson.annotation.JsonTypeName;
+
+/**
+ * One finished track of a release that is still downloading, at its final path in the library.
+ */
+@JsonTypeName("download_track_ready")
+public record DownloadTrackReadyDto(
+        long chatId,
+        String releaseId,
+        String path,
+        long sizeBytes
+) {
+    public static DownloadTrackReadyDto of(long chatId, String releaseId, String path, long sizeBytes) {
+        return new DownloadTrackReadyDto(chatId, releaseId, path, sizeBytes);
+    }
+}
@@ -5,10 +5,15 @@ import com.sashkomusic.downloadagent.domain.model.DownloadOption;
 
 import java.util.List;
 
+/**
+ * @param libraryDirectory the folder already holding the release, in which case nothing was searched;
+ *                         null for results of a search
+ */
 public record SearchFilesResultDto(
         long chatId,
         String releaseId,
         DownloadEngine source,
         List<DownloadOption> results,
-        boolean autoDownload) {
+        boolean autoDownload,
+        String libraryDirectory) {
 }
@@ -0,0 +1,22 @@
+package com.sashkomusic.downloadagent.messaging.producer.dto;
+
+import com.fasterxml.jackson.annotation.JsonTypeName;
+import com.sashkomusic.downloadagent.domain.model.DownloadEngine;
+import com.sashkomusic.downloadagent.domain.model.DownloadOption;
+
+import java.util.List;
+
+/**
+ * One step of a streamed search. {@code results} holds only the options that are new since the previous
+ * version, so consumers merge updates by option id; the last update has {@code complete = true}.
+ */
+@JsonTypeName("search_result_update")
+public record SearchFilesResultUpdateDto(
+        long chatId,
+        String releaseId,
+        DownloadEngine source,
+        int version,
+        List<DownloadOption> results,
+        boolean complete,
+        boolean autoDownload) {
+}
@@ -0,0 +1,74 @@
+package com.sashkomusic.downloadagent.api.webhook;
+
+import com.sashkomusic.downloadagent.api.webhook.dto.SlskdDownloadCompleteWebhook;
+import com.sashkomusic.downloadagent.config.SlskdPathConfig;
+import com.sashkomusic.downloadagent.domain.DownloadContext;
+import com.sashkomusic.downloadagent.domain.DownloadProgressAggregator;
+import com.sashkomusic.downloadagent.domain.DownloadVerifier;
+import com.sashkomusic.downloadagent.domain.journal.DownloadJournal;
+import com.sashkomusic.downloadagent.domain.model.DownloadBatch;
+import com.sashkomusic.downloadagent.domain.model.DownloadEngine;
+import com.sashkomusic.downloadagent.domain.model.DownloadOption;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.mockito.Mockito.*;
+
+class SlskdWebhookProcessorTest {
+
+    private static final String RELEASE_ID = "release-1";
+    private static final String FIRST = "@@peer\\Music\\Album\\01 - Intro.flac";
+    private static final String SECOND = "@@peer\\Music\\Album\\02 - Outro.flac";
+
+    private final DownloadProgressAggregator progressAggregator = mock(DownloadProgressAggregator.class);
+    private final DownloadVerifier downloadVerifier = mock(DownloadVerifier.class);
+    private DownloadContext downloadContext;
+    private SlskdWebhookProcessor processor;
+
+    @BeforeEach
+    void setUp() {
+        SlskdPathConfig pathConfig = new SlskdPathConfig();
+        pathConfig.setContainerPath("/downloads");
+        pathConfig.setLocalPath("/music/slskd");
+        downloadContext = new DownloadContext(pathConfig,
+                new DownloadJournal(Path.of("journal"), DataSize.ofMegabytes(4)));
+        // no consumers are started: stopConsumers handles the queued events as one drain
+        processor = new SlskdWebhookProcessor(progressAggregator, downloadContext, downloadVerifier,
+                new SimpleMeterRegistry(), 16, 0);
+    }
+
+    @Test
+    void handlesTheFilesOfOneDrainTogetherPerRelease() throws Exception {
+        downloadContext.registerBatch(7, RELEASE_ID, List.of(file(FIRST), file(SECOND)), DownloadEngine.SOULSEEK,
+                null);
+        DownloadBatch batch = downloadContext.findBatchByReleaseId(RELEASE_ID);
+
+        processor.submit(webhook(FIRST, 100));
+        processor.submit(webhook("@@other\\unrelated.flac", 50));
+        processor.submit(webhook(SECOND, 200));
+        processor.stopConsumers();
+
+        verify(progressAggregator).filesCompleted(same(batch), eq(Map.of(FIRST, 100L, SECOND, 200L)));
+        verify(downloadVerifier, times(2)).announceReadyTrack(eq(7L), eq(RELEASE_ID), any(), eq(100L));
+        verify(downloadVerifier).verifyAndComplete(batch);
+        verifyNoMoreInteractions(progressAggregator);
+    }
+
+    private static SlskdDownloadCompleteWebhook webhook(String remoteFilename, long size) {
+        String local = "/downloads/peer/" + remoteFilename.substring(remoteFilename.lastIndexOf('\\') + 1);
+        SlskdDownloadCompleteWebhook.Transfer transfer = new SlskdDownloadCompleteWebhook.Transfer(
+                "id", "peer", "Download", remoteFilename, size, 0, "Completed, Succeeded", null,
+                null, null, null, null, size, 0, 0, null, 100, null);
+        return new SlskdDownloadCompleteWebhook("DownloadFileComplete", 0, local, remoteFilename, transfer, "id", null);
+    }
+
+    private static DownloadOption.FileItem file(String filename) {
+        return new DownloadOption.FileItem(filename, 100, null, 16, 44_100, 180);
+    }
+}
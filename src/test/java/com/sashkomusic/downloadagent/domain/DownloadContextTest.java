@@ -0,0 +1,108 @@
+package com.sashkomusic.downloadagent.domain;
+
+import com.sashkomusic.downloadagent.config.SlskdPathConfig;
+import com.sashkomusic.downloadagent.domain.journal.DownloadJournal;
+import com.sashkomusic.downloadagent.domain.model.DownloadBatch;
+import com.sashkomusic.downloadagent.domain.model.DownloadEngine;
+import com.sashkomusic.downloadagent.domain.model.DownloadOption;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DownloadContextTest {
+
+    private static final String RELEASE_ID = "release-1";
+    private static final String FIRST = "@@peer\\Music\\Album\\01 - Intro.flac";
+    private static final String SECOND = "@@peer\\Music\\Album\\02 - Outro.flac";
+    private static final String MIRRORED = "@@mirror\\Rips\\Album\\02 - Outro.flac";
+
+    @TempDir
+    Path localPath;
+
+    private DownloadContext downloadContext;
+    private Path releaseDirectory;
+
+    @BeforeEach
+    void setUp() {
+        SlskdPathConfig pathConfig = new SlskdPathConfig();
+        pathConfig.setContainerPath("/downloads");
+        pathConfig.setLocalPath(localPath.toString());
+        downloadContext = new DownloadContext(pathConfig,
+                new DownloadJournal(Path.of("journal"), DataSize.ofMegabytes(4)));
+        releaseDirectory = localPath.resolve("peer/@@peer/Music/Album");
+    }
+
+    @Test
+    void collectsFilesOfEveryPeerInTheReleaseDirectory() throws IOException {
+        downloadContext.registerBatch(7, RELEASE_ID, List.of(file(FIRST), file(SECOND)), DownloadEngine.SOULSEEK,
+                releaseDirectory.toString());
+        downloadContext.addRemoteAlias(RELEASE_ID, SECOND, MIRRORED);
+
+        downloadContext.markFileCompleted(FIRST, download("peer/@@peer/Music/Album/01 - Intro.flac"));
+        DownloadBatch batch = downloadContext.markFileCompleted(MIRRORED,
+                download("mirror/@@mirror/Rips/Album/02 - Outro.flac"));
+
+        assertThat(batch.isComplete()).isTrue();
+        assertThat(batch.getLocalDirectoryPath()).isEqualTo(releaseDirectory.toString());
+        assertThat(batch.getLocalFilenames()).containsExactly(
+                releaseDirectory.resolve("01 - Intro.flac").toString(),
+                releaseDirectory.resolve("02 - Outro.flac").toString());
+        assertThat(releaseDirectory.resolve("02 - Outro.flac")).exists();
+        assertThat(localPath.resolve("mirror/@@mirror/Rips/Album/02 - Outro.flac")).doesNotExist();
+    }
+
+    @Test
+    void keepsFileWhereSlskdSavedItWhenTheReleaseDirectoryHasOneByThatName() throws IOException {
+        downloadContext.registerBatch(7, RELEASE_ID, List.of(file(FIRST), file(SECOND)), DownloadEngine.SOULSEEK,
+                releaseDirectory.toString());
+        downloadContext.addRemoteAlias(RELEASE_ID, SECOND, MIRRORED);
+        Files.createDirectories(releaseDirectory);
+        Files.writeString(releaseDirectory.resolve("02 - Outro.flac"), "already there");
+
+        DownloadBatch batch = downloadContext.markFileCompleted(MIRRORED,
+                download("mirror/@@mirror/Rips/Album/02 - Outro.flac"));
+
+        assertThat(batch.getLocalFilename(SECOND))
+                .isEqualTo(localPath.resolve("mirror/@@mirror/Rips/Album/02 - Outro.flac").toString());
+        assertThat(releaseDirectory.resolve("02 - Outro.flac")).hasContent("already there");
+    }
+
+    @Test
+    void completesEachBatchWaitingForTheSameRemoteFilename() {
+        downloadContext.registerBatch(7, RELEASE_ID, List.of(file(FIRST)), DownloadEngine.SOULSEEK, null);
+        downloadContext.registerBatch(8, "release-2", List.of(file(FIRST), file(SECOND)), DownloadEngine.SOULSEEK,
+                null);
+
+        DownloadBatch first = downloadContext.markFileCompleted(FIRST, "/downloads/peer/a.flac");
+        DownloadBatch second = downloadContext.markFileCompleted(FIRST, "/downloads/other/a.flac");
+
+        assertThat(first.getReleaseId()).isEqualTo(RELEASE_ID);
+        assertThat(first.isComplete()).isTrue();
+        assertThat(second.getReleaseId()).isEqualTo("release-2");
+        assertThat(second.getRemainingCount()).isEqualTo(1);
+        assertThat(downloadContext.findBatchByRemoteFilename(FIRST)).isNull();
+        assertThat(downloadContext.findBatchByRemoteFilename(SECOND)).isSameAs(second);
+    }
+
+    /**
+     * Writes a file where slskd would have saved it and returns its container path.
+     */
+    private String download(String relativePath) throws IOException {
+        Path file = localPath.resolve(relativePath);
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, relativePath);
+        return "/downloads/" + relativePath;
+    }
+
+    private static DownloadOption.FileItem file(String filename) {
+        return new DownloadOption.FileItem(filename, 100, null, 16, 44_100, 180);
+    }
+}
@@ -0,0 +1,115 @@
+package com.sashkomusic.downloadagent.domain;
+
+import com.sashkomusic.downloadagent.domain.model.DownloadBatch;
+import com.sashkomusic.downloadagent.domain.model.DownloadEngine;
+import com.sashkomusic.downloadagent.messaging.producer.DownloadCompleteProducer;
+import com.sashkomusic.downloadagent.messaging.producer.DownloadProgressProducer;
+import com.sashkomusic.downloadagent.messaging.producer.dto.DownloadCompleteDto;
+import com.sashkomusic.downloadagent.messaging.producer.dto.DownloadProgressDto;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+class DownloadProgressAggregatorTest {
+
+    private static final long MB = 1024 * 1024;
+
+    private final DownloadCompleteProducer completeProducer = mock(DownloadCompleteProducer.class);
+    private final DownloadProgressProducer progressProducer = mock(DownloadProgressProducer.class);
+    private DownloadProgressAggregator aggregator;
+
+    @AfterEach
+    void tearDown() {
+        aggregator.shutdown();
+    }
+
+    @Test
+    void coalescesCompletionsOfOneWindow() {
+        aggregator = new DownloadProgressAggregator(completeProducer, progressProducer, Duration.ofMillis(300));
+        DownloadBatch batch = batch("release-1", "a.flac", "b.flac", "c.flac");
+
+        complete(batch, "a.flac");
+        complete(batch, "b.flac");
+        verify(progressProducer, never()).sendProgress(any());
+
+        ArgumentCaptor<DownloadProgressDto> progress = ArgumentCaptor.forClass(DownloadProgressDto.class);
+        verify(progressProducer, timeout(2_000)).sendProgress(progress.capture());
+        assertThat(progress.getValue().releaseId()).isEqualTo("release-1");
+        assertThat(progress.getValue().completedFiles()).containsExactly("a.flac", "b.flac");
+        assertThat(progress.getValue().filesDone()).isEqualTo(2);
+        assertThat(progress.getValue().totalFiles()).isEqualTo(3);
+        assertThat(progress.getValue().doneMB()).isEqualTo(20);
+        assertThat(progress.getValue().totalMB()).isEqualTo(30);
+        verify(completeProducer, times(2)).sendComplete(any(DownloadCompleteDto.class));
+    }
+
+    @Test
+    void flushesRightAwayWhenTheLastFileCompletes() {
+        aggregator = new DownloadProgressAggregator(completeProducer, progressProducer, Duration.ofMinutes(1));
+        DownloadBatch batch = batch("release-1", "a.flac", "b.flac");
+
+        complete(batch, "a.flac");
+        complete(batch, "b.flac");
+
+        ArgumentCaptor<DownloadProgressDto> progress = ArgumentCaptor.forClass(DownloadProgressDto.class);
+        verify(progressProducer).sendProgress(progress.capture());
+        assertThat(progress.getValue().completedFiles()).containsExactly("a.flac", "b.flac");
+        assertThat(progress.getValue().filesDone()).isEqualTo(2);
+        assertThat(progress.getValue().etaSeconds()).isZero();
+    }
+
+    @Test
+    void opensOneWindowPerRelease() {
+        aggregator = new DownloadProgressAggregator(completeProducer, progressProducer, Duration.ofMillis(200));
+        DownloadBatch first = batch("release-1", "a.flac", "b.flac");
+        DownloadBatch second = batch("release-2", "c.flac", "d.flac");
+
+        complete(first, "a.flac");
+        complete(second, "c.flac");
+
+        ArgumentCaptor<DownloadProgressDto> progress = ArgumentCaptor.forClass(DownloadProgressDto.class);
+        verify(progressProducer, timeout(2_000).times(2)).sendProgress(progress.capture());
+        assertThat(progress.getAllValues())
+                .extracting(DownloadProgressDto::releaseId, DownloadProgressDto::completedFiles)
+                .containsExactlyInAnyOrder(
+                        tuple("release-1", List.of("a.flac")),
+                        tuple("release-2", List.of("c.flac")));
+    }
+
+    @Test
+    void zeroWindowReportsEveryFileAsComplete() {
+        aggregator = new DownloadProgressAggregator(completeProducer, progressProducer, Duration.ZERO);
+        DownloadBatch batch = batch("release-1", "a.flac", "b.flac");
+
+        complete(batch, "a.flac");
+        complete(batch, "b.flac");
+
+        verify(completeProducer, times(2)).sendComplete(any(DownloadCompleteDto.class));
+        verify(progressProducer, never()).sendProgress(any());
+    }
+
+    private void complete(DownloadBatch batch, String file) {
+        String remote = "@@peer\\Album\\" + file;
+        batch.markFileCompleted(remote, "/music/Album/" + file);
+        aggregator.fileCompleted(batch, remote, 10 * MB);
+    }
+
+    private static DownloadBatch batch(String releaseId, String... files) {
+        List<String> remote = Arrays.stream(files).map(file -> "@@peer\\Album\\" + file).toList();
+        List<Long> sizes = remote.stream().map(file -> 10 * MB).toList();
+        return new DownloadBatch(7L, releaseId, "@@peer\\Album", remote, sizes, DownloadEngine.SOULSEEK);
+    }
+}
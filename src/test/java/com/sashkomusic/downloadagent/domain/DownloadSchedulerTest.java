@@ -0,0 +1,178 @@
+package com.sashkomusic.downloadagent.domain;
+
+import com.sashkomusic.downloadagent.config.DownloadSchedulerConfig;
+import com.sashkomusic.downloadagent.domain.model.DownloadBatch;
+import com.sashkomusic.downloadagent.domain.model.DownloadEngine;
+import com.sashkomusic.downloadagent.domain.model.DownloadOption;
+import com.sashkomusic.downloadagent.messaging.consumer.dto.DownloadFilesTaskDto;
+import com.sashkomusic.downloadagent.messaging.producer.DownloadErrorProducer;
+import com.sashkomusic.downloadagent.messaging.producer.DownloadQueuedProducer;
+import com.sashkomusic.downloadagent.messaging.producer.dto.DownloadQueuedDto;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class DownloadSchedulerTest {
+
+    private final DownloadService downloadService = mock(DownloadService.class);
+    private final DownloadContext downloadContext = mock(DownloadContext.class);
+    private final DownloadQueuedProducer queuedProducer = mock(DownloadQueuedProducer.class);
+    private final DownloadErrorProducer errorProducer = mock(DownloadErrorProducer.class);
+    private final List<String> started = new ArrayList<>();
+    private final DownloadSchedulerConfig config = new DownloadSchedulerConfig();
+
+    @BeforeEach
+    void setUp() {
+        Map<DownloadEngine, Integer> slots = new EnumMap<>(DownloadEngine.class);
+        slots.put(DownloadEngine.QOBUZ, 1);
+        config.setSlots(slots);
+        doAnswer(invocation -> started.add(invocation.<DownloadFilesTaskDto>getArgument(0).releaseId()))
+                .when(downloadService).download(any());
+    }
+
+    @Test
+    void queuesDownloadsOverTheEngineSlots() {
+        DownloadScheduler scheduler = scheduler();
+
+        scheduler.submit(task(1, "r1"));
+        scheduler.submit(task(2, "r2"));
+
+        assertThat(started).containsExactly("r1");
+
+        ArgumentCaptor<DownloadQueuedDto> queued = ArgumentCaptor.forClass(DownloadQueuedDto.class);
+        verify(queuedProducer).sendQueued(queued.capture());
+        assertThat(queued.getValue().releaseId()).isEqualTo("r2");
+        assertThat(queued.getValue().position()).isEqualTo(1);
+    }
+
+    @Test
+    void startsNextDownloadOnceTheBatchIsGone() {
+        DownloadScheduler scheduler = scheduler();
+        scheduler.submit(task(1, "r1"));
+        scheduler.submit(task(1, "r2"));
+
+        assertThat(drain(scheduler, 2)).containsExactly("r1", "r2");
+    }
+
+    @Test
+    void keepsSlotWhileTheBatchIsStillActive() {
+        when(downloadContext.findBatchByReleaseId("r1")).thenReturn(mock(DownloadBatch.class));
+        DownloadScheduler scheduler = scheduler();
+        scheduler.submit(task(1, "r1"));
+        scheduler.submit(task(1, "r2"));
+
+        scheduler.releaseFinished();
+
+        assertThat(started).containsExactly("r1");
+    }
+
+    @Test
+    void recoveredBatchHoldsItsSlot() {
+        DownloadBatch recovered = mock(DownloadBatch.class);
+        when(recovered.getReleaseId()).thenReturn("recovered");
+        when(recovered.getSource()).thenReturn(DownloadEngine.QOBUZ);
+        when(downloadContext.activeBatches()).thenReturn(List.of(recovered));
+        when(downloadContext.findBatchByReleaseId("recovered")).thenReturn(recovered);
+        DownloadScheduler scheduler = scheduler();
+        scheduler.seedRecovered();
+
+        scheduler.submit(task(1, "r1"));
+        scheduler.releaseFinished();
+        assertThat(started).isEmpty();
+
+        when(downloadContext.findBatchByReleaseId("recovered")).thenReturn(null);
+        scheduler.releaseFinished();
+        assertThat(started).containsExactly("r1");
+    }
+
+    @Test
+    void servesEveryWaitingChatBeforeAChatsNextRelease() {
+        DownloadScheduler scheduler = scheduler();
+        scheduler.submit(task(1, "chat1-a"));
+        scheduler.submit(task(1, "chat1-b"));
+        scheduler.submit(task(1, "chat1-c"));
+        scheduler.submit(task(1, "chat1-d"));
+        scheduler.submit(task(2, "chat2-a"));
+        scheduler.submit(task(3, "chat3-a"));
+
+        List<String> order = drain(scheduler, 6);
+
+        assertThat(order.indexOf("chat2-a")).isLessThan(order.indexOf("chat1-c"));
+        assertThat(order.indexOf("chat3-a")).isLessThan(order.indexOf("chat1-c"));
+        assertThat(order).containsSubsequence("chat1-a", "chat1-b", "chat1-c", "chat1-d");
+    }
+
+    @Test
+    void heavierChatGetsProportionallyMoreStarts() {
+        config.setChatWeights(Map.of(1L, 2));
+        DownloadScheduler scheduler = scheduler();
+        scheduler.submit(task(3, "blocker"));
+        for (int i = 0; i < 4; i++) {
+            scheduler.submit(task(1, "heavy-" + i));
+            scheduler.submit(task(2, "light-" + i));
+        }
+
+        List<String> order = drain(scheduler, 9).subList(1, 7);
+
+        assertThat(order.stream().filter(id -> id.startsWith("heavy"))).hasSize(4);
+        assertThat(order.stream().filter(id -> id.startsWith("light"))).hasSize(2);
+    }
+
+    @Test
+    void rejectsReleaseThatIsAlreadyQueued() {
+        DownloadScheduler scheduler = scheduler();
+        scheduler.submit(task(1, "r1"));
+        scheduler.submit(task(2, "r2"));
+        scheduler.submit(task(3, "r2"));
+
+        verify(errorProducer).sendError(any());
+        assertThat(drain(scheduler, 2)).containsExactly("r1", "r2");
+    }
+
+    @Test
+    void cancelsQueuedDownloadBeforeItStarts() {
+        DownloadScheduler scheduler = scheduler();
+        scheduler.submit(task(1, "r1"));
+        scheduler.submit(task(2, "r2"));
+        scheduler.submit(task(3, "r3"));
+
+        assertThat(scheduler.cancelQueued(3, "r2")).isFalse();
+        assertThat(scheduler.cancelQueued(2, "r2")).isTrue();
+        assertThat(scheduler.cancelQueued(2, "missing")).isFalse();
+
+        assertThat(drain(scheduler, 2)).containsExactly("r1", "r3");
+    }
+
+    /**
+     * Starts downloads on the calling thread, so a download has run by the time submit or releaseFinished returns.
+     */
+    private DownloadScheduler scheduler() {
+        return new DownloadScheduler(downloadService, downloadContext, queuedProducer, errorProducer, config,
+                Runnable::run);
+    }
+
+    /**
+     * Lets every started download finish right away until {@code count} have started.
+     */
+    private List<String> drain(DownloadScheduler scheduler, int count) {
+        for (int i = 0; i < count && started.size() < count; i++) {
+            scheduler.releaseFinished();
+        }
+        assertThat(started).hasSize(count);
+        return List.copyOf(started);
+    }
+
+    private static DownloadFilesTaskDto task(long chatId, String releaseId) {
+        DownloadOption option = new DownloadOption(releaseId, DownloadEngine.QOBUZ, releaseId, 0, List.of(), Map.of());
+        return new DownloadFilesTaskDto(chatId, releaseId, option);
+    }
+}
@@ -0,0 +1,144 @@
+package com.sashkomusic.downloadagent.domain;
+
+import com.sashkomusic.downloadagent.config.SearchCacheConfig;
+import com.sashkomusic.downloadagent.domain.exception.MusicDownloadException;
+import com.sashkomusic.downloadagent.domain.model.DownloadEngine;
+import com.sashkomusic.downloadagent.domain.model.DownloadOption;
+import com.sashkomusic.downloadagent.domain.model.SearchKey;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+class SearchResultCacheTest {
+
+    private static final String ARTIST = "Nthng";
+    private static final String TITLE = "Hypnotherapy";
+    private static final SearchKey KEY = SearchKey.of(DownloadEngine.QOBUZ, ARTIST, TITLE);
+
+    private final MusicSourcePort source = mock(MusicSourcePort.class);
+    private final InFlightSearches inFlightSearches = new InFlightSearches();
+    private SearchResultCache cache;
+
+    @BeforeEach
+    void setUp() {
+        SearchCacheConfig config = new SearchCacheConfig();
+        config.setDefaultTtl(Duration.ofMillis(100));
+        config.setNegativeTtl(Duration.ofMillis(100));
+        config.setStaleWindow(Duration.ofMinutes(1));
+        cache = new SearchResultCache(Map.of(DownloadEngine.QOBUZ, source), config, new SimpleMeterRegistry(),
+                inFlightSearches);
+    }
+
+    @Test
+    void servesFreshEntryWithoutSearching() {
+        cache.put(KEY, ARTIST, TITLE, List.of(option("a")));
+
+        assertThat(cache.get(KEY)).contains(List.of(option("a")));
+        verifyNoInteractions(source);
+    }
+
+    @Test
+    void dropsEmptyEntryOnceItExpires() throws Exception {
+        cache.put(KEY, ARTIST, TITLE, List.of());
+        assertThat(cache.get(KEY)).contains(List.of());
+
+        Thread.sleep(150);
+
+        assertThat(cache.get(KEY)).isEmpty();
+        verifyNoInteractions(source);
+    }
+
+    @Test
+    void servesStaleEntryWhileRevalidating() throws Exception {
+        when(source.search(ARTIST, TITLE)).thenReturn(List.of(option("b")));
+        cache.put(KEY, ARTIST, TITLE, List.of(option("a")));
+        Thread.sleep(150);
+
+        assertThat(cache.get(KEY)).contains(List.of(option("a")));
+
+        verify(source, timeout(1_000)).search(ARTIST, TITLE);
+        assertThat(awaitResults(List.of(option("b")))).isEqualTo(List.of(option("b")));
+    }
+
+    @Test
+    void keepsStaleEntryWhenRevalidationFails() throws Exception {
+        when(source.search(ARTIST, TITLE)).thenThrow(new MusicDownloadException("Qobuz search failed: timeout"));
+        cache.put(KEY, ARTIST, TITLE, List.of(option("a")));
+        Thread.sleep(150);
+
+        cache.get(KEY);
+
+        verify(source, timeout(1_000)).search(ARTIST, TITLE);
+        assertThat(awaitResults(List.of())).isEqualTo(List.of(option("a")));
+    }
+
+    @Test
+    void keepsStaleEntryWhenRevalidationFindsNothing() throws Exception {
+        when(source.search(ARTIST, TITLE)).thenReturn(List.of());
+        cache.put(KEY, ARTIST, TITLE, List.of(option("a")));
+        Thread.sleep(150);
+
+        cache.get(KEY);
+
+        verify(source, timeout(1_000)).search(ARTIST, TITLE);
+        assertThat(awaitResults(List.of())).isEqualTo(List.of(option("a")));
+    }
+
+    @Test
+    void revalidatesWithTheSearchAlreadyInFlight() throws Exception {
+        cache.put(KEY, ARTIST, TITLE, List.of(option("a")));
+        Thread.sleep(150);
+        CompletableFuture<List<DownloadOption>> running = new CompletableFuture<>();
+        inFlightSearches.join(KEY, running::join);
+
+        cache.get(KEY);
+        running.complete(List.of(option("b")));
+
+        assertThat(awaitResults(List.of(option("b")))).isEqualTo(List.of(option("b")));
+        verifyNoInteractions(source);
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedEntry() {
+        SearchCacheConfig config = new SearchCacheConfig();
+        config.setMaxEntries(2);
+        SearchResultCache small = new SearchResultCache(Map.of(DownloadEngine.QOBUZ, source), config,
+                new SimpleMeterRegistry(), inFlightSearches);
+        SearchKey first = SearchKey.of(DownloadEngine.QOBUZ, "a", "1");
+        SearchKey second = SearchKey.of(DownloadEngine.QOBUZ, "b", "2");
+        SearchKey third = SearchKey.of(DownloadEngine.QOBUZ, "c", "3");
+
+        small.put(first, "a", "1", List.of(option("1")));
+        small.put(second, "b", "2", List.of(option("2")));
+        small.get(first);
+        small.put(third, "c", "3", List.of(option("3")));
+
+        assertThat(small.get(first)).isPresent();
+        assertThat(small.get(second)).isEmpty();
+        assertThat(small.get(third)).isPresent();
+    }
+
+    /**
+     * Waits for a revalidation to replace the entry with {@code expected}, returning what the cache holds.
+     */
+    private List<DownloadOption> awaitResults(List<DownloadOption> expected) throws InterruptedException {
+        List<DownloadOption> current = cache.get(KEY).orElseThrow();
+        for (int i = 0; i < 20 && !current.equals(expected); i++) {
+            Thread.sleep(25);
+            current = cache.get(KEY).orElseThrow();
+        }
+        return current;
+    }
+
+    private static DownloadOption option(String id) {
+        return new DownloadOption(id, DownloadEngine.QOBUZ, ARTIST + " - " + TITLE, 0, List.of(), Map.of());
+    }
+}
@@ -0,0 +1,125 @@
+package com.sashkomusic.downloadagent.domain;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TrackSetTest {
+
+    @TempDir
+    Path directory;
+
+    private final TrackSet trackSet = new TrackSet();
+    private final List<String> files = new ArrayList<>();
+
+    @Test
+    void completesOnceEveryTrackUpToTheTotalIsThere() throws IOException {
+        track("01.flac", "TRACKNUMBER=1/3");
+        track("03.flac", "TRACKNUMBER=3/3");
+        trackSet.update(files);
+
+        assertThat(trackSet.isComplete()).isFalse();
+        assertThat(trackSet.missingTracks()).containsExactly("1-2");
+
+        track("02.flac", "TRACKNUMBER=2", "TRACKTOTAL=3");
+        trackSet.update(files);
+
+        assertThat(trackSet.isComplete()).isTrue();
+        assertThat(trackSet.missingTracks()).isEmpty();
+        assertThat(trackSet.durationMillis()).isEqualTo(3_000);
+    }
+
+    @Test
+    void waitsForEveryDiscTheTagsDeclare() throws IOException {
+        track("1-01.flac", "TRACKNUMBER=1/2", "DISCNUMBER=1/2");
+        track("1-02.flac", "TRACKNUMBER=2/2", "DISCNUMBER=1/2");
+        trackSet.update(files);
+
+        assertThat(trackSet.isComplete()).isFalse();
+
+        track("2-01.flac", "TRACKNUMBER=1/1", "DISCNUMBER=2/2");
+        trackSet.update(files);
+
+        assertThat(trackSet.isComplete()).isTrue();
+    }
+
+    @Test
+    void neverCompletesWithoutTotals() throws IOException {
+        track("01.flac", "TRACKNUMBER=1");
+        track("02.flac", "TRACKNUMBER=2");
+        trackSet.update(files);
+
+        assertThat(trackSet.isComplete()).isFalse();
+        assertThat(trackSet.missingTracks()).isEmpty();
+    }
+
+    @Test
+    void neverCompletesWithNumberedDiscsButNoDiscTotal() throws IOException {
+        track("1-01.flac", "TRACKNUMBER=1/1", "DISCNUMBER=1");
+        trackSet.update(files);
+
+        assertThat(trackSet.isComplete()).isFalse();
+    }
+
+    @Test
+    void rereadsChangedFilesAndForgetsRemovedOnes() throws IOException {
+        track("01.flac", "TRACKNUMBER=1/2");
+        track("02.flac", "TRACKNUMBER=5");
+        trackSet.update(files);
+        assertThat(trackSet.isComplete()).isFalse();
+
+        track("02.flac", "TRACKNUMBER=2/2", "COMMENT=retagged");
+        trackSet.update(files);
+        assertThat(trackSet.isComplete()).isTrue();
+
+        files.remove(directory.resolve("01.flac").toString());
+        trackSet.update(files);
+        assertThat(trackSet.isComplete()).isFalse();
+        assertThat(trackSet.missingTracks()).containsExactly("1-1");
+    }
+
+    /**
+     * Writes a one second FLAC header with the given Vorbis comments.
+     */
+    private void track(String name, String... comments) throws IOException {
+        ByteBuffer streamInfo = ByteBuffer.allocate(34)
+                .putShort((short) 4096)
+                .putShort((short) 4096)
+                .put(new byte[6])
+                .putLong((44_100L << 44) | (15L << 36) | 44_100);
+
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        ByteBuffer number = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN);
+        body.writeBytes(number.putInt(0, 0).array());
+        body.writeBytes(number.putInt(0, comments.length).array());
+        for (String comment : comments) {
+            byte[] bytes = comment.getBytes(StandardCharsets.UTF_8);
+            body.writeBytes(number.putInt(0, bytes.length).array());
+            body.writeBytes(bytes);
+        }
+
+        ByteArrayOutputStream flac = new ByteArrayOutputStream();
+        flac.writeBytes("fLaC".getBytes(StandardCharsets.ISO_8859_1));
+        flac.writeBytes(new byte[]{0x00, 0, 0, 34});
+        flac.writeBytes(streamInfo.array());
+        flac.writeBytes(new byte[]{(byte) 0x84, 0, (byte) (body.size() >>> 8), (byte) body.size()});
+        flac.writeBytes(body.toByteArray());
+
+        Path file = directory.resolve(name);
+        Files.write(file, flac.toByteArray());
+        if (!files.contains(file.toString())) {
+            files.add(file.toString());
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package com.sashkomusic.downloadagent.domain.journal;
+
+import com.sashkomusic.downloadagent.domain.model.DownloadEngine;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DownloadJournalTest {
+
+    private static final int HEADER_BYTES = Integer.BYTES + Long.BYTES;
+    private static final JournaledRelease.Transfer TRANSFER =
+            new JournaledRelease.Transfer("@@peer\\Album\\b.flac", "t1", "peer", "@@peer\\Album\\b.flac", 20);
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void writesEveryRecordAsChecksummedFrame() throws Exception {
+        DownloadJournal journal = open();
+        List<JournalRecord> records = List.of(
+                new JournalRecord.BatchRegistered(7, "r1", DownloadEngine.SOULSEEK, List.of("a.flac"), List.of(10L), null),
+                new JournalRecord.FileCompleted("r1", "a.flac", null),
+                new JournalRecord.Released("r1"));
+
+        journal.batchRegistered(7, "r1", DownloadEngine.SOULSEEK, List.of("a.flac"), List.of(10L), null);
+        journal.fileCompleted("r1", "a.flac", null);
+        journal.released("r1");
+        awaitLogSize(logSize(records));
+
+        ByteBuffer log = ByteBuffer.wrap(Files.readAllBytes(directory.resolve("journal.log")));
+        log.position(HEADER_BYTES);
+        List<JournalRecord> written = new ArrayList<>();
+        while (log.hasRemaining()) {
+            int length = log.getInt();
+            int checksum = log.getInt();
+            byte[] payload = new byte[length];
+            log.get(payload);
+            CRC32 crc = new CRC32();
+            crc.update(payload);
+            assertThat((int) crc.getValue()).isEqualTo(checksum);
+            written.add(JournalRecord.readFrom(new DataInputStream(new ByteArrayInputStream(payload))));
+        }
+        assertThat(written).isEqualTo(records);
+    }
+
+    @Test
+    void replaysLogAfterCrash() throws Exception {
+        DownloadJournal journal = open();
+        writeTwoReleases(journal);
+
+        List<JournaledRelease> recovered = open().recovered();
+
+        assertThat(recovered).hasSize(1);
+        JournaledRelease release = recovered.getFirst();
+        assertThat(release.chatId()).isEqualTo(7);
+        assertThat(release.releaseId()).isEqualTo("r1");
+        assertThat(release.files()).containsExactly("@@peer\\Album\\a.flac", "@@peer\\Album\\b.flac");
+        assertThat(release.sizes()).containsExactly(10L, 20L);
+        assertThat(release.directory()).isEqualTo("/music/Album");
+        assertThat(release.completedFiles()).containsExactly(Map.entry("@@peer\\Album\\a.flac", "/music/a.flac"));
+        assertThat(release.transfers()).containsExactly(Map.entry("@@peer\\Album\\b.flac", TRANSFER));
+    }
+
+    @Test
+    void cutsOffTornFrameAtEndOfLog() throws Exception {
+        DownloadJournal journal = open();
+        long intact = writeTwoReleases(journal);
+        try (var log = Files.newOutputStream(directory.resolve("journal.log"), StandardOpenOption.APPEND)) {
+            log.write(ByteBuffer.allocate(13).putInt(100).putInt(12345).put(new byte[]{1, 2, 3, 4, 5}).array());
+        }
+
+        List<JournaledRelease> recovered = open().recovered();
+
+        assertThat(recovered).extracting(JournaledRelease::releaseId).containsExactly("r1");
+        assertThat(Files.size(directory.resolve("journal.log"))).isEqualTo(intact);
+    }
+
+    @Test
+    void recoversFromSnapshotAfterCleanShutdown() throws Exception {
+        DownloadJournal journal = open();
+        writeTwoReleases(journal);
+        journal.close();
+
+        assertThat(Files.size(directory.resolve("journal.log"))).isEqualTo(HEADER_BYTES);
+        List<JournaledRelease> recovered = open().recovered();
+
+        assertThat(recovered).extracting(JournaledRelease::releaseId).containsExactly("r1");
+        assertThat(recovered.getFirst().transfers()).containsExactly(Map.entry("@@peer\\Album\\b.flac", TRANSFER));
+    }
+
+    @Test
+    void recoversTracksPromotedAheadOfTheirRelease() throws Exception {
+        DownloadJournal journal = open();
+        JournaledRelease.Monitor monitor = new JournaledRelease.Monitor("/music", 2, "Artist", "Album", true);
+        journal.batchRegistered(7, "r1", DownloadEngine.QOBUZ, List.of(), List.of(), "/music");
+        journal.monitorStarted("r1", monitor);
+        journal.trackPromoted("r1", "/music/Artist/Album/01.flac");
+        awaitLogSize(logSize(List.of(
+                new JournalRecord.BatchRegistered(7, "r1", DownloadEngine.QOBUZ, List.of(), List.of(), "/music"),
+                new JournalRecord.MonitorStarted("r1", monitor),
+                new JournalRecord.TrackPromoted("r1", "/music/Artist/Album/01.flac"))));
+
+        assertThat(open().recovered().getFirst().promotedFiles()).containsExactly("/music/Artist/Album/01.flac");
+        journal.close();
+        assertThat(open().recovered().getFirst().promotedFiles()).containsExactly("/music/Artist/Album/01.flac");
+    }
+
+    /**
+     * @return the size of the log once both releases are written
+     */
+    private long writeTwoReleases(DownloadJournal journal) throws Exception {
+        List<String> files = List.of("@@peer\\Album\\a.flac", "@@peer\\Album\\b.flac");
+        journal.batchRegistered(7, "r1", DownloadEngine.SOULSEEK, files, List.of(10L, 20L), "/music/Album");
+        journal.fileCompleted("r1", files.getFirst(), "/music/a.flac");
+        journal.transferTracked("r1", TRANSFER);
+        journal.batchRegistered(8, "r2", DownloadEngine.QOBUZ, List.of(), List.of(), null);
+        journal.released("r2");
+
+        long size = logSize(List.of(
+                new JournalRecord.BatchRegistered(7, "r1", DownloadEngine.SOULSEEK, files, List.of(10L, 20L),
+                        "/music/Album"),
+                new JournalRecord.FileCompleted("r1", files.getFirst(), "/music/a.flac"),
+                new JournalRecord.TransferTracked("r1", TRANSFER),
+                new JournalRecord.BatchRegistered(8, "r2", DownloadEngine.QOBUZ, List.of(), List.of(), null),
+                new JournalRecord.Released("r2")));
+        awaitLogSize(size);
+        return size;
+    }
+
+    private DownloadJournal open() throws IOException {
+        DownloadJournal journal = new DownloadJournal(directory, DataSize.ofMegabytes(4));
+        journal.open();
+        return journal;
+    }
+
+    private void awaitLogSize(long size) throws Exception {
+        Path log = directory.resolve("journal.log");
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (Files.size(log) < size && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(Files.size(log)).isEqualTo(size);
+    }
+
+    private static long logSize(List<JournalRecord> records) throws IOException {
+        long size = HEADER_BYTES;
+        for (JournalRecord record : records) {
+            ByteArrayOutputStream payload = new ByteArrayOutputStream();
+            record.writeTo(new DataOutputStream(payload));
+            size += 2 * Integer.BYTES + payload.size();
+        }
+        return size;
+    }
+}
@@ -0,0 +1,120 @@
+package com.sashkomusic.downloadagent.domain.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DownloadBatchTest {
+
+    @Test
+    void completesOnceEveryFileIsMarked() {
+        DownloadBatch batch = batch(List.of("a.flac", "b.flac"), List.of(10L, 20L));
+
+        assertThat(batch.markFileCompleted("a.flac", "/local/a.flac")).isTrue();
+        assertThat(batch.isComplete()).isFalse();
+        assertThat(batch.markFileCompleted("b.flac", "/local/b.flac")).isTrue();
+
+        assertThat(batch.isComplete()).isTrue();
+        assertThat(batch.getLocalFilenames()).containsExactly("/local/a.flac", "/local/b.flac");
+        assertThat(batch.getLocalDirectoryPath()).isEqualTo("/local");
+    }
+
+    @Test
+    void ignoresUnknownAndRepeatedFiles() {
+        DownloadBatch batch = batch(List.of("a.flac", "b.flac"), List.of());
+
+        assertThat(batch.markFileCompleted("c.flac", "/local/c.flac")).isFalse();
+        assertThat(batch.markFileCompleted("a.flac", "/local/a.flac")).isTrue();
+        assertThat(batch.markFileCompleted("a.flac", "/local/a.flac")).isFalse();
+
+        assertThat(batch.getRemainingCount()).isEqualTo(1);
+    }
+
+    @Test
+    void aliasCompletesTheFileItReplaces() {
+        DownloadBatch batch = batch(List.of("@@peer1\\Album\\a.flac"), List.of(10L));
+
+        assertThat(batch.addAlias("@@peer1\\Album\\a.flac", "@@peer2\\Album\\a.flac")).isTrue();
+        assertThat(batch.addAlias("@@peer1\\Album\\missing.flac", "@@peer2\\Album\\missing.flac")).isFalse();
+        assertThat(batch.markFileCompleted("@@peer2\\Album\\a.flac", "/local/a.flac")).isTrue();
+
+        assertThat(batch.isComplete()).isTrue();
+        assertThat(batch.isFileCompleted("@@peer1\\Album\\a.flac")).isTrue();
+        assertThat(batch.getLocalFilename("@@peer1\\Album\\a.flac")).isEqualTo("/local/a.flac");
+        assertThat(batch.markFileCompleted("@@peer1\\Album\\a.flac", "/local/a.flac")).isFalse();
+    }
+
+    @Test
+    void sumsExpectedSizesOfCompletedFiles() {
+        DownloadBatch batch = batch(List.of("a.flac", "b.flac", "c.flac"), List.of(10L, 20L, 30L));
+        batch.markFileCompleted("b.flac", "/local/b.flac");
+
+        assertThat(batch.getCompletedExpectedSize()).isEqualTo(20);
+        assertThat(batch.getTotalExpectedSize()).isEqualTo(60);
+        assertThat(batch.getExpectedSize("c.flac")).isEqualTo(30);
+        assertThat(batch.getExpectedLocalSizes()).containsExactlyEntriesOf(Map.of("/local/b.flac", 20L));
+    }
+
+    @Test
+    void totalExpectedSizeIsUnknownWhenAnySizeIsMissing() {
+        DownloadBatch batch = batch(List.of("a.flac", "b.flac"), List.of(10L));
+
+        assertThat(batch.getTotalExpectedSize()).isZero();
+    }
+
+    @Test
+    void concurrentWebhooksCompleteEveryFileExactlyOnce() throws Exception {
+        int files = 200; // spans several words of the completion bitset
+        int threads = 8;
+        List<String> names = IntStream.range(0, files).mapToObj(i -> "track" + i + ".flac").toList();
+        DownloadBatch batch = batch(names, List.of());
+
+        AtomicInteger marked = new AtomicInteger();
+        AtomicInteger claimed = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> workers = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                workers.add(executor.submit(() -> {
+                    start.await();
+                    for (String name : names) {
+                        if (batch.markFileCompleted(name, "/local/" + name)) {
+                            marked.incrementAndGet();
+                        }
+                        if (batch.tryClaimCompletion()) {
+                            claimed.incrementAndGet();
+                        }
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> worker : workers) {
+                worker.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(marked.get()).isEqualTo(files);
+        assertThat(claimed.get()).isEqualTo(1);
+        assertThat(batch.getRemainingCount()).isZero();
+        assertThat(batch.getLocalFilenames()).hasSize(files);
+        assertThat(names).allMatch(batch::isFileCompleted);
+    }
+
+    private static DownloadBatch batch(List<String> files, List<Long> sizes) {
+        return new DownloadBatch(1L, "release-1", "@@peer1\\Album", files, sizes, DownloadEngine.SOULSEEK);
+    }
+}
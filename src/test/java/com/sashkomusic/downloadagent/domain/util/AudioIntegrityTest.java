@@ -0,0 +1,205 @@
+package com.sashkomusic.downloadagent.domain.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AudioIntegrityTest {
+
+    private static final int BLOCK_SIZE = 4096;
+    private static final int FRAMES = 20;
+    private static final int LAST_BLOCK_SIZE = 1000;
+    private static final long TOTAL_SAMPLES = (long) BLOCK_SIZE * (FRAMES - 1) + LAST_BLOCK_SIZE;
+
+    // MPEG-1 layer III, 128 kbit/s, 44.1 kHz, no padding: 417 byte frames
+    private static final int MP3_HEADER = 0xFFFB9000;
+    private static final int MP3_FRAME_BYTES = 417;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void acceptsIntactFlac() throws IOException {
+        byte[] flac = flac(TOTAL_SAMPLES);
+
+        assertThat(check("ok.flac", flac, flac.length)).isNull();
+    }
+
+    @Test
+    void findsFlippedByteByFrameCrc() throws IOException {
+        byte[] flac = flac(TOTAL_SAMPLES);
+        flac[flac.length / 2] ^= 0x55;
+
+        assertThat(check("flip.flac", flac, 0)).startsWith("damaged or truncated frame at");
+    }
+
+    @Test
+    void findsTruncatedFlac() throws IOException {
+        byte[] flac = flac(TOTAL_SAMPLES);
+
+        assertThat(check("trunc.flac", Arrays.copyOf(flac, flac.length - 5_000), 0)).isNotNull();
+    }
+
+    @Test
+    void findsFlacShorterThanStreamInfoDeclares() throws IOException {
+        assertThat(check("short.flac", flac(TOTAL_SAMPLES + BLOCK_SIZE), 0))
+                .isEqualTo(TOTAL_SAMPLES + " samples, STREAMINFO declares " + (TOTAL_SAMPLES + BLOCK_SIZE));
+    }
+
+    @Test
+    void rejectsFlacWithoutMarker() throws IOException {
+        byte[] flac = flac(TOTAL_SAMPLES);
+        flac[0] = 'X';
+
+        assertThat(check("bad.flac", flac, 0)).isEqualTo("no fLaC marker");
+    }
+
+    @Test
+    void walksMp3FramesBetweenTags() throws IOException {
+        byte[] mp3 = concat(id3v2(), mp3Frames(300), id3v1());
+
+        assertThat(check("ok.mp3", mp3, mp3.length)).isNull();
+    }
+
+    @Test
+    void findsTruncatedLastMp3Frame() throws IOException {
+        byte[] mp3 = concat(id3v2(), mp3Frames(300));
+
+        assertThat(check("trunc.mp3", Arrays.copyOf(mp3, mp3.length - 100), 0)).startsWith("truncated frame at");
+    }
+
+    @Test
+    void findsMp3AudioOutOfSync() throws IOException {
+        byte[] junk = new byte[5_000];
+        Arrays.fill(junk, (byte) 1);
+        byte[] mp3 = concat(id3v2(), mp3Frames(150), junk, mp3Frames(150));
+
+        assertThat(check("junk.mp3", mp3, 0)).isEqualTo("5000 bytes out of frame sync");
+    }
+
+    @Test
+    void checksSizeOfEveryFormat() throws IOException {
+        byte[] m4a = new byte[1_000];
+
+        assertThat(check("track.m4a", m4a, 1_000)).isNull();
+        assertThat(check("track.m4a", m4a, 2_000)).isEqualTo("size 1000 bytes, expected 2000");
+        assertThat(check("empty.m4a", new byte[0], 0)).isEqualTo("empty file");
+        assertThat(AudioIntegrity.check(directory.resolve("missing.flac"), 0)).isEqualTo("missing");
+    }
+
+    private String check(String name, byte[] content, long expectedSize) throws IOException {
+        Path file = directory.resolve(name);
+        Files.write(file, content);
+        return AudioIntegrity.check(file, expectedSize);
+    }
+
+    /**
+     * Mono 16 bit FLAC with verbatim subframes of random samples.
+     */
+    private static byte[] flac(long declaredSamples) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.writeBytes("fLaC".getBytes());
+
+        ByteBuffer streamInfo = ByteBuffer.allocate(34)
+                .putShort((short) BLOCK_SIZE)
+                .putShort((short) BLOCK_SIZE)
+                .put(new byte[6])
+                .putLong((44_100L << 44) | (15L << 36) | declaredSamples);
+        out.write(0x00);
+        out.writeBytes(int24(34));
+        out.writeBytes(streamInfo.array());
+        out.write(0x81); // last block: padding
+        out.writeBytes(int24(100));
+        out.writeBytes(new byte[100]);
+
+        Random random = new Random(1);
+        for (int frame = 0; frame < FRAMES; frame++) {
+            int blockSize = frame < FRAMES - 1 ? BLOCK_SIZE : LAST_BLOCK_SIZE;
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            // block size code 7 (16 bit size follows), 44.1 kHz, mono, 16 bit, frame number < 128
+            bytes.writeBytes(new byte[]{(byte) 0xFF, (byte) 0xF8, (byte) 0x79, 0x08, (byte) frame,
+                    (byte) ((blockSize - 1) >>> 8), (byte) (blockSize - 1)});
+            bytes.write(crc8(bytes.toByteArray()));
+            bytes.write(0x02); // verbatim subframe
+            for (int i = 0; i < blockSize; i++) {
+                short sample = (short) (random.nextInt(60_000) - 30_000);
+                bytes.write(sample >>> 8);
+                bytes.write(sample);
+            }
+            int crc = crc16(bytes.toByteArray());
+            bytes.write(crc >>> 8);
+            bytes.write(crc);
+            out.writeBytes(bytes.toByteArray());
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] mp3Frames(int count) {
+        ByteBuffer frames = ByteBuffer.allocate(count * MP3_FRAME_BYTES);
+        for (int i = 0; i < count; i++) {
+            frames.putInt(i * MP3_FRAME_BYTES, MP3_HEADER);
+        }
+        return frames.array();
+    }
+
+    private static byte[] id3v2() {
+        byte[] tag = new byte[20];
+        tag[0] = 'I';
+        tag[1] = 'D';
+        tag[2] = '3';
+        tag[3] = 3;
+        tag[9] = 10;
+        return tag;
+    }
+
+    private static byte[] id3v1() {
+        byte[] tag = new byte[128];
+        tag[0] = 'T';
+        tag[1] = 'A';
+        tag[2] = 'G';
+        return tag;
+    }
+
+    private static byte[] concat(byte[]... parts) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (byte[] part : parts) {
+            out.writeBytes(part);
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] int24(int value) {
+        return new byte[]{(byte) (value >>> 16), (byte) (value >>> 8), (byte) value};
+    }
+
+    private static int crc8(byte[] data) {
+        int crc = 0;
+        for (byte b : data) {
+            crc ^= b & 0xFF;
+            for (int bit = 0; bit < 8; bit++) {
+                crc = (crc & 0x80) != 0 ? ((crc << 1) ^ 0x07) & 0xFF : (crc << 1) & 0xFF;
+            }
+        }
+        return crc;
+    }
+
+    private static int crc16(byte[] data) {
+        int crc = 0;
+        for (byte b : data) {
+            crc ^= (b & 0xFF) << 8;
+            for (int bit = 0; bit < 8; bit++) {
+                crc = (crc & 0x8000) != 0 ? ((crc << 1) ^ 0x8005) & 0xFFFF : (crc << 1) & 0xFFFF;
+            }
+        }
+        return crc;
+    }
+}
@@ -0,0 +1,157 @@
+package com.sashkomusic.downloadagent.domain.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AudioTagsTest {
+
+    // MPEG-1 layer III, 128 kbit/s, 44.1 kHz, stereo: 417 byte frames of 1152 samples
+    private static final int MP3_HEADER = 0xFFFB9000;
+    private static final int MP3_FRAME_BYTES = 417;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void readsVorbisCommentsAndStreamInfoDuration() throws IOException {
+        byte[] flac = flac(441_000, "TRACKNUMBER=3", "TRACKTOTAL=12", "DISCNUMBER=1/2");
+
+        assertThat(read("track.flac", flac)).isEqualTo(new AudioTags.Tags(3, 12, 1, 2, 10_000));
+    }
+
+    @Test
+    void readsId3v24FramesAndCbrDuration() throws IOException {
+        byte[] tag = id3(4, textFrame("TRCK", "07/10"), textFrame("TPOS", "1/1"), new byte[50]);
+        byte[] mp3 = concat(tag, mp3Frames(1_000));
+
+        // 1000 frames of 417 bytes at 128 kbit/s
+        assertThat(read("track.mp3", mp3)).isEqualTo(new AudioTags.Tags(7, 10, 1, 1, 26_062));
+    }
+
+    @Test
+    void readsUtf16TrackNumberOfId3v23() throws IOException {
+        byte[] text = concat(new byte[]{1, (byte) 0xFF, (byte) 0xFE}, "2".getBytes(StandardCharsets.UTF_16LE));
+        byte[] frame = concat("TRCK".getBytes(StandardCharsets.ISO_8859_1),
+                ByteBuffer.allocate(4).putInt(text.length).array(), new byte[2], text);
+        byte[] mp3 = concat(id3(3, frame, new byte[20]), mp3Frames(1_000));
+
+        AudioTags.Tags tags = read("track.mp3", mp3);
+
+        assertThat(tags.track()).isEqualTo(2);
+        assertThat(tags.totalTracks()).isZero();
+    }
+
+    @Test
+    void takesVbrDurationFromXingHeader() throws IOException {
+        byte[] frames = mp3Frames(10);
+        ByteBuffer first = ByteBuffer.wrap(frames);
+        first.put(4 + 32, "Xing".getBytes(StandardCharsets.ISO_8859_1));
+        first.putInt(4 + 32 + 4, 1); // frame count present
+        first.putInt(4 + 32 + 8, 500);
+
+        // 500 frames of 1152 samples at 44.1 kHz
+        assertThat(read("vbr.mp3", frames).durationMillis()).isEqualTo(13_061);
+    }
+
+    @Test
+    void readsMp4NumberingAndMovieDuration() throws IOException {
+        byte[] ilst = atom("ilst", atom("trkn", numberData(5, 9)), atom("disk", numberData(1, 2)));
+        byte[] meta = atom("meta", new byte[4], atom("hdlr", new byte[25]), ilst);
+        byte[] mvhd = atom("mvhd", new byte[12], ByteBuffer.allocate(8).putInt(1_000).putInt(215_000).array(),
+                new byte[80]);
+        byte[] m4a = concat(atom("ftyp", "M4A ".getBytes(StandardCharsets.ISO_8859_1), new byte[4]),
+                atom("mdat", new byte[100_000]), atom("moov", mvhd, atom("udta", meta)));
+
+        assertThat(read("track.m4a", m4a)).isEqualTo(new AudioTags.Tags(5, 9, 1, 2, 215_000));
+    }
+
+    @Test
+    void returnsNothingForUntaggedFiles() throws IOException {
+        assertThat(read("track.wav", new byte[1_000])).isEqualTo(new AudioTags.Tags(0, 0, 0, 0, 0));
+    }
+
+    private AudioTags.Tags read(String name, byte[] content) throws IOException {
+        Path file = directory.resolve(name);
+        Files.write(file, content);
+        return AudioTags.read(file);
+    }
+
+    private static byte[] flac(long totalSamples, String... comments) {
+        ByteBuffer streamInfo = ByteBuffer.allocate(34)
+                .putShort((short) 4096)
+                .putShort((short) 4096)
+                .put(new byte[6])
+                .putLong((44_100L << 44) | (1L << 41) | (15L << 36) | totalSamples);
+
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        ByteBuffer number = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN);
+        body.writeBytes(number.putInt(0, 4).array());
+        body.writeBytes("test".getBytes(StandardCharsets.UTF_8));
+        body.writeBytes(number.putInt(0, comments.length).array());
+        for (String comment : comments) {
+            byte[] bytes = comment.getBytes(StandardCharsets.UTF_8);
+            body.writeBytes(number.putInt(0, bytes.length).array());
+            body.writeBytes(bytes);
+        }
+
+        return concat("fLaC".getBytes(StandardCharsets.ISO_8859_1),
+                blockHeader(0x00, 34), streamInfo.array(),
+                blockHeader(0x84, body.size()), body.toByteArray());
+    }
+
+    private static byte[] blockHeader(int type, int length) {
+        return new byte[]{(byte) type, (byte) (length >>> 16), (byte) (length >>> 8), (byte) length};
+    }
+
+    private static byte[] id3(int version, byte[]... frames) {
+        byte[] body = concat(frames);
+        return concat(new byte[]{'I', 'D', '3', (byte) version, 0, 0}, syncsafe(body.length), body);
+    }
+
+    private static byte[] textFrame(String id, String text) {
+        byte[] body = concat(new byte[]{3}, text.getBytes(StandardCharsets.UTF_8));
+        return concat(id.getBytes(StandardCharsets.ISO_8859_1), syncsafe(body.length), new byte[2], body);
+    }
+
+    private static byte[] syncsafe(int value) {
+        return new byte[]{(byte) ((value >>> 21) & 0x7F), (byte) ((value >>> 14) & 0x7F),
+                (byte) ((value >>> 7) & 0x7F), (byte) (value & 0x7F)};
+    }
+
+    private static byte[] mp3Frames(int count) {
+        ByteBuffer frames = ByteBuffer.allocate(count * MP3_FRAME_BYTES);
+        for (int i = 0; i < count; i++) {
+            frames.putInt(i * MP3_FRAME_BYTES, MP3_HEADER);
+        }
+        return frames.array();
+    }
+
+    private static byte[] atom(String type, byte[]... body) {
+        byte[] content = concat(body);
+        return concat(ByteBuffer.allocate(4).putInt(8 + content.length).array(),
+                type.getBytes(StandardCharsets.ISO_8859_1), content);
+    }
+
+    private static byte[] numberData(int number, int total) {
+        return atom("data", new byte[8], ByteBuffer.allocate(6).putShort((short) 0).putShort((short) number)
+                .putShort((short) total).array());
+    }
+
+    private static byte[] concat(byte[]... parts) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (byte[] part : parts) {
+            out.writeBytes(part);
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,70 @@
+package com.sashkomusic.downloadagent.domain.util;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class StagingDirectoriesTest {
+
+    @TempDir
+    Path libraryRoot;
+
+    private Path staging;
+
+    @BeforeEach
+    void setUp() {
+        staging = StagingDirectories.resolve(libraryRoot.toString(), "release-1");
+    }
+
+    @Test
+    void mergesStagedFoldersIntoExistingLibraryFolders() throws IOException {
+        write(libraryRoot.resolve("Artist/Other Album/01.flac"), "other");
+        write(staging.resolve("Artist/Album/01.flac"), "staged");
+
+        StagingDirectories.promote(staging, libraryRoot);
+
+        assertThat(libraryRoot.resolve("Artist/Album/01.flac")).hasContent("staged");
+        assertThat(libraryRoot.resolve("Artist/Other Album/01.flac")).hasContent("other");
+        assertThat(staging).doesNotExist();
+    }
+
+    @Test
+    void movesNothingWhenTheLibraryAlreadyHasAStagedFile() throws IOException {
+        write(libraryRoot.resolve("Artist/Album/02.flac"), "library");
+        write(staging.resolve("Artist/Album/01.flac"), "staged");
+        write(staging.resolve("Artist/Album/02.flac"), "staged");
+
+        assertThatThrownBy(() -> StagingDirectories.promote(staging, libraryRoot))
+                .isInstanceOf(FileAlreadyExistsException.class)
+                .hasMessageContaining("02.flac");
+
+        assertThat(libraryRoot.resolve("Artist/Album/01.flac")).doesNotExist();
+        assertThat(libraryRoot.resolve("Artist/Album/02.flac")).hasContent("library");
+        assertThat(staging.resolve("Artist/Album/01.flac")).exists();
+    }
+
+    @Test
+    void refusesToPromoteTrackOverLibraryFile() throws IOException {
+        write(libraryRoot.resolve("Artist/Album/01.flac"), "library");
+        Path staged = write(staging.resolve("Artist/Album/01.flac"), "staged");
+
+        assertThatThrownBy(() -> StagingDirectories.promoteFile(staging, libraryRoot, staged))
+                .isInstanceOf(FileAlreadyExistsException.class);
+
+        assertThat(libraryRoot.resolve("Artist/Album/01.flac")).hasContent("library");
+        assertThat(staged).exists();
+    }
+
+    private static Path write(Path file, String content) throws IOException {
+        Files.createDirectories(file.getParent());
+        return Files.writeString(file, content);
+    }
+}
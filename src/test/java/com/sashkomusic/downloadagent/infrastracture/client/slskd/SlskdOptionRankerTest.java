@@ -0,0 +1,97 @@
+package com.sashkomusic.downloadagent.infrastracture.client.slskd;
+
+import com.sashkomusic.downloadagent.infrastracture.client.slskd.SlskdOptionRanker.Candidate;
+import com.sashkomusic.downloadagent.infrastracture.client.slskd.SlskdOptionRanker.Ranked;
+import com.sashkomusic.downloadagent.infrastracture.client.slskd.dto.SlskdSearchEntryResponse;
+import com.sashkomusic.downloadagent.infrastracture.client.slskd.dto.SlskdSearchEntryResponse.SoulseekFile;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SlskdOptionRankerTest {
+
+    private static final long MB = 1024 * 1024;
+
+    private final SlskdOptionRanker ranker = new SlskdOptionRanker();
+
+    @Test
+    void prefersLosslessOverLossyFromEquallyFastPeers() {
+        Ranked flac = ranker.rank(candidate(peer("a", MB, 0), files("flac", 1, 10, 30 * MB, null)));
+        Ranked mp3 = ranker.rank(candidate(peer("b", MB, 0), files("mp3", 1, 10, 30 * MB, 320)));
+
+        assertThat(flac.score()).isGreaterThan(mp3.score());
+    }
+
+    @Test
+    void prefersFolderWithoutMissingTracks() {
+        List<SoulseekFile> complete = files("flac", 1, 10, 30 * MB, null);
+        List<SoulseekFile> gaps = complete.stream().filter(file -> !file.filename().contains("\\05 ")).toList();
+
+        Ranked full = ranker.rank(candidate(peer("a", MB, 0), complete));
+        Ranked partial = ranker.rank(candidate(peer("a", MB, 0), gaps));
+
+        assertThat(full.score()).isGreaterThan(partial.score());
+    }
+
+    @Test
+    void estimatesTransferAndQueueTime() {
+        Ranked idle = ranker.rank(candidate(peer("a", MB, 0), files("flac", 1, 10, 30 * MB, null)));
+        Ranked queued = ranker.rank(candidate(peer("a", MB, 5), files("flac", 1, 10, 30 * MB, null)));
+
+        assertThat(idle.estimatedSeconds()).isEqualTo(300);
+        assertThat(queued.estimatedSeconds()).isEqualTo(600);
+        assertThat(idle.score()).isGreaterThan(queued.score());
+    }
+
+    @Test
+    void mirrorsAddUpTheirUploadSpeed() {
+        List<SoulseekFile> album = files("flac", 1, 10, 30 * MB, null);
+        Candidate single = candidate(peer("a", MB, 0), album);
+        Candidate mirrored = single.withMirrors(List.of(candidate(peer("b", MB, 0), album)));
+
+        assertThat(ranker.rank(mirrored).estimatedSeconds()).isEqualTo(150);
+        assertThat(ranker.rank(mirrored).score()).isGreaterThan(ranker.rank(single).score());
+    }
+
+    @Test
+    void topKeepsTheBestCandidatesHighestFirst() {
+        List<Candidate> candidates = IntStream.rangeClosed(1, 20)
+                .mapToObj(speed -> candidate(peer("peer" + speed, speed * 100_000L, 0),
+                        files("flac", 1, 10, 30 * MB, null)))
+                .toList();
+
+        List<Ranked> top = ranker.top(candidates.stream(), 3);
+
+        assertThat(top).extracting(ranked -> ranked.candidate().peer().username())
+                .containsExactly("peer20", "peer19", "peer18");
+    }
+
+    @Test
+    void bestScoreIsTheScoreOfThePeersBestFolder() {
+        SlskdSearchEntryResponse peer = peer("a", MB, 0);
+        Candidate flac = candidate(peer, files("flac", 1, 10, 30 * MB, null));
+        Candidate mp3 = candidate(peer, files("mp3", 1, 10, 10 * MB, 128));
+
+        assertThat(ranker.bestScore(Stream.of(mp3, flac))).isEqualTo(ranker.rank(flac).score());
+        assertThat(ranker.bestScore(Stream.empty())).isZero();
+    }
+
+    private static Candidate candidate(SlskdSearchEntryResponse peer, List<SoulseekFile> files) {
+        return new Candidate(peer, "Music\\Album", files);
+    }
+
+    private static SlskdSearchEntryResponse peer(String username, long uploadSpeed, int queueLength) {
+        return new SlskdSearchEntryResponse(0, List.of(), true, 0, List.of(), queueLength, 1, uploadSpeed, username);
+    }
+
+    private static List<SoulseekFile> files(String extension, int from, int to, long size, Integer bitRate) {
+        return IntStream.rangeClosed(from, to)
+                .mapToObj(track -> new SoulseekFile(bitRate, null, 1, extension,
+                        "Music\\Album\\%02d Track.%s".formatted(track, extension), false, 240, null, size, false))
+                .toList();
+    }
+}
@@ -0,0 +1,94 @@
+package com.sashkomusic.downloadagent.infrastracture.client.slskd;
+
+import com.sashkomusic.downloadagent.infrastracture.client.slskd.dto.SlskdSearchEntryResponse;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SlskdSearchResponseReaderTest {
+
+    private final SlskdOptionRanker ranker = new SlskdOptionRanker();
+
+    @Test
+    void dropsLockedPeersPeersWithoutFreeSlotAndNonAudioFiles() throws IOException {
+        String body = responses(
+                peer("open", true, 0, 1_000_000, 0, file("open", "01 - Intro.flac", 30_000_000, 0)
+                        + "," + file("open", "cover.jpg", 100_000, 0)),
+                peer("busy", false, 0, 1_000_000, 0, file("busy", "01 - Intro.flac", 30_000_000, 0)),
+                peer("locked", true, 0, 1_000_000, 1, file("locked", "01 - Intro.flac", 30_000_000, 0)));
+
+        List<SlskdSearchEntryResponse> peers = new SlskdSearchResponseReader(10, peer -> 0).read(stream(body));
+
+        assertThat(peers).extracting(SlskdSearchEntryResponse::username).containsExactly("open");
+        assertThat(peers.getFirst().files()).extracting(SlskdSearchEntryResponse.SoulseekFile::getFileName)
+                .containsExactly("01 - Intro.flac");
+    }
+
+    @Test
+    void keepsHighestScoredPeersBestFirst() throws IOException {
+        String body = responses(
+                peer("slow", true, 0, 100_000, 0, file("slow", "01 - Intro.flac", 1_000, 0)),
+                peer("fast", true, 0, 3_000_000, 0, file("fast", "01 - Intro.flac", 1_000, 0)),
+                peer("medium", true, 0, 1_000_000, 0, file("medium", "01 - Intro.flac", 1_000, 0)));
+
+        List<SlskdSearchEntryResponse> peers = new SlskdSearchResponseReader(2, SlskdSearchEntryResponse::uploadSpeed)
+                .read(stream(body));
+
+        assertThat(peers).extracting(SlskdSearchEntryResponse::username).containsExactly("fast", "medium");
+    }
+
+    @Test
+    void keepsSlowerLosslessPeerOverFastLossyOneWhenRankedByQuality() throws IOException {
+        String body = responses(
+                peer("lossless", true, 0, 1_000_000, 0, album("lossless", "flac", 30_000_000, 0)),
+                peer("lossy", true, 0, 5_000_000, 0, album("lossy", "mp3", 5_000_000, 128)));
+
+        List<SlskdSearchEntryResponse> peers = new SlskdSearchResponseReader(1,
+                peer -> ranker.bestScore(Stream.of(new SlskdOptionRanker.Candidate(peer, "Album", peer.files())))
+        ).read(stream(body));
+
+        assertThat(peers).extracting(SlskdSearchEntryResponse::username).containsExactly("lossless");
+    }
+
+    @Test
+    void readsNothingFromNonArrayBody() throws IOException {
+        assertThat(new SlskdSearchResponseReader(10, peer -> 0).read(stream("{\"error\":\"gone\"}"))).isEmpty();
+    }
+
+    private static String album(String username, String extension, long size, int bitRate) {
+        return IntStream.rangeClosed(1, 10)
+                .mapToObj(track -> file(username, "%02d - Track.%s".formatted(track, extension), size, bitRate))
+                .collect(Collectors.joining(","));
+    }
+
+    private static String file(String username, String name, long size, int bitRate) {
+        return """
+                {"filename":"@@%s\\\\Music\\\\Album\\\\%s","size":%d,"bitRate":%s,"bitDepth":null,"sampleRate":null,
+                 "code":1,"extension":"","length":240,"isLocked":false}
+                """.formatted(username, name, size, bitRate > 0 ? bitRate : "null");
+    }
+
+    private static String peer(String username, boolean freeSlot, int queueLength, long uploadSpeed,
+                               int lockedFileCount, String files) {
+        return """
+                {"username":"%s","fileCount":10,"hasFreeUploadSlot":%s,"lockedFileCount":%d,"lockedFiles":[],
+                 "queueLength":%d,"token":1,"uploadSpeed":%d,"files":[%s]}
+                """.formatted(username, freeSlot, lockedFileCount, queueLength, uploadSpeed, files);
+    }
+
+    private static String responses(String... peers) {
+        return "[" + String.join(",", peers) + "]";
+    }
+
+    private static ByteArrayInputStream stream(String body) {
+        return new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8));
+    }
+}
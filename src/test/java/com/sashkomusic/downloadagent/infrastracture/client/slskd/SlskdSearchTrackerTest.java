@@ -0,0 +1,94 @@
+package com.sashkomusic.downloadagent.infrastracture.client.slskd;
+
+import com.github.tomakehurst.wiremock.junit5.WireMockExtension;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.springframework.web.client.RestClient;
+
+import java.time.Duration;
+import java.util.UUID;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.wireMockConfig;
+import static com.github.tomakehurst.wiremock.stubbing.Scenario.STARTED;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SlskdSearchTrackerTest {
+
+    private static final UUID SEARCH_ID = UUID.fromString("a9e2e91a-6fdb-4115-a741-a138c9126854");
+    private static final String STATUS_URL = "/api/v0/searches/" + SEARCH_ID;
+
+    @RegisterExtension
+    static WireMockExtension slskd = WireMockExtension.newInstance()
+            .options(wireMockConfig().dynamicPort())
+            .build();
+
+    private SlskdSearchTracker tracker;
+
+    @BeforeEach
+    void setUp() {
+        RestClient client = RestClient.builder().baseUrl(slskd.baseUrl()).build();
+        tracker = new SlskdSearchTracker(client, "test-key", Duration.ofSeconds(20), Duration.ofMillis(600));
+        slskd.stubFor(put(STATUS_URL).willReturn(ok()));
+    }
+
+    @Test
+    void returnsImmediatelyWhenSlskdReportsCompletion() {
+        slskd.stubFor(get(STATUS_URL).willReturn(okJson(status(true, 5))));
+
+        long startedAt = System.currentTimeMillis();
+        var result = tracker.track(SEARCH_ID);
+
+        assertThat(result.getIsComplete()).isTrue();
+        assertThat(System.currentTimeMillis() - startedAt).isLessThan(1_000);
+        slskd.verify(1, getRequestedFor(urlEqualTo(STATUS_URL)));
+        slskd.verify(0, putRequestedFor(urlEqualTo(STATUS_URL)));
+    }
+
+    @Test
+    void endsSearchOnceResponseCountStopsGrowing() {
+        stubGrowingResponses(1, 4, 7);
+
+        long startedAt = System.currentTimeMillis();
+        var result = tracker.track(SEARCH_ID);
+
+        assertThat(result.getResponseCount()).isEqualTo(7);
+        assertThat(result.getIsComplete()).isFalse();
+        assertThat(System.currentTimeMillis() - startedAt).isLessThan(5_000);
+        slskd.verify(1, putRequestedFor(urlEqualTo(STATUS_URL)));
+    }
+
+    @Test
+    void keepsWaitingWhileNoPeerHasReplied() {
+        slskd.stubFor(get(STATUS_URL).willReturn(okJson(status(false, 0))));
+        var shortTracker = new SlskdSearchTracker(
+                RestClient.builder().baseUrl(slskd.baseUrl()).build(), "test-key",
+                Duration.ofMillis(1_500), Duration.ofMillis(100));
+
+        var result = shortTracker.track(SEARCH_ID);
+
+        assertThat(result.getResponseCount()).isZero();
+        slskd.verify(0, putRequestedFor(urlEqualTo(STATUS_URL)));
+    }
+
+    private void stubGrowingResponses(int... counts) {
+        String state = STARTED;
+        for (int i = 0; i < counts.length; i++) {
+            String next = i == counts.length - 1 ? state : "step-" + (i + 1);
+            slskd.stubFor(get(STATUS_URL)
+                    .inScenario("growing")
+                    .whenScenarioStateIs(state)
+                    .willReturn(okJson(status(false, counts[i])))
+                    .willSetStateTo(next));
+            state = next;
+        }
+    }
+
+    private static String status(boolean complete, int responseCount) {
+        return """
+                {"id":"%s","searchText":"nthng hypnotherapy","state":"InProgress",
+                 "isComplete":%s,"fileCount":%d,"responseCount":%d}
+                """.formatted(SEARCH_ID, complete, responseCount * 3, responseCount);
+    }
+}
@@ -0,0 +1,141 @@
+package com.sashkomusic.downloadagent.infrastracture.client.slskd;
+
+import com.github.tomakehurst.wiremock.junit5.WireMockExtension;
+import com.sashkomusic.downloadagent.config.SlskdPathConfig;
+import com.sashkomusic.downloadagent.domain.DownloadContext;
+import com.sashkomusic.downloadagent.domain.DownloadProgressAggregator;
+import com.sashkomusic.downloadagent.domain.DownloadVerifier;
+import com.sashkomusic.downloadagent.domain.journal.DownloadJournal;
+import com.sashkomusic.downloadagent.domain.journal.JournaledRelease;
+import com.sashkomusic.downloadagent.domain.model.DownloadBatch;
+import com.sashkomusic.downloadagent.domain.model.DownloadEngine;
+import com.sashkomusic.downloadagent.domain.model.DownloadOption;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.client.RestClient;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.wireMockConfig;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+class SlskdTransferReconcilerTest {
+
+    private static final String RELEASE_ID = "release-1";
+    private static final String FOLDER = "@@peer\\Music\\Artist - Album";
+    private static final String FIRST = FOLDER + "\\01 - Intro.flac";
+    private static final String SECOND = FOLDER + "\\02 - Outro.flac";
+
+    @RegisterExtension
+    static WireMockExtension slskd = WireMockExtension.newInstance()
+            .options(wireMockConfig().dynamicPort())
+            .build();
+
+    private SlskdPathConfig pathConfig;
+    private DownloadContext downloadContext;
+    private SlskdTransferWatchdog watchdog;
+    private DownloadProgressAggregator progressAggregator;
+    private DownloadVerifier downloadVerifier;
+    private SlskdTransferReconciler reconciler;
+
+    @BeforeEach
+    void setUp() {
+        pathConfig = new SlskdPathConfig();
+        pathConfig.setContainerPath("/downloads");
+        pathConfig.setLocalPath("/music/slskd");
+        downloadContext = new DownloadContext(pathConfig,
+                new DownloadJournal(Path.of("journal"), DataSize.ofMegabytes(4)));
+        watchdog = mock(SlskdTransferWatchdog.class);
+        progressAggregator = mock(DownloadProgressAggregator.class);
+        downloadVerifier = mock(DownloadVerifier.class);
+        reconciler = new SlskdTransferReconciler(RestClient.builder().baseUrl(slskd.baseUrl()).build(), "test-key",
+                pathConfig, downloadContext, watchdog, progressAggregator, downloadVerifier);
+
+        downloadContext.registerBatch(7, RELEASE_ID, List.of(file(FIRST), file(SECOND)), DownloadEngine.SOULSEEK,
+                null);
+    }
+
+    @Test
+    void completesFileAtTheDownloadPathOfItsOption() {
+        stubTransfers(transfer("t1", FIRST, "Completed, Succeeded"), transfer("t2", SECOND, "InProgress"));
+
+        reconciler.reconcile(List.of(release(Map.of())));
+
+        DownloadBatch batch = downloadContext.findBatchByReleaseId(RELEASE_ID);
+        String downloadPath = "/music/slskd/peer/@@peer/Music/Artist - Album";
+        assertThat(pathConfig.transformToLocalPath(pathConfig.containerDirectory("peer", FOLDER)))
+                .isEqualTo(downloadPath);
+        assertThat(batch.getLocalFilename(FIRST)).isEqualTo(downloadPath + "/01 - Intro.flac");
+        verify(progressAggregator).fileCompleted(batch, FIRST, 100);
+        verify(downloadVerifier).announceReadyTrack(eq(7L), eq(RELEASE_ID),
+                eq(Path.of(downloadPath, "01 - Intro.flac")), anyLong());
+        verify(watchdog).restore(RELEASE_ID, List.of(new JournaledRelease.Transfer(SECOND, "t2", "peer", SECOND, 100)));
+        verify(downloadVerifier, never()).verifyAndComplete(any());
+    }
+
+    @Test
+    void verifiesReleaseWhenEveryFileFinishedWhileDown() {
+        stubTransfers(transfer("t1", FIRST, "Completed, Succeeded"), transfer("t2", SECOND, "Completed, Succeeded"));
+
+        reconciler.reconcile(List.of(release(Map.of())));
+
+        verify(downloadVerifier).verifyAndComplete(any(DownloadBatch.class));
+        verify(watchdog).restore(RELEASE_ID, List.of());
+    }
+
+    @Test
+    void reEnqueuesFailedAndMissingTransfers() {
+        stubTransfers(transfer("t1", FIRST, "Completed, Errored"));
+        slskd.stubFor(post(urlEqualTo("/api/v0/transfers/downloads/peer")).willReturn(okJson("""
+                {"enqueued": [
+                  {"id": "n1", "username": "peer", "filename": "%s", "size": 100},
+                  {"id": "n2", "username": "peer", "filename": "%s", "size": 100}
+                ], "failed": []}
+                """.formatted(json(FIRST), json(SECOND)))));
+        var journaled = new JournaledRelease.Transfer(SECOND, "t2", "peer", SECOND, 100);
+
+        reconciler.reconcile(List.of(release(Map.of(SECOND, journaled))));
+
+        slskd.verify(1, postRequestedFor(urlEqualTo("/api/v0/transfers/downloads/peer")));
+        verify(watchdog).restore(RELEASE_ID, List.of(
+                new JournaledRelease.Transfer(FIRST, "n1", "peer", FIRST, 100),
+                new JournaledRelease.Transfer(SECOND, "n2", "peer", SECOND, 100)));
+    }
+
+    private static DownloadOption.FileItem file(String filename) {
+        return new DownloadOption.FileItem(filename, 100, null, 16, 44_100, 180);
+    }
+
+    private static JournaledRelease release(Map<String, JournaledRelease.Transfer> transfers) {
+        return new JournaledRelease(7, RELEASE_ID, DownloadEngine.SOULSEEK, List.of(FIRST, SECOND),
+                List.of(100L, 100L), null, Map.of(), Map.of(), transfers, null, List.of());
+    }
+
+    private static void stubTransfers(String... transfers) {
+        slskd.stubFor(get(urlEqualTo("/api/v0/transfers/downloads")).willReturn(okJson("""
+                [{"username": "peer", "directories": [{"directory": "%s", "fileCount": %d, "files": [%s]}]}]
+                """.formatted(json(FOLDER), transfers.length, String.join(",", transfers)))));
+    }
+
+    private static String transfer(String id, String filename, String state) {
+        return """
+                {"id": "%s", "username": "peer", "filename": "%s", "size": 100, "state": "%s",
+                 "bytesTransferred": 0, "averageSpeed": 0, "percentComplete": 0}
+                """.formatted(id, json(filename), state);
+    }
+
+    private static String json(String value) {
+        return value.replace("\\", "\\\\");
+    }
+}
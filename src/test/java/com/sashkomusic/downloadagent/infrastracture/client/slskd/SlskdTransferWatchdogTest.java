@@ -0,0 +1,253 @@
+package com.sashkomusic.downloadagent.infrastracture.client.slskd;
+
+import com.github.tomakehurst.wiremock.junit5.WireMockExtension;
+import com.sashkomusic.downloadagent.domain.DownloadContext;
+import com.sashkomusic.downloadagent.domain.journal.DownloadJournal;
+import com.sashkomusic.downloadagent.domain.model.DownloadBatch;
+import com.sashkomusic.downloadagent.domain.model.DownloadEngine;
+import com.sashkomusic.downloadagent.infrastracture.client.slskd.dto.SlskdDownloadResponse;
+import com.sashkomusic.downloadagent.infrastracture.client.slskd.dto.SlskdSearchEntryResponse;
+import com.sashkomusic.downloadagent.messaging.producer.DownloadErrorProducer;
+import com.sashkomusic.downloadagent.messaging.producer.dto.DownloadErrorDto;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.mockito.ArgumentCaptor;
+import org.springframework.web.client.RestClient;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.wireMockConfig;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class SlskdTransferWatchdogTest {
+
+    private static final String RELEASE_ID = "release-1";
+    private static final String FILE = "@@peer1\\Album\\01 - Intro.flac";
+    private static final String SECOND_FILE = "@@peer1\\Album\\02 - Outro.flac";
+    private static final String OTHER_FILE = "@@peer2\\Rips\\01 - Intro.flac";
+    private static final String OTHER_SECOND_FILE = "@@peer2\\Rips\\02 - Outro.flac";
+    private static final long SIZE = 1_000;
+
+    @RegisterExtension
+    static WireMockExtension slskd = WireMockExtension.newInstance()
+            .options(wireMockConfig().dynamicPort())
+            .build();
+
+    private SlskdSourceIndex sourceIndex;
+    private DownloadContext downloadContext;
+    private DownloadErrorProducer errorProducer;
+    private DownloadBatch batch;
+
+    @BeforeEach
+    void setUp() {
+        sourceIndex = new SlskdSourceIndex(100);
+        downloadContext = mock(DownloadContext.class);
+        errorProducer = mock(DownloadErrorProducer.class);
+        batch = new DownloadBatch(42L, RELEASE_ID, "@@peer1\\Album", List.of(FILE), List.of(SIZE),
+                DownloadEngine.SOULSEEK);
+        when(downloadContext.findBatchByReleaseId(RELEASE_ID)).thenReturn(batch);
+        when(downloadContext.removeBatchByReleaseId(RELEASE_ID)).thenReturn(true);
+        slskd.stubFor(delete(urlPathMatching("/api/v0/transfers/downloads/.+/.+")).willReturn(noContent()));
+    }
+
+    @Test
+    void stopsFollowingSucceededTransfers() {
+        stubTransfer("peer1", "t1", FILE, "Completed, Succeeded");
+        SlskdTransferWatchdog watchdog = watchdog(2);
+        watchdog.track(RELEASE_ID, List.of(enqueued("t1", "peer1", FILE)), Map.of());
+
+        watchdog.check();
+        watchdog.check();
+
+        slskd.verify(1, getRequestedFor(urlEqualTo("/api/v0/transfers/downloads/peer1")));
+        verifyNoInteractions(errorProducer);
+    }
+
+    @Test
+    void forgetsMissingTransferOfFileTheBatchAlreadyHas() {
+        slskd.stubFor(get(urlEqualTo("/api/v0/transfers/downloads/peer1"))
+                .willReturn(okJson("{\"username\": \"peer1\", \"directories\": []}")));
+        SlskdTransferWatchdog watchdog = watchdog(2);
+        watchdog.track(RELEASE_ID, List.of(enqueued("t1", "peer1", FILE)), Map.of());
+        batch.markFileCompleted(FILE, "/music/01 - Intro.flac");
+
+        watchdog.check();
+        watchdog.check();
+
+        slskd.verify(1, getRequestedFor(urlEqualTo("/api/v0/transfers/downloads/peer1")));
+        slskd.verify(0, deleteRequestedFor(urlPathMatching("/api/v0/transfers/downloads/.+/.+")));
+        verifyNoInteractions(errorProducer);
+    }
+
+    @Test
+    void waitsForMissingTransferUntilQueueTimeout() {
+        slskd.stubFor(get(urlEqualTo("/api/v0/transfers/downloads/peer1"))
+                .willReturn(okJson("{\"username\": \"peer1\", \"directories\": []}")));
+        SlskdTransferWatchdog watchdog = watchdog(2, Duration.ofMinutes(10));
+        watchdog.track(RELEASE_ID, List.of(enqueued("t1", "peer1", FILE)), Map.of());
+
+        watchdog.check();
+        watchdog.check();
+
+        slskd.verify(2, getRequestedFor(urlEqualTo("/api/v0/transfers/downloads/peer1")));
+        slskd.verify(0, deleteRequestedFor(urlPathMatching("/api/v0/transfers/downloads/.+/.+")));
+        verify(downloadContext, never()).removeBatchByReleaseId(anyString());
+        verifyNoInteractions(errorProducer);
+    }
+
+    @Test
+    void movesStalledTransferToPeerWithIdenticalFolder() {
+        sourceIndex.record(List.of(peer("peer1", FILE, SECOND_FILE), peer("peer2", OTHER_FILE, OTHER_SECOND_FILE)));
+        stubTransfer("peer1", "t1", FILE, "Queued, Remotely");
+        stubEnqueue("peer2", "t2", OTHER_FILE);
+        SlskdTransferWatchdog watchdog = watchdog(2);
+        watchdog.track(RELEASE_ID, List.of(enqueued("t1", "peer1", FILE)), Map.of());
+
+        watchdog.check();
+
+        slskd.verify(postRequestedFor(urlEqualTo("/api/v0/transfers/downloads/peer2"))
+                .withRequestBody(matchingJsonPath("$[0].filename", equalTo(OTHER_FILE))));
+        slskd.verify(deleteRequestedFor(urlPathEqualTo("/api/v0/transfers/downloads/peer1/t1")));
+        verify(downloadContext).addRemoteAlias(RELEASE_ID, FILE, OTHER_FILE);
+        verify(downloadContext, never()).removeBatchByReleaseId(anyString());
+        verifyNoInteractions(errorProducer);
+    }
+
+    @Test
+    void keepsStalledTransferOffPeersWithOtherFolders() {
+        sourceIndex.record(List.of(peer("peer1", FILE, SECOND_FILE),
+                peer("peer3", "@@peer3\\Singles\\01 - Intro.flac")));
+        stubTransfer("peer1", "t1", FILE, "Queued, Remotely");
+        SlskdTransferWatchdog watchdog = watchdog(2);
+        watchdog.track(RELEASE_ID, List.of(enqueued("t1", "peer1", FILE)), Map.of());
+
+        watchdog.check();
+
+        slskd.verify(0, postRequestedFor(urlEqualTo("/api/v0/transfers/downloads/peer3")));
+        verify(downloadContext, never()).addRemoteAlias(anyString(), anyString(), anyString());
+        verify(downloadContext).removeBatchByReleaseId(RELEASE_ID);
+        assertErrorSentFor("01 - Intro.flac");
+    }
+
+    @Test
+    void failsReleaseWhenNoOtherPeerSharesTheFile() {
+        stubTransfer("peer1", "t1", FILE, "Completed, Errored");
+        SlskdTransferWatchdog watchdog = watchdog(2);
+        watchdog.track(RELEASE_ID, List.of(enqueued("t1", "peer1", FILE)), Map.of());
+
+        watchdog.check();
+        watchdog.check();
+
+        slskd.verify(1, deleteRequestedFor(urlPathEqualTo("/api/v0/transfers/downloads/peer1/t1")));
+        verify(downloadContext).removeBatchByReleaseId(RELEASE_ID);
+        assertErrorSentFor("01 - Intro.flac");
+    }
+
+    @Test
+    void failsReleaseOnceFailoversAreUsedUp() {
+        sourceIndex.record(List.of(peer("peer1", FILE, SECOND_FILE), peer("peer2", OTHER_FILE, OTHER_SECOND_FILE),
+                peer("peer3", "@@peer3\\Album\\01 - Intro.flac", "@@peer3\\Album\\02 - Outro.flac")));
+        stubTransfer("peer1", "t1", FILE, "Queued, Remotely");
+        stubTransfer("peer2", "t2", OTHER_FILE, "Queued, Remotely");
+        stubEnqueue("peer2", "t2", OTHER_FILE);
+        SlskdTransferWatchdog watchdog = watchdog(1);
+        watchdog.track(RELEASE_ID, List.of(enqueued("t1", "peer1", FILE)), Map.of());
+
+        watchdog.check();
+        watchdog.check();
+
+        slskd.verify(0, postRequestedFor(urlEqualTo("/api/v0/transfers/downloads/peer3")));
+        slskd.verify(deleteRequestedFor(urlPathEqualTo("/api/v0/transfers/downloads/peer2/t2")));
+        verify(downloadContext).removeBatchByReleaseId(RELEASE_ID);
+        assertErrorSentFor("01 - Intro.flac");
+    }
+
+    @Test
+    void cancelDoesNotWaitForSlowCheck() throws Exception {
+        slskd.stubFor(get(urlEqualTo("/api/v0/transfers/downloads/peer1"))
+                .willReturn(okJson(transfers("peer1", "t1", FILE, "InProgress")).withFixedDelay(2_000)));
+        SlskdTransferWatchdog watchdog = watchdog(2);
+        watchdog.track(RELEASE_ID, List.of(enqueued("t1", "peer1", FILE)), Map.of());
+
+        Thread checker = Thread.ofPlatform().start(watchdog::check);
+        Thread.sleep(300);
+
+        long startedAt = System.currentTimeMillis();
+        watchdog.cancel(RELEASE_ID);
+        watchdog.track("release-2", List.of(enqueued("t9", "peer9", "@@peer9\\x.flac")), Map.of());
+
+        assertThat(System.currentTimeMillis() - startedAt).isLessThan(1_000);
+        assertThat(checker.isAlive()).isTrue();
+        slskd.verify(deleteRequestedFor(urlPathEqualTo("/api/v0/transfers/downloads/peer1/t1")));
+        checker.join();
+    }
+
+    private SlskdTransferWatchdog watchdog(int maxFailovers) {
+        return watchdog(maxFailovers, Duration.ZERO);
+    }
+
+    private SlskdTransferWatchdog watchdog(int maxFailovers, Duration queueTimeout) {
+        RestClient client = RestClient.builder().baseUrl(slskd.baseUrl()).build();
+        return new SlskdTransferWatchdog(client, "test-key", sourceIndex, downloadContext, mock(DownloadJournal.class),
+                errorProducer, 1_000, Duration.ofMinutes(5), queueTimeout, maxFailovers);
+    }
+
+    private void assertErrorSentFor(String file) {
+        ArgumentCaptor<DownloadErrorDto> error = ArgumentCaptor.forClass(DownloadErrorDto.class);
+        verify(errorProducer).sendError(error.capture());
+        assertThat(error.getValue().chatId()).isEqualTo(42L);
+        assertThat(error.getValue().errorMessage()).contains(file);
+        verify(errorProducer, times(1)).sendError(any());
+    }
+
+    private static void stubTransfer(String username, String id, String filename, String state) {
+        slskd.stubFor(get(urlEqualTo("/api/v0/transfers/downloads/" + username))
+                .willReturn(okJson(transfers(username, id, filename, state))));
+    }
+
+    private static void stubEnqueue(String username, String id, String filename) {
+        slskd.stubFor(post(urlEqualTo("/api/v0/transfers/downloads/" + username))
+                .willReturn(okJson("""
+                        {"enqueued": [{"id": "%s", "username": "%s", "filename": "%s", "size": %d}], "failed": []}
+                        """.formatted(id, username, json(filename), SIZE))));
+    }
+
+    private static String transfers(String username, String id, String filename, String state) {
+        return """
+                {"username": "%s", "directories": [{"directory": "Album", "fileCount": 1, "files": [
+                  {"id": "%s", "username": "%s", "filename": "%s", "size": %d, "state": "%s",
+                   "bytesTransferred": 0, "averageSpeed": 0, "percentComplete": 0}
+                ]}]}
+                """.formatted(username, id, username, json(filename), SIZE, state);
+    }
+
+    private static String json(String value) {
+        return value.replace("\\", "\\\\");
+    }
+
+    private static SlskdDownloadResponse.EnqueuedDownload enqueued(String id, String username, String filename) {
+        return new SlskdDownloadResponse.EnqueuedDownload(id, username, "Download", filename, SIZE, 0,
+                "Queued, Locally", null);
+    }
+
+    private static SlskdSearchEntryResponse peer(String username, String... filenames) {
+        var files = Arrays.stream(filenames)
+                .map(filename -> new SlskdSearchEntryResponse.SoulseekFile(null, 16, 1, "flac", filename, false, 180,
+                        44_100, SIZE, false))
+                .toList();
+        return new SlskdSearchEntryResponse(1, files, true, 0, List.of(), 0, 1, 1_000_000, username);
+    }
+}
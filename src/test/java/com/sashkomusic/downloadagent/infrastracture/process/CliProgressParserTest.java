@@ -0,0 +1,44 @@
+package com.sashkomusic.downloadagent.infrastracture.process;
+
+import com.sashkomusic.downloadagent.domain.model.DownloadProgress;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CliProgressParserTest {
+
+    private final CliProgressParser parser = new CliProgressParser();
+
+    @Test
+    void followsGamdlTrackCounterAndDownloadPercentages() {
+        assertThat(parser.accept("[INFO     14:02:11] (Track 3/12 from URL 1/1) Downloading \"Intro\""))
+                .contains(new DownloadProgress(3, 12, 0));
+        assertThat(parser.accept("[download]  45.2% of    8.43MiB at    2.10MiB/s ETA 00:02"))
+                .contains(new DownloadProgress(3, 12, 45.2));
+        assertThat(parser.accept("[download] 100% of    8.43MiB in 00:00:04 at 2.05MiB/s"))
+                .contains(new DownloadProgress(3, 12, 100));
+    }
+
+    @Test
+    void followsProgressBarOfTheCurrentTrack() {
+        assertThat(parser.accept("[2/9] Downloading: 02 - Outro")).contains(new DownloadProgress(2, 9, 0));
+        assertThat(parser.accept("02 - Outro.flac:  37%|███▋      | 10.2M/27.4M [00:02<00:03, 5.21MB/s]"))
+                .contains(new DownloadProgress(2, 9, 37));
+        assertThat(parser.accept("Track 3 of 9")).contains(new DownloadProgress(3, 9, 0));
+    }
+
+    @Test
+    void ignoresPercentagesBeforeTheFirstCounter() {
+        assertThat(parser.accept("Quality: 24bit / 96kHz (100% lossless)")).isEmpty();
+        assertThat(parser.accept("Cover.jpg:  50%|█████     | 1.0M/2.0M")).isEmpty();
+    }
+
+    @Test
+    void ignoresPercentagesAndFractionsOutsideTheRecognizedForms() {
+        parser.accept("(1/10) Downloading \"100% Pure Love\"");
+
+        assertThat(parser.accept("Downloading \"50% Off\" by Artist")).isEmpty();
+        assertThat(parser.accept("Resolution 1920/1080, 16/44.1 kHz")).isEmpty();
+        assertThat(parser.accept("Downloaded 3/10 covers")).isEmpty();
+    }
+}
@@ -0,0 +1,127 @@
+package com.sashkomusic.downloadagent.infrastracture.process;
+
+import com.sashkomusic.downloadagent.config.ProcessSupervisorConfig;
+import com.sashkomusic.downloadagent.domain.model.DownloadEngine;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@EnabledOnOs({OS.LINUX, OS.MAC})
+class ProcessSupervisorTest {
+
+    private ProcessSupervisor supervisor;
+
+    @BeforeEach
+    void setUp() {
+        ProcessSupervisorConfig config = new ProcessSupervisorConfig();
+        Map<DownloadEngine, Integer> maxConcurrent = new EnumMap<>(DownloadEngine.class);
+        maxConcurrent.put(DownloadEngine.QOBUZ, 1);
+        config.setMaxConcurrent(maxConcurrent);
+        supervisor = new ProcessSupervisor(config, new SimpleMeterRegistry());
+    }
+
+    @Test
+    void queuesInvocationsOverTheEngineLimit() throws Exception {
+        SupervisedProcess first = supervisor.submit(DownloadEngine.QOBUZ, "first", "sleep", "0.5");
+        SupervisedProcess second = supervisor.submit(DownloadEngine.QOBUZ, "second", "sleep", "0.1");
+        Thread.sleep(200);
+
+        assertThat(first.isRunning()).isTrue();
+        assertThat(second.isRunning()).isFalse();
+        assertThat(second.exit()).isNotDone();
+
+        assertThat(outcome(first)).isEqualTo(0);
+        assertThat(outcome(second)).isEqualTo(0);
+    }
+
+    @Test
+    void passesOutputLinesToTheListener() throws Exception {
+        List<String> lines = new CopyOnWriteArrayList<>();
+
+        SupervisedProcess process = supervisor.submit(DownloadEngine.BANDCAMP, "echo", lines::add,
+                "sh", "-c", "echo one; echo two 1>&2; exit 3");
+
+        assertThat(outcome(process)).isEqualTo(3);
+        assertThat(lines).containsExactly("one", "two");
+    }
+
+    @Test
+    void cancellingQueuedInvocationRemovesItFromTheQueue() throws Exception {
+        SupervisedProcess running = supervisor.submit(DownloadEngine.QOBUZ, "running", "sleep", "0.5");
+        SupervisedProcess queued = supervisor.submit(DownloadEngine.QOBUZ, "queued", "sleep", "10");
+
+        queued.cancel();
+
+        assertThat(outcome(queued)).isInstanceOf(CancellationException.class);
+        assertThat(outcome(running)).isEqualTo(0);
+    }
+
+    @Test
+    void cancellingRunningInvocationKillsItsProcessTree() throws Exception {
+        SupervisedProcess process = supervisor.submit(DownloadEngine.BANDCAMP, "tree", "sh", "-c", "sleep 30 & wait");
+        Thread.sleep(300);
+        assertThat(process.isRunning()).isTrue();
+
+        process.cancel();
+
+        assertThat(outcome(process)).isNotEqualTo(0);
+        assertThat(process.isRunning()).isFalse();
+    }
+
+    @Test
+    void cancelRightAfterSubmitNeverLetsTheProcessRunToTheEnd() throws Exception {
+        for (int i = 0; i < 50; i++) {
+            SupervisedProcess process = supervisor.submit(DownloadEngine.BANDCAMP, "race", "sleep", "30");
+            process.cancel();
+
+            assertThat(outcome(process)).isNotEqualTo(0);
+        }
+    }
+
+    @Test
+    void shutdownTerminatesRunningTreesAndCancelsQueuedInvocations() throws Exception {
+        SupervisedProcess running = supervisor.submit(DownloadEngine.QOBUZ, "running", "sh", "-c", "sleep 30 & wait");
+        SupervisedProcess queued = supervisor.submit(DownloadEngine.QOBUZ, "queued", "sleep", "30");
+        Thread.sleep(300);
+        List<ProcessHandle> tree = running.process().descendants().toList();
+        assertThat(tree).isNotEmpty();
+
+        supervisor.shutdown();
+
+        assertThat(outcome(queued)).isInstanceOf(CancellationException.class);
+        assertThat(outcome(running)).isNotEqualTo(0);
+        for (ProcessHandle descendant : tree) {
+            descendant.onExit().get(5, TimeUnit.SECONDS);
+        }
+    }
+
+    @Test
+    void freedSlotGoesToTheNextQueuedInvocation() throws Exception {
+        SupervisedProcess failing = supervisor.submit(DownloadEngine.QOBUZ, "missing", "/nonexistent/cli");
+        SupervisedProcess next = supervisor.submit(DownloadEngine.QOBUZ, "next", "true");
+
+        assertThat(outcome(failing)).isInstanceOf(IOException.class);
+        assertThat(outcome(next)).isEqualTo(0);
+    }
+
+    /**
+     * The exit code, or the exception the invocation failed with.
+     */
+    private static Object outcome(SupervisedProcess process) throws Exception {
+        return process.exit()
+                .handle((exitCode, error) -> error != null ? (Object) error : exitCode)
+                .get(5, TimeUnit.SECONDS);
+    }
+}